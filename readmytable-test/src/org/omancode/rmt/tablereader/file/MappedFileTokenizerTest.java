@@ -0,0 +1,150 @@
+package org.omancode.rmt.tablereader.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileTokenizerTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		StringBuilder text = new StringBuilder("id,name,note\r\n");
+
+		for (int i = 0; i < 50; i++) {
+			text.append(i).append(",\"caf\u00e9 ").append(i)
+					.append(", quoted\r\nover lines\",plain token ")
+					.append(i).append(" \u00fcber\r\n");
+		}
+		text.append("50,last,no line end");
+
+		file = File.createTempFile("rmt", ".csv");
+
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.toString().getBytes(UTF8));
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testWindowsSameAsReader() throws IOException {
+		List<String[]> expected = new ArrayList<String[]>();
+		List<Long> expectedLines = new ArrayList<Long>();
+
+		DelimitedTokenizer reader = new ReaderTokenizer(
+				new InputStreamReader(new FileInputStream(file), UTF8),
+				DelimiterSettings.WINDOWS_CSV);
+		try {
+			read(reader, expected, expectedLines);
+		} finally {
+			reader.close();
+		}
+
+		assertEquals(52, expected.size());
+		assertArrayEquals(new String[] { "7",
+				"caf\u00e9 7, quoted\nover lines", "plain token 7 \u00fcber" },
+				expected.get(8));
+
+		// windows much smaller than a token, so tokens and multi byte chars
+		// span window boundaries
+		long[] windowSizes = { 1, 2, 3, 7, 64, file.length() - 1,
+				MappedFileTokenizer.WINDOW_SIZE };
+
+		for (long windowSize : windowSizes) {
+			List<String[]> records = new ArrayList<String[]>();
+			List<Long> lines = new ArrayList<Long>();
+
+			DelimitedTokenizer mapped = new MappedFileTokenizer(file,
+					DelimiterSettings.WINDOWS_CSV, UTF8, new FileChunk(0, file
+							.length(), 1), windowSize);
+			try {
+				read(mapped, records, lines);
+			} finally {
+				mapped.close();
+			}
+
+			assertEquals("window " + windowSize, expected.size(), records
+					.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertArrayEquals("window " + windowSize + " record " + i,
+						expected.get(i), records.get(i));
+			}
+			assertEquals("window " + windowSize, expectedLines, lines);
+		}
+	}
+
+	@Test
+	public void testWindowsOverChunk() throws IOException {
+		List<FileChunk> chunks = new ArrayList<FileChunk>();
+
+		FileChunker chunker = new FileChunker(file,
+				DelimiterSettings.WINDOWS_CSV, file.length() / 4);
+		try {
+			while (chunker.hasNext()) {
+				chunks.add(chunker.next());
+			}
+		} finally {
+			chunker.close();
+		}
+		assertTrue(chunks.size() > 1);
+
+		List<String[]> records = new ArrayList<String[]>();
+		List<Long> lines = new ArrayList<Long>();
+
+		for (FileChunk chunk : chunks) {
+			DelimitedTokenizer mapped = new MappedFileTokenizer(file,
+					DelimiterSettings.WINDOWS_CSV, UTF8, chunk, 5);
+			try {
+				read(mapped, records, lines);
+			} finally {
+				mapped.close();
+			}
+		}
+
+		assertEquals(52, records.size());
+		assertArrayEquals(new String[] { "49",
+				"caf\u00e9 49, quoted\nover lines",
+				"plain token 49 \u00fcber" }, records.get(50));
+		assertEquals(Long.valueOf(100), lines.get(50));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWindowSizeMustBePositive() throws IOException {
+		new MappedFileTokenizer(file, DelimiterSettings.WINDOWS_CSV, UTF8,
+				new FileChunk(0, file.length(), 1), 0);
+	}
+
+	private static void read(DelimitedTokenizer tokenizer,
+			List<String[]> records, List<Long> lines) throws IOException {
+		while (tokenizer.nextRecord()) {
+			records.add(tokenizer.getFields());
+			lines.add(tokenizer.getLineNumber());
+		}
+		assertFalse(tokenizer.nextRecord());
+	}
+}
@@ -11,6 +11,19 @@ public class BooleanReaderTest {
 
 	BooleanReader transformer = new BooleanReader();
 
+	@Test
+	public void testFnCharSequence() {
+		assertEquals(Boolean.TRUE, transformer.call(new StringBuilder(" TRUE ")));
+		assertEquals(Boolean.FALSE, transformer.call(new StringBuilder("No")));
+		assertEquals(Boolean.TRUE, transformer.objectToBoolean(new StringBuilder("1.0")));
+
+		try {
+			transformer.call(new StringBuilder("foobar"));
+			fail("CellReaderException not generated.");
+		} catch (CellReaderException e) {
+		}
+	}
+
 	@Test
 	public void testFnBoolean() {
 		assertEquals(Boolean.TRUE, transformer.objectToBoolean(Boolean.TRUE));
@@ -155,6 +168,24 @@ public class BooleanReaderTest {
 
 	}
 
+	@Test
+	public void testCustomValues() {
+		BooleanReader reader = new BooleanReader(new String[] { "oui", "ja",
+				"si", "Y" }, new String[] { "non", "nein", "no", "N" });
+
+		assertEquals(Boolean.TRUE, reader.call(" JA "));
+		assertEquals(Boolean.TRUE, reader.call('y'));
+		assertEquals(Boolean.FALSE, reader.call(new StringBuilder("Nein")));
+		assertEquals(Boolean.FALSE, reader.stringToBoolean("NO"));
+
+		try {
+			reader.call("yes");
+			fail("CellReaderException not generated.");
+		} catch (CellReaderException e) {
+			assertEquals(true, e.getMessage().startsWith("String [yes]"));
+		}
+	}
+
 	@Test
 	public void testStringExceptionMessage() {
 		try {
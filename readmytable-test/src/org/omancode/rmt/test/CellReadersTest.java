@@ -1,16 +1,37 @@
 package org.omancode.rmt.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
+import org.omancode.rmt.cellreader.BooleanCellReader;
+import org.omancode.rmt.cellreader.CellReader;
 import org.omancode.rmt.cellreader.CellReaderException;
 import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.CharSequenceCellReader;
+import org.omancode.rmt.cellreader.DoubleCellReader;
+import org.omancode.rmt.cellreader.IntCellReader;
+import org.omancode.rmt.cellreader.IntegerReader;
+import org.omancode.rmt.cellreader.MissingValueReader;
+import org.omancode.rmt.cellreader.PrimitiveCellReader;
+import org.omancode.rmt.cellreader.ReadResult;
+import org.omancode.rmt.cellreader.SpecialisableCellReader;
+import org.omancode.rmt.cellreader.TokenReader;
+import org.omancode.rmt.cellreader.TryCellReader;
 
 public class CellReadersTest {
 
 	public static final Double EPSILON = 1e-15;
 
+	private static final Class<?>[] READER_INTERFACES = {
+			IntCellReader.class, DoubleCellReader.class,
+			BooleanCellReader.class, CharSequenceCellReader.class,
+			TryCellReader.class, SpecialisableCellReader.class };
+
 	@Test(expected = CellReaderException.class)
 	public void booleanNullHandling() {
 		CellReaders.BOOLEAN.call(null);
@@ -52,6 +73,269 @@ public class CellReadersTest {
 		assertEquals(CellReaders.MISSING_VALUE_INTEGER,
 				(int) CellReaders.OPTIONAL_INTEGER.call(null));
 	}
+
+	@Test
+	public void optionalIntegerMissingFlag() {
+		assertTrue(CellReaders.OPTIONAL_INTEGER.isMissing(""));
+		assertEquals(CellReaders.MISSING_VALUE_INTEGER,
+				CellReaders.OPTIONAL_INTEGER.readInt(""));
+		assertFalse(CellReaders.OPTIONAL_INTEGER.isMissing("5"));
+		assertEquals(5, CellReaders.OPTIONAL_INTEGER.readInt("5"));
+	}
+
+	@Test
+	public void optionalDoubleMissingFlag() {
+		assertTrue(CellReaders.OPTIONAL_DOUBLE.isMissing(null));
+		assertFalse(CellReaders.OPTIONAL_DOUBLE.isMissing("2.5"));
+		assertEquals(2.5, CellReaders.OPTIONAL_DOUBLE.readDouble("2.5"),
+				EPSILON);
+	}
+
+	@Test
+	public void primitiveReadsMatchCall() {
+		assertEquals(CellReaders.INTEGER.call("3.0").intValue(),
+				CellReaders.INTEGER.readInt("3.0"));
+		assertEquals(CellReaders.DOUBLE.call("1e3"),
+				CellReaders.DOUBLE.readDouble("1e3"), EPSILON);
+		assertEquals(CellReaders.BOOLEAN.call("yes").booleanValue(),
+				CellReaders.BOOLEAN.readBoolean("yes"));
+		assertFalse(CellReaders.INTEGER.isMissing(""));
+	}
+
+	@Test
+	public void composeFusion() {
+		Object[] values = { null, "", "  ", "NA", "na", "7", "2.5", "yes",
+				"0", "x", 3, 1.0, Boolean.TRUE };
+
+		MissingValueReader zero = new MissingValueReader(0);
+		MissingValueReader na = new MissingValueReader(-1, new String[] {
+				"NA", "N/A" }, true, true);
+		TokenReader yes = new TokenReader(new String[] { "x", "y" }, "yes",
+				true, false);
+		TokenReader no = new TokenReader("NA", "no");
+		TokenReader dash = new TokenReader("NA", "-");
+
+		assertSame(CellReaders.INTEGER, CellReaders.compose(
+				CellReaders.INTEGER, CellReaders.IDENTITY));
+
+		assertTrue(CellReaders.compose(CellReaders.INTEGER, zero)
+				instanceof IntCellReader);
+		assertFused(CellReaders.INTEGER, zero, values);
+		assertFused(CellReaders.OPTIONAL_INTEGER, zero, values);
+		assertFused(CellReaders.FAST_DOUBLE, zero, values);
+		assertFused(CellReaders.DOUBLE, na, values);
+		assertFused(CellReaders.BOOLEAN, yes, values);
+		assertFused(CellReaders.BOOLEAN, no, values);
+		assertFused(CellReaders.INTEGER, na, values);
+		assertFused(CellReaders.OPTIONAL_DOUBLE, na, values);
+		assertFused(CellReaders.STRING, na, values);
+		assertFused(CellReaders.CHARACTER, dash, values);
+
+		// fused readers implement the same reader interfaces as f
+		assertSameInterfaces(CellReaders.INTEGER, CellReaders.compose(
+				CellReaders.INTEGER, na));
+		assertSameInterfaces(CellReaders.DOUBLE, CellReaders.compose(
+				CellReaders.DOUBLE, na));
+		assertSameInterfaces(CellReaders.BOOLEAN, CellReaders.compose(
+				CellReaders.BOOLEAN, yes));
+		assertSameInterfaces(CellReaders.BOOLEAN, CellReaders.compose(
+				CellReaders.BOOLEAN, no));
+		assertSameInterfaces(CellReaders.STRING, CellReaders.compose(
+				CellReaders.STRING, na));
+		assertSameInterfaces(CellReaders.CHARACTER, CellReaders.compose(
+				CellReaders.CHARACTER, dash));
+
+		// cannot read the return value, so fails as the chain does
+		assertFused(CellReaders.INTEGER, new MissingValueReader("none"),
+				values);
+
+		// chains of compositions are fused too
+		assertFused(CellReaders.INTEGER, CellReaders.compose(zero,
+				CellReaders.IDENTITY), values);
+		assertFused(CellReaders.compose(CellReaders.STRING,
+				CellReaders.INTEGER), zero, values);
+	}
+
+	@Test
+	public void specialisedReaders() {
+		Object[] values = { null, "", " 7 ", "2.5", "1e3", "yes", "x",
+				new StringBuilder("0"), 3, 1.0, 0.0, -0.0, 2.5, 1e10,
+				Double.NaN, 'y', Boolean.TRUE };
+		CellReader<?>[] readers = { CellReaders.INTEGER,
+				CellReaders.OPTIONAL_INTEGER, CellReaders.DOUBLE,
+				CellReaders.FAST_DOUBLE, CellReaders.OPTIONAL_DOUBLE,
+				CellReaders.BOOLEAN, CellReaders.STRING };
+		Class<?>[] cellTypes = { CharSequence.class, String.class,
+				Double.class };
+
+		assertFalse(CellReaders.specialise(CellReaders.INTEGER, Double.class)
+				.getClass() == IntegerReader.class);
+		assertSame(CellReaders.INTEGER, CellReaders.specialise(
+				CellReaders.INTEGER, Object.class));
+
+		ReadResult expected = new ReadResult();
+		ReadResult actual = new ReadResult();
+
+		for (CellReader<?> reader : readers) {
+			for (Class<?> cellType : cellTypes) {
+				CellReader<?> specialised = CellReaders.specialise(reader,
+						cellType);
+
+				assertSame(reader.getResultType(), specialised
+						.getResultType());
+
+				for (Object value : values) {
+					assertSameRead(reader, specialised, value);
+
+					if (reader instanceof TryCellReader) {
+						assertEquals(((TryCellReader<?>) reader).tryRead(
+								value, expected),
+								((TryCellReader<?>) specialised).tryRead(
+										value, actual));
+						assertEquals(expected.getReason(), actual
+								.getReason());
+					}
+
+					if (reader instanceof PrimitiveCellReader) {
+						assertEquals(((PrimitiveCellReader<?>) reader)
+								.isMissing(value),
+								((PrimitiveCellReader<?>) specialised)
+										.isMissing(value));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Assert two readers read {@code value} the same.
+	 */
+	private static void assertSameRead(CellReader<?> expected,
+			CellReader<?> actual, Object value) {
+		Object result;
+		try {
+			result = expected.call(value);
+		} catch (CellReaderException e) {
+			try {
+				actual.call(value);
+				fail("Expected " + e.getMessage());
+			} catch (CellReaderException e2) {
+				assertEquals(e.getMessage(), e2.getMessage());
+			}
+			return;
+		}
+
+		assertEquals(String.valueOf(value), result, actual.call(value));
+	}
+
+	/**
+	 * Assert {@code compose(f, g)} reads each value the same as applying
+	 * {@code g} then {@code f}, via each reader interface it implements and
+	 * when specialised. String values are also read as a view of a text cell.
+	 */
+	private static void assertFused(CellReader<?> f, CellReader<?> g,
+			Object[] values) {
+		CellReader<?> h = CellReaders.compose(f, g);
+
+		assertSame(f.getResultType(), h.getResultType());
+
+		for (Object value : values) {
+			Object cell = value instanceof String ? new StringBuilder(
+					(String) value) : value;
+
+			assertFusedRead(f, g, h, value, value);
+			assertFusedRead(f, g, h, value, cell);
+
+			for (Class<?> cellType : new Class<?>[] { CharSequence.class,
+					Double.class }) {
+				assertFusedRead(f, g, CellReaders.specialise(h, cellType),
+						value, cell);
+			}
+		}
+	}
+
+	/**
+	 * Assert {@code h} reads {@code cell} as {@code f(g(value))}.
+	 */
+	private static void assertFusedRead(CellReader<?> f, CellReader<?> g,
+			CellReader<?> h, Object value, Object cell) {
+		String name = String.valueOf(value);
+		ReadResult result = new ReadResult();
+		Object expected;
+
+		try {
+			expected = f.call(g.call(value));
+		} catch (CellReaderException e) {
+			try {
+				h.call(cell);
+				fail("Expected " + e.getMessage());
+			} catch (CellReaderException e2) {
+				// messages name the type of the cell
+				if (cell == value) {
+					assertEquals(e.getMessage(), e2.getMessage());
+				}
+			}
+			if (h instanceof TryCellReader) {
+				assertFalse(name, ((TryCellReader<?>) h).tryRead(cell,
+						result));
+			}
+			return;
+		}
+
+		assertEquals(name, expected, h.call(cell));
+
+		if (h instanceof CharSequenceCellReader
+				&& cell instanceof CharSequence) {
+			assertEquals(name, expected, ((CharSequenceCellReader<?>) h)
+					.call((CharSequence) cell));
+		}
+
+		if (h instanceof TryCellReader) {
+			assertTrue(name, ((TryCellReader<?>) h).tryRead(cell, result));
+
+			Object read;
+			if (h instanceof IntCellReader) {
+				read = Integer.valueOf(result.getInt());
+			} else if (h instanceof DoubleCellReader) {
+				read = Double.valueOf(result.getDouble());
+			} else if (h instanceof BooleanCellReader) {
+				read = Boolean.valueOf(result.getBoolean());
+			} else {
+				read = result.getValue();
+			}
+			assertEquals(name, expected, read);
+		}
+
+		if (h instanceof IntCellReader) {
+			assertEquals(name, expected, Integer.valueOf(((IntCellReader) h)
+					.readInt(cell)));
+		} else if (h instanceof DoubleCellReader) {
+			assertEquals(name, expected, Double
+					.valueOf(((DoubleCellReader) h).readDouble(cell)));
+		} else if (h instanceof BooleanCellReader) {
+			assertEquals(name, expected, Boolean
+					.valueOf(((BooleanCellReader) h).readBoolean(cell)));
+		}
+
+		// values replaced by a missing value reader are missing
+		if (h instanceof PrimitiveCellReader
+				&& f instanceof PrimitiveCellReader) {
+			boolean missing = g instanceof MissingValueReader
+					&& ((MissingValueReader) g).matches(value);
+
+			assertEquals(name, missing
+					|| ((PrimitiveCellReader<?>) f).isMissing(g.call(value)),
+					((PrimitiveCellReader<?>) h).isMissing(cell));
+		}
+	}
+
+	private static void assertSameInterfaces(CellReader<?> f,
+			CellReader<?> h) {
+		for (Class<?> type : READER_INTERFACES) {
+			assertEquals(type.getSimpleName(), type.isInstance(f), type
+					.isInstance(h));
+		}
+	}
 	
 	/**
 	 * Launch the test.
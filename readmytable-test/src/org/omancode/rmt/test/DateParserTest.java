@@ -0,0 +1,240 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.omancode.rmt.cellreader.CellReaderException;
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.DateParser;
+import org.omancode.rmt.cellreader.DateReader;
+import org.omancode.rmt.cellreader.EpochDayReader;
+import org.omancode.rmt.cellreader.EpochMillisReader;
+import org.omancode.rmt.cellreader.ReadResult;
+
+public class DateParserTest {
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private static final String[] NOT_DATES = { "", "2011", "2011-1-01",
+			"2011-13-01", "2011-02-29", "2011-04-31", "32/01/2011",
+			"1/1/11", "01/01/20111", "2011-01-01x", "2011/01/01",
+			"2011-01-01T25:00", "2011-01-01T10:60", "2011-01-01T10",
+			"2011-01-01T10:00:5", "2011-01-01T10:00:00.", "01/01/2011 10:00Z",
+			"2011-01-01T10:00+1", "2011-01-01T10:00+19:00", "abc" };
+
+	private static SimpleDateFormat format(String pattern, TimeZone zone) {
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		format.setLenient(false);
+		format.setTimeZone(zone);
+		return format;
+	}
+
+	@Test
+	public void testEpochDaySameAsDateFormat() throws ParseException {
+		SimpleDateFormat iso = format("yyyy-MM-dd", UTC);
+		SimpleDateFormat dayFirst = format("d/M/yyyy", UTC);
+		Random random = new Random(1);
+
+		// from 1600, after the Gregorian calendar was adopted, to 9999
+		long first = iso.parse("1600-01-01").getTime();
+		long last = iso.parse("9999-12-31").getTime();
+
+		for (int i = 0; i < 20000; i++) {
+			Date date = new Date(first
+					+ (long) (random.nextDouble() * (last - first)));
+			String text = random.nextBoolean() ? iso.format(date) : dayFirst
+					.format(date);
+			long expected = (long) Math.floor(date.getTime()
+					/ (double) DateParser.MILLIS_PER_DAY);
+
+			assertEquals(text, expected, DateParser.parseEpochDay(text));
+		}
+
+		assertEquals(0, DateParser.parseEpochDay(" 1970-01-01 "));
+		assertEquals(15340, DateParser.parseEpochDay("01/01/2012"));
+		assertEquals(15340, DateParser.parseEpochDay("1/1/2012"));
+		assertEquals(15399, DateParser.parseEpochDay("29/02/2012"));
+	}
+
+	@Test
+	public void testEpochMillis() throws ParseException {
+		TimeZone sydney = TimeZone.getTimeZone("Australia/Sydney");
+
+		assertEquals(format("yyyy-MM-dd HH:mm:ss.SSS", UTC).parse(
+				"2011-03-04 05:06:07.890").getTime(), DateParser
+				.parseEpochMillis("2011-03-04T05:06:07.890123", UTC));
+		assertEquals(format("dd/MM/yyyy HH:mm", sydney).parse(
+				"04/03/2011 05:06").getTime(), DateParser.parseEpochMillis(
+				"04/03/2011 05:06", sydney));
+		assertEquals(format("dd/MM/yyyy HH:mm", sydney).parse(
+				"04/07/2011 05:06").getTime(), DateParser.parseEpochMillis(
+				"04/07/2011 05:06", sydney));
+		assertEquals(format("yyyy-MM-dd HH:mm:ss", UTC).parse(
+				"2011-03-04 03:36:07").getTime(), DateParser
+				.parseEpochMillis("2011-03-04T05:06:07+01:30", sydney));
+		assertEquals(DateParser.parseEpochMillis("2011-03-04T05:06Z", UTC),
+				DateParser.parseEpochMillis("2011-03-04T04:06-0100", sydney));
+
+		for (String text : NOT_DATES) {
+			assertEquals(text, DateParser.NOT_PARSED, DateParser
+					.parseEpochMillis(text, UTC));
+			assertEquals(text, DateParser.NOT_PARSED, DateParser
+					.parseEpochDay(text));
+		}
+	}
+
+	@Test
+	public void testReaders() {
+		ReadResult result = new ReadResult();
+
+		assertEquals(15340, CellReaders.EPOCH_DAY.readInt("2012-01-01"));
+		assertEquals(15340, CellReaders.EPOCH_DAY.readInt(40909.0));
+		assertEquals(15340, new EpochDayReader("MMM d, yyyy")
+				.readInt("Jan 1, 2012"));
+		assertFalse(CellReaders.EPOCH_DAY.tryRead("Jan 1, 2012", result));
+		assertFalse(CellReaders.EPOCH_DAY.tryRead(40909.5, result));
+		assertFalse(CellReaders.EPOCH_DAY.tryRead(null, result));
+
+		long millis = 15340 * DateParser.MILLIS_PER_DAY + 12 * 3600000;
+		assertEquals(millis, CellReaders.EPOCH_MILLIS
+				.readLong("2012-01-01 12:00"));
+		assertEquals(millis, CellReaders.EPOCH_MILLIS.readLong(40909.5));
+		assertEquals(millis, CellReaders.EPOCH_MILLIS.readLong(new Date(
+				millis)));
+		assertEquals(millis, new EpochMillisReader("MM/dd/yyyy h:mm a", UTC)
+				.readLong("01/01/2012 12:00 PM"));
+		assertEquals(Long.valueOf(millis), CellReaders.EPOCH_MILLIS
+				.call("2012-01-01T12:00:00.000Z"));
+
+		try {
+			CellReaders.EPOCH_MILLIS.readLong("2012-01-01 12");
+			fail("Expected CellReaderException");
+		} catch (CellReaderException e) {
+			assertEquals("Cannot convert \"2012-01-01 12\" to date-time "
+					+ "(Not a date-time)", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testReadersSameSerialsAndDates() {
+		ReadResult result = new ReadResult();
+		long day = 15340;
+		Date midnight = new Date(day * DateParser.MILLIS_PER_DAY);
+
+		// both readers read Dates
+		assertEquals(day, CellReaders.EPOCH_DAY.readInt(midnight));
+		assertEquals(midnight.getTime(), CellReaders.EPOCH_MILLIS
+				.readLong(midnight));
+		assertFalse(CellReaders.EPOCH_DAY.tryRead(new Date(midnight
+				.getTime() + 1), result));
+		assertEquals("Date is not at midnight UTC", result.getReason());
+
+		// both readers read serials from 0 (1899-12-31, as for POI) up to
+		// the end of 9999-12-31
+		double lastDay = 2958465;
+		assertEquals(DateParser.parseEpochDay("1899-12-31"),
+				CellReaders.EPOCH_DAY.readInt(0.0));
+		assertEquals(DateParser.parseEpochMillis("1899-12-31", UTC),
+				CellReaders.EPOCH_MILLIS.readLong(0.0));
+		assertEquals(DateParser.parseEpochDay("9999-12-31"),
+				CellReaders.EPOCH_DAY.readInt(lastDay));
+		assertEquals(DateParser.parseEpochMillis("9999-12-31", UTC),
+				CellReaders.EPOCH_MILLIS.readLong(lastDay));
+
+		for (double serial : new double[] { -1, lastDay + 1, Double.NaN }) {
+			assertFalse(CellReaders.EPOCH_DAY.tryRead(serial, result));
+			assertEquals("Number is not an Excel date", result.getReason());
+			assertFalse(CellReaders.EPOCH_MILLIS.tryRead(serial, result));
+			assertEquals("Number is not an Excel date-time", result
+					.getReason());
+		}
+	}
+
+	@Test
+	public void testReadersExcel1900LeapDay() {
+		// Excel has a 1900-02-29 at serial 60, so earlier serials are a day
+		// behind. Read as 1900-03-01, as POI does.
+		double[] serials = { 1, 59, 60, 61 };
+		String[] dates = { "1900-01-01", "1900-02-28", "1900-03-01",
+				"1900-03-01" };
+
+		for (int i = 0; i < serials.length; i++) {
+			assertEquals("serial " + serials[i], DateParser
+					.parseEpochDay(dates[i]), CellReaders.EPOCH_DAY
+					.readInt(serials[i]));
+			assertEquals("serial " + serials[i], DateParser
+					.parseEpochMillis(dates[i], UTC), CellReaders.EPOCH_MILLIS
+					.readLong(serials[i]));
+		}
+
+		// time of day on the first day
+		assertEquals(DateParser.parseEpochMillis("1900-01-01T12:00", UTC),
+				CellReaders.EPOCH_MILLIS.readLong(1.5));
+	}
+
+	@Test
+	public void testDateReaderSharedBetweenThreads() throws Exception {
+		final DateReader reader = new DateReader(format("yyyy-MM-dd HH:mm",
+				UTC));
+		final SimpleDateFormat expected = format("yyyy-MM-dd HH:mm", UTC);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+
+			for (int t = 0; t < 4; t++) {
+				final int thread = t;
+
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws ParseException {
+						for (int i = 0; i < 2000; i++) {
+							String text = String.format(
+									"20%02d-%02d-%02d %02d:%02d", thread
+											* 20 + i % 20, 1 + i % 12,
+									1 + i % 28, i % 24, i % 60);
+							Date parsed = reader.call(text);
+
+							synchronized (expected) {
+								if (!expected.parse(text).equals(parsed)) {
+									return false;
+								}
+							}
+						}
+						return true;
+					}
+				}));
+			}
+
+			for (Future<Boolean> future : futures) {
+				assertEquals(Boolean.TRUE, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Launch the test.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		new org.junit.runner.JUnitCore().run(DateParserTest.class);
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.omancode.rmt.cellreader.CellReaderException;
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.DoubleParser;
+
+public class DoubleParserTest {
+
+	private static final String[] VALUES = { "0", "-0", "1", "1.", ".5",
+			"18.25", "28.583333333333332", "1e23", "8.41e21",
+			"9007199254740993", "2.2250738585072011e-308",
+			"2.4703282292062327e-324", "2.4703282292062328e-324",
+			"4.9406564584124654e-324", "1.7976931348623157e308",
+			"1.7976931348623159e308", "1e-400", "1e400",
+			"123456789012345678901234567890", " 7 ", "NaN", "-Infinity",
+			"0x1p3", "1.5d" };
+
+	private static void assertSameAsJDK(String value) {
+		assertEquals(value, Double.doubleToRawLongBits(Double
+				.parseDouble(value)), Double.doubleToRawLongBits(DoubleParser
+				.parseDouble(value)));
+	}
+
+	@Test
+	public void testSameAsJDK() {
+		for (String value : VALUES) {
+			assertSameAsJDK(value);
+		}
+	}
+
+	@Test
+	public void testRandomSameAsJDK() {
+		Random random = new Random(1);
+
+		for (int i = 0; i < 100000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+
+			if (!Double.isNaN(value)) {
+				assertSameAsJDK(Double.toString(value));
+			}
+		}
+	}
+
+	@Test
+	public void testRange() {
+		assertEquals(2.5, DoubleParser.parseDouble("x2.5y", 1, 4), 0);
+	}
+
+	@Test
+	public void testInvalid() {
+		String[] invalid = { "", "-", ".", "1e", "1e+", "abc", "1.2.3" };
+
+		for (String value : invalid) {
+			try {
+				DoubleParser.parseDouble(value);
+				fail("NumberFormatException not generated for \"" + value
+						+ "\"");
+			} catch (NumberFormatException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testIsDouble() {
+		for (String value : VALUES) {
+			assertEquals(value, true, DoubleParser.isDouble(value));
+		}
+
+		String[] invalid = { "", "-", ".", "1e", "1e+", "abc", "1.2.3",
+				"0x1", "0x.p1", "-NaN1", "1ff", "1d ." };
+
+		for (String value : invalid) {
+			assertEquals(value, false, DoubleParser.isDouble(value));
+		}
+
+		// same as the JDK for random input
+		String chars = "0123456789.eE+-xXpPfFdD N";
+		Random random = new Random(1);
+
+		for (int i = 0; i < 100000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(8);
+
+			for (int j = 0; j < length; j++) {
+				sb.append(chars.charAt(random.nextInt(chars.length())));
+			}
+
+			String value = sb.toString();
+			boolean isDouble;
+			try {
+				Double.parseDouble(value);
+				isDouble = true;
+			} catch (NumberFormatException e) {
+				isDouble = false;
+			}
+
+			assertEquals(value, isDouble, DoubleParser.isDouble(value));
+		}
+	}
+
+	@Test(expected = CellReaderException.class)
+	public void testFastDoubleReaderInvalid() {
+		CellReaders.FAST_DOUBLE.call("abc");
+	}
+
+	@Test
+	public void testFastDoubleReader() {
+		assertEquals(Double.valueOf(18.25), CellReaders.FAST_DOUBLE.call("18.25"));
+		assertEquals(CellReaders.MISSING_VALUE_DOUBLE,
+				CellReaders.OPTIONAL_FAST_DOUBLE.readDouble(""), 0);
+	}
+
+}
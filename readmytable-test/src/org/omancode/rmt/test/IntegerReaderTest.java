@@ -0,0 +1,93 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.omancode.rmt.cellreader.CellReaderException;
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.IntParser;
+import org.omancode.rmt.cellreader.IntegerReader;
+import org.omancode.rmt.cellreader.ReadResult;
+
+public class IntegerReaderTest {
+
+	IntegerReader reader = new IntegerReader();
+
+	@Test
+	public void testParseInt() {
+		assertEquals(0, IntParser.parseInt("0"));
+		assertEquals(-12, IntParser.parseInt("-12"));
+		assertEquals(12, IntParser.parseInt("+012"));
+		assertEquals(Integer.MAX_VALUE, IntParser.parseInt("2147483647"));
+		assertEquals(Integer.MIN_VALUE, IntParser.parseInt("-2147483648"));
+		assertEquals(34, IntParser.parseInt("1234", 2, 4));
+
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt(""));
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt("-"));
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt("3.0"));
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt("1e3"));
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt(" 7"));
+		assertEquals(IntParser.NOT_PARSED, IntParser.parseInt("2147483648"));
+	}
+
+	@Test
+	public void testStringToInt() {
+		assertEquals(42, reader.stringToInt("42"));
+		assertEquals(-7, reader.stringToInt("-7"));
+
+		// not plain integers, read via double
+		assertEquals(3, reader.stringToInt("3.0"));
+		assertEquals(1000, reader.stringToInt("1e3"));
+		assertEquals(7, reader.stringToInt(" 7 "));
+	}
+
+	@Test
+	public void testCharSequenceToInt() {
+		assertEquals(42, reader.charSequenceToInt(new StringBuilder("42")));
+		assertEquals(3, reader.charSequenceToInt(new StringBuilder("3.0")));
+		assertEquals(Integer.valueOf(-5), reader.call(new StringBuilder("-5")));
+	}
+
+	@Test
+	public void testStringToIntFailures() {
+		String[] invalid = { "", "abc", "1.5", "2147483648", "99999999999999999999" };
+
+		for (String value : invalid) {
+			try {
+				reader.stringToInt(value);
+				fail("CellReaderException not generated for \"" + value + "\"");
+			} catch (CellReaderException e) {
+				System.out.println(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testTryRead() {
+		ReadResult result = new ReadResult();
+
+		Object[] valid = { "42", "3.0", " 7 ", new StringBuilder("1e3"),
+				Long.valueOf(-5), Double.valueOf(2), Boolean.TRUE, '9' };
+
+		for (Object value : valid) {
+			assertEquals(value.toString(), true, reader.tryRead(value, result));
+			assertEquals(reader.readInt(value), result.getInt());
+			assertEquals(null, result.getReason());
+		}
+
+		Object[] invalid = { null, "", "abc", "1.5", "2147483648",
+				Long.valueOf(Long.MAX_VALUE), Double.valueOf(Double.NaN),
+				'x', new Object() };
+
+		for (Object value : invalid) {
+			assertEquals(String.valueOf(value), false, reader.tryRead(value,
+					result));
+			assertEquals(true, result.isFailed());
+		}
+
+		assertEquals(true, CellReaders.OPTIONAL_INTEGER.tryRead("", result));
+		assertEquals(CellReaders.MISSING_VALUE_INTEGER, result.getInt());
+	}
+
+}
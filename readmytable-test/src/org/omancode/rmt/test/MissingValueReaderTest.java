@@ -150,6 +150,18 @@ public class MissingValueReaderTest {
 		// add additional test code here
 	}
 
+	@Test
+	public void testIifMissingTokens() {
+		MissingValueReader fixture = new MissingValueReader(123,
+				new String[] { "NA", "." }, true, true);
+
+		assertEquals(123, fixture.iifMissing(""));
+		assertEquals(123, fixture.iifMissing(" na"));
+		assertEquals(123, fixture.iifMissing(new StringBuilder(".")));
+		assertEquals("N/A", fixture.iifMissing("N/A"));
+		assertEquals(456, fixture.iifMissing(456));
+	}
+
 	/**
 	 * Perform pre-test initialization.
 	 *
@@ -2,10 +2,16 @@ package org.omancode.rmt.test;
 
 import static org.junit.Assert.assertEquals;
 
+import java.math.BigDecimal;
+import java.util.Random;
+
 import org.junit.Test;
+import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.cellreader.CellReaders;
 import org.omancode.rmt.cellreader.narrow.NarrowException;
 import org.omancode.rmt.cellreader.narrow.NarrowUtil;
 import org.omancode.rmt.cellreader.narrow.TypeCheckedValue;
+import org.omancode.rmt.cellreader.narrow.TypeClassifier;
 
 public class NarrowUtilTest {
 
@@ -189,6 +195,66 @@ public class NarrowUtilTest {
 
 	}
 
+	@Test
+	public void testClassifierSameAsReaders() {
+		Object[] values = { null, "", " ", "1", "-0", "+12", " 7 ", "1.",
+				".5", "-.0", "1e3", "1.5e1", "0x10p0", "1d", "NaN",
+				"Infinity", "2147483647", "2147483648", "-2147483648",
+				"-2147483649", "2147483647.0", "2147483647.5",
+				"1.0000000000000001", "1.000000000000001",
+				"12345678901.0", "00000000000000000001", "TRUE", " yes ",
+				"T", "x", "1.2.3", "abc", d0, d1, d11, f1, f11, maxLong,
+				doubleMaxLong, floatMaxLong, i1, c0, c1, cA, Boolean.TRUE,
+				new BigDecimal("3"), new StringBuilder("2.0"), new Object() };
+
+		for (Object value : values) {
+			assertClassifiedAsReaders(value);
+		}
+
+		String chars = "0123456789.-+e ";
+		Random random = new Random(1);
+
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(20);
+
+			for (int j = 0; j < length; j++) {
+				sb.append(chars.charAt(random.nextInt(chars.length())));
+			}
+
+			assertClassifiedAsReaders(sb.toString());
+		}
+	}
+
+	private static void assertClassifiedAsReaders(Object value) {
+		for (boolean allowMissing : new boolean[] { false, true }) {
+			int types = new TypeClassifier(allowMissing).classify(value);
+			String message = "\"" + value + "\" " + allowMissing;
+
+			assertEquals(message, canRead(CellReaders.BOOLEAN, value),
+					(types & TypeClassifier.BOOLEAN) != 0);
+			assertEquals(message, canRead(allowMissing
+					? CellReaders.OPTIONAL_INTEGER : CellReaders.INTEGER,
+					value), (types & TypeClassifier.INTEGER) != 0);
+			assertEquals(message, canRead(allowMissing
+					? CellReaders.OPTIONAL_DOUBLE : CellReaders.DOUBLE,
+					value), (types & TypeClassifier.DOUBLE) != 0);
+			assertEquals(message, canRead(CellReaders.CHARACTER, value),
+					(types & TypeClassifier.CHARACTER) != 0);
+			assertEquals(message, canRead(CellReaders.STRING, value),
+					(types & TypeClassifier.STRING) != 0);
+		}
+	}
+
+	private static boolean canRead(CellReader<?> reader, Object value) {
+		try {
+			reader.call(value);
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Launch the test.
 	 *
@@ -0,0 +1,133 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.omancode.rmt.tablereader.file.DelimitedFileReader;
+import org.omancode.rmt.tablereader.file.DelimiterSettings;
+import org.omancode.rmt.tablereader.file.RowIndex;
+
+public class RowIndexTest {
+
+	private File file;
+	private File indexFile;
+	private DelimitedFileReader reader;
+	private List<Object[]> rows;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("rmt", ".csv");
+		indexFile = new File(file.getPath() + ".index");
+
+		Writer out = new FileWriter(file);
+		try {
+			out.write("id,name,note\r\n");
+			for (int i = 0; i < 20; i++) {
+				if (i % 4 == 0) {
+					out.write(i + ",\"multi\r\nline " + i + "\",\"a \"\"b\"\"\"\r\n");
+				} else if (i % 4 == 1) {
+					// empty lines are skipped
+					out.write("\r\n\n" + i + ",\"lf\nonly\",x\n");
+				} else if (i % 4 == 2) {
+					out.write(i + ",lone cr,y\r");
+				} else {
+					out.write(i + ",plain,z\r\n");
+				}
+			}
+			out.write("20,last,no line end");
+		} finally {
+			out.close();
+		}
+
+		reader = new DelimitedFileReader(file);
+
+		rows = new ArrayList<Object[]>();
+		for (Object[] row : reader) {
+			rows.add(row);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		indexFile.delete();
+	}
+
+	@Test
+	public void testGetRow() throws IOException {
+		RowIndex index = reader.buildIndex(3);
+
+		assertEquals(21, rows.size());
+		assertEquals(rows.size(), index.getRowCount());
+
+		for (int i = 0; i < rows.size(); i++) {
+			assertArrayEquals(rows.get(i), reader.getRow(i));
+		}
+
+		try {
+			reader.getRow(rows.size());
+			fail("Row after the last row");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testIterator() throws IOException {
+		reader.buildIndex(4);
+
+		for (int from = 0; from <= rows.size(); from++) {
+			for (int to = from; to <= rows.size(); to++) {
+				Iterator<Object[]> iterator = reader.iterator(from, to);
+
+				for (int i = from; i < to; i++) {
+					assertArrayEquals(rows.get(i), iterator.next());
+				}
+
+				assertEquals(false, iterator.hasNext());
+			}
+		}
+	}
+
+	@Test
+	public void testSidecar() throws IOException {
+		RowIndex built = reader.openIndex(indexFile, 5);
+		assertEquals(true, indexFile.isFile());
+
+		RowIndex loaded = RowIndex.read(indexFile, file,
+				DelimiterSettings.WINDOWS_CSV);
+		assertNotNull(loaded);
+		assertEquals(built.getRowCount(), loaded.getRowCount());
+
+		reader.setIndex(loaded);
+		for (int i = 0; i < rows.size(); i++) {
+			assertArrayEquals(rows.get(i), reader.getRow(i));
+		}
+
+		// stale once the file changes
+		file.setLastModified(file.lastModified() - 10000);
+		assertEquals(null, RowIndex.read(indexFile, file,
+				DelimiterSettings.WINDOWS_CSV));
+
+		try {
+			reader.getRow(0);
+			fail("Index is stale");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.omancode.rmt.tablereader.AbstractTableReader;
+import org.omancode.rmt.tablereader.ColumnarTable;
+import org.omancode.rmt.tablereader.RowCursor;
+import org.omancode.rmt.tablereader.RowSpliterator;
+import org.omancode.rmt.tablereader.file.DelimitedFileReader;
+import org.omancode.rmt.tablereader.file.ExcelFileReader;
+
+public class RowSpliteratorTest {
+
+	public static final String TEST_DIR = TableReaderFileTest.TEST_DIR;
+
+	@Test
+	public void testDelimited() throws IOException {
+		File file = File.createTempFile("rmt", ".csv");
+
+		try {
+			Writer out = new FileWriter(file);
+			try {
+				out.write("id,note\r\n");
+				for (int i = 0; i < 20000; i++) {
+					out.write(i + ",\"line one\r\nline, two\"\r\n");
+				}
+			} finally {
+				out.close();
+			}
+
+			DelimitedFileReader reader = new DelimitedFileReader(file);
+			List<RowSpliterator> parts = split(reader.rowSpliterator(),
+					64 * 1024);
+
+			assertEquals(true, parts.size() > 2);
+			assertRowsEqual(reader, parts);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDelimitedTooSmallToSplit() throws IOException {
+		AbstractTableReader csv = new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people.csv"));
+		RowSpliterator rows = csv.rowSpliterator();
+
+		assertNull(rows.trySplit());
+
+		List<RowSpliterator> parts = new ArrayList<RowSpliterator>();
+		parts.add(rows);
+		assertRowsEqual(csv, parts);
+	}
+
+	@Test
+	public void testExcel() throws IOException {
+		AbstractTableReader xls = new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people.xls"));
+		RowSpliterator rows = xls.rowSpliterator();
+
+		assertEquals(5, rows.estimateSize());
+		assertRowsEqual(xls, split(rows, 1));
+	}
+
+	@Test
+	public void testColumnar() throws IOException {
+		ColumnarTable table = new ColumnarTable(new ExcelFileReader(
+				new File(TEST_DIR + "xls_people.xls")));
+		RowSpliterator rows = table.rowSpliterator();
+
+		RowSpliterator prefix = rows.trySplit();
+		assertNotNull(prefix);
+		assertEquals(2, prefix.estimateSize());
+		assertEquals(3, rows.estimateSize());
+
+		List<RowSpliterator> parts = split(prefix, 1);
+		parts.addAll(split(rows, 1));
+		assertEquals(5, parts.size());
+		assertRowsEqual(table, parts);
+	}
+
+	/**
+	 * Split until each part is no larger than {@code size}, returning the
+	 * parts in table order.
+	 */
+	private static List<RowSpliterator> split(RowSpliterator rows, long size) {
+		List<RowSpliterator> parts = new ArrayList<RowSpliterator>();
+		RowSpliterator prefix = rows.estimateSize() > size ? rows.trySplit()
+				: null;
+
+		if (prefix == null) {
+			parts.add(rows);
+		} else {
+			parts.addAll(split(prefix, size));
+			parts.addAll(split(rows, size));
+		}
+
+		return parts;
+	}
+
+	private static void assertRowsEqual(AbstractTableReader table,
+			List<RowSpliterator> parts) {
+		List<Object[]> expected = new ArrayList<Object[]>();
+		for (Object[] row : table) {
+			expected.add(row);
+		}
+
+		List<Object[]> actual = new ArrayList<Object[]>();
+		for (RowSpliterator part : parts) {
+			RowCursor cursor = part.cursor();
+
+			try {
+				while (cursor.advance()) {
+					actual.add(cursor.toArray());
+				}
+			} finally {
+				cursor.close();
+			}
+
+			assertEquals(0, part.estimateSize());
+		}
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+}
@@ -4,16 +4,54 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Test;
 import org.omancode.rmt.cellreader.CellReader;
 import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.MissingValueReader;
+import org.omancode.rmt.cellreader.OptionalIntegerReader;
+import org.omancode.rmt.cellreader.ReadResult;
 import org.omancode.rmt.tablereader.AbstractTableReader;
+import org.omancode.rmt.tablereader.CloseableIterator;
+import org.omancode.rmt.tablereader.ColumnBatch;
+import org.omancode.rmt.tablereader.ColumnarTable;
+import org.omancode.rmt.tablereader.ErrorPolicy;
+import org.omancode.rmt.tablereader.ErrorReport;
+import org.omancode.rmt.tablereader.RowCursor;
+import org.omancode.rmt.tablereader.RowFilter;
+import org.omancode.rmt.tablereader.SchemaInference;
+import org.omancode.rmt.tablereader.SnapshotCache;
 import org.omancode.rmt.tablereader.file.DelimitedFileReader;
+import org.omancode.rmt.tablereader.file.DelimiterSettings;
 import org.omancode.rmt.tablereader.file.ExcelFileReader;
+import org.omancode.rmt.tablereader.file.StreamingExcelFileReader;
 import org.omancode.util.ArrayUtil;
 
 public class TableReaderFileTest {
@@ -183,6 +221,368 @@ public class TableReaderFileTest {
 		testSelectionOfColumns(xlsSelection);
 	}
 
+	@Test
+	public void testSelectionOfColumnsCSVMemoryMapped() throws IOException {
+		testSelectionOfColumns(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people.csv"), columnsSelection, readersSelection, null)
+				.setMemoryMapped(true));
+	}
+
+	@Test
+	public void testParallelIteratorCSV() throws IOException {
+		DelimitedFileReader csv = new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people.csv"), columnsSelection, readersSelection, null);
+
+		Iterator<Object[]> expected = csv.iterator();
+		Iterator<Object[]> actual = csv.parallelIterator(2, true);
+
+		while (expected.hasNext()) {
+			assertArrayEquals(expected.next(), actual.next());
+		}
+		assertEquals(false, actual.hasNext());
+	}
+
+	@Test
+	public void testTokenizerQuotesAndSpaces() throws IOException {
+		File file = writeTemp("a,b,c\r\n"
+				+ "\"x,y\",\"say \"\"hi\"\"\",\"line 1\r\nline 2\nline 3\"\r\n"
+				+ "  spaced  , \"  kept  \" ,  in  side \r\n"
+				+ "ab\"\"c,\"\",\r\n"
+				+ "\"lone\rcr\",\"\"\"\",last");
+
+		// quoted delimiters, doubled quotes and line breaks, which are read
+		// as \n. Unquoted fields are trimmed, quoted fields are not.
+		assertRows(file, null, new String[][] {
+				{ "x,y", "say \"hi\"", "line 1\nline 2\nline 3" },
+				{ "spaced", "  kept  ", "in  side" },
+				{ "ab\"c", "", "" },
+				{ "lone\ncr", "\"", "last" } });
+		assertLineNumbers(file, null, "a", new long[] { 2, 5, 6, 7 });
+	}
+
+	@Test
+	public void testTokenizerEmptyLines() throws IOException {
+		File file = writeTemp("a,b\r\n\r\np,1\n\n\r\r\nq,2\r\n\r\n");
+
+		assertRows(file, null, new String[][] { { "p", "1" }, { "q", "2" } });
+		assertLineNumbers(file, null, "a", new long[] { 3, 7 });
+	}
+
+	@Test
+	public void testTokenizerSettings() throws IOException {
+		DelimiterSettings settings = new DelimiterSettings('\'', ';', "\n");
+		File file = writeTemp("a;b\n'x;y';'it''s'\r\n'multi\nline';\"double\"\n");
+
+		assertRows(file, settings, new String[][] { { "x;y", "it's" },
+				{ "multi\nline", "\"double\"" } });
+		assertLineNumbers(file, settings, "a", new long[] { 2, 3 });
+
+		// a single char end of line ends each record, line breaks don't
+		settings = new DelimiterSettings('"', '\t', "|");
+		file = writeTemp("a\tb|p\t1|q r\t\"2\t3\"|s\nt\t4");
+
+		assertRows(file, settings, new String[][] { { "p", "1" },
+				{ "q r", "2\t3" }, { "s\nt", "4" } });
+	}
+
+	@Test
+	public void testTokenizerUnterminatedQuote() throws IOException {
+		File file = writeTemp("a,b\r\nx,\"open\r\n1,2\r\n");
+
+		for (boolean memoryMapped : new boolean[] { false, true }) {
+			Iterator<Object[]> iterator = new DelimitedFileReader(file)
+					.setMemoryMapped(memoryMapped).iterator();
+
+			try {
+				iterator.next();
+				fail("RuntimeException not generated");
+			} catch (RuntimeException e) {
+				assertEquals(true, e.getMessage().contains(
+						"quoted cell starting on line 2"));
+			}
+		}
+	}
+
+	@Test
+	public void testProjectionSkipsQuotedFields() throws IOException {
+		File file = writeTemp("a,b,c,d\r\n"
+				+ "\"q,1\",\"he said \"\"x,y\"\"\",text 1,\"m\r\nn\"\r\n"
+				+ "\"multi\nline\r\nfield\",ab\"\"c,text 2,\"\"\"\"\r\n"
+				+ "\"\",\"\"\"\r\n\"\"\",text 3,\r\n"
+				+ "plain,\"a,\"\"b\"\",\rc\",text 4,\"d,\r\n\"");
+		String[] header = { "a", "b", "c", "d" };
+		String[][] selections = { { "c" }, { "d", "b" }, { "a", "c" } };
+
+		for (boolean memoryMapped : new boolean[] { false, true }) {
+			List<Object[]> all = readAll(new DelimitedFileReader(file)
+					.setMemoryMapped(memoryMapped));
+			assertArrayEquals(new long[] { 2, 4, 7, 9 }, lineNumbers(file,
+					null, "c", null, memoryMapped));
+
+			for (String[] selection : selections) {
+				List<Object[]> rows = readAll(new DelimitedFileReader(file,
+						selection).setMemoryMapped(memoryMapped));
+				assertEquals(all.size(), rows.size());
+
+				for (int i = 0; i < rows.size(); i++) {
+					for (int j = 0; j < selection.length; j++) {
+						int column = ArrayUtil.indexOfString(header,
+								selection[j], false, 0);
+						assertEquals(all.get(i)[column], rows.get(i)[j]);
+					}
+				}
+
+				for (String column : selection) {
+					assertArrayEquals(lineNumbers(file, null, column, null,
+							memoryMapped), lineNumbers(file, selection,
+							column, null, memoryMapped));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check that all columns of {@code file} are read as {@code expected},
+	 * both through a reader and from a memory mapping.
+	 */
+	private static void assertRows(File file, DelimiterSettings settings,
+			String[][] expected) throws IOException {
+		for (boolean memoryMapped : new boolean[] { false, true }) {
+			List<Object[]> rows = readAll(new DelimitedFileReader(file, null,
+					null, settings).setMemoryMapped(memoryMapped));
+
+			assertEquals(expected.length, rows.size());
+			for (int i = 0; i < expected.length; i++) {
+				assertArrayEquals(expected[i], rows.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Check the line numbers of the rows of {@code file} when reading all
+	 * columns, both through a reader and from a memory mapping.
+	 */
+	private static void assertLineNumbers(File file,
+			DelimiterSettings settings, String column, long[] expected)
+			throws IOException {
+		for (boolean memoryMapped : new boolean[] { false, true }) {
+			assertArrayEquals(expected, lineNumbers(file, null, column,
+					settings, memoryMapped));
+		}
+	}
+
+	/**
+	 * Line number of each row of {@code file}, as reported in the name of
+	 * the cells of {@code column}. The values of {@code column} must not be
+	 * integers.
+	 */
+	private static long[] lineNumbers(File file, String[] columns,
+			String column, DelimiterSettings settings, boolean memoryMapped)
+			throws IOException {
+		String[] names = columns == null ? new DelimitedFileReader(file,
+				null, null, settings).getHeaderRow() : columns;
+		CellReader<?>[] integers = new CellReader<?>[names.length];
+		Arrays.fill(integers, CellReaders.INTEGER);
+
+		DelimitedFileReader csv = new DelimitedFileReader(file, names,
+				integers, settings).setMemoryMapped(memoryMapped);
+		ErrorReport report = new ErrorReport(Integer.MAX_VALUE);
+		RowCursor cursor = csv.cursor(ErrorPolicy.COLLECT, report);
+
+		try {
+			while (cursor.advance()) {
+				// errors are collected
+			}
+		} finally {
+			cursor.close();
+		}
+
+		List<Long> lines = new ArrayList<Long>();
+		for (ErrorReport.CellError error : report.getErrors()) {
+			if (error.getColumn().equals(column)) {
+				String name = error.getCellName();
+				int start = name.indexOf(": line ") + ": line ".length();
+				lines.add(Long.valueOf(name.substring(start, name.indexOf(
+						',', start))));
+			}
+		}
+
+		long[] result = new long[lines.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = lines.get(i);
+		}
+		return result;
+	}
+
+	private static List<Object[]> readAll(AbstractTableReader table) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+
+		for (Object[] row : table) {
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	private static File writeTemp(String content) throws IOException {
+		File file = File.createTempFile("rmt", ".csv");
+		file.deleteOnExit();
+
+		Writer out = new FileWriter(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+
+		return file;
+	}
+
+	@Test
+	public void testParallelIteratorManyChunksCSV() throws IOException {
+		File file = File.createTempFile("rmt", ".csv");
+		int rowCount = 40000;
+		int badRow = rowCount - 10;
+		long badLine = 0;
+
+		// most of each row is a quoted field with line breaks, so most chunk
+		// boundaries are searched for from inside quotes
+		char[] padding = new char[80];
+		Arrays.fill(padding, 'p');
+
+		Writer out = new BufferedWriter(new FileWriter(file));
+		try {
+			long line = 1;
+			out.write("id,text,check\r\n");
+			line++;
+
+			for (int i = 0; i < rowCount; i++) {
+				if (i == badRow) {
+					badLine = line;
+				}
+
+				out.write(i + ",\"row " + i + " has \"\"quotes\"\", commas,\r\n"
+						+ new String(padding) + "\nand line breaks\","
+						+ (i == badRow ? "x" : "0") + "\r\n");
+				line += 3;
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			// chunks are at least 1MB
+			assertEquals(true, file.length() > 4 * 1024 * 1024);
+
+			String[] columns = { "id", "text" };
+			CellReader<?>[] cellReaders = { CellReaders.INTEGER,
+					CellReaders.STRING };
+			DelimitedFileReader csv = new DelimitedFileReader(file, columns,
+					cellReaders, null);
+			List<Object[]> expected = readAll(csv);
+			assertEquals(rowCount, expected.size());
+
+			for (boolean ordered : new boolean[] { true, false }) {
+				List<Object[]> actual = new ArrayList<Object[]>();
+				CloseableIterator<Object[]> iterator = csv.parallelIterator(4,
+						ordered);
+
+				while (iterator.hasNext()) {
+					actual.add(iterator.next());
+				}
+
+				if (!ordered) {
+					Collections.sort(actual, new Comparator<Object[]>() {
+						@Override
+						public int compare(Object[] row1, Object[] row2) {
+							return ((Integer) row1[0])
+									.compareTo((Integer) row2[0]);
+						}
+					});
+				}
+
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertArrayEquals(expected.get(i), actual.get(i));
+				}
+
+				// line numbers continue across chunks
+				DelimitedFileReader check = new DelimitedFileReader(file,
+						new String[] { "check" },
+						new CellReader<?>[] { CellReaders.INTEGER }, null);
+				iterator = check.parallelIterator(4, ordered);
+
+				try {
+					while (iterator.hasNext()) {
+						iterator.next();
+					}
+					fail("RuntimeException not generated");
+				} catch (RuntimeException e) {
+					assertEquals(e.getMessage(), true, e.getMessage()
+							.contains("line " + badLine + ", column \"check\""));
+				} finally {
+					iterator.close();
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCloseIteratorEarly() throws IOException {
+		DelimitedFileReader csv = new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people.csv"), columnsSelection, readersSelection, null);
+
+		testCloseIteratorEarly(csv.iterator());
+		testCloseIteratorEarly(csv.parallelIterator(2, true));
+		testCloseIteratorEarly(xlsSelection.iterator());
+	}
+
+	private void testCloseIteratorEarly(CloseableIterator<Object[]> iterator) {
+		assertEquals(true, iterator.hasNext());
+		iterator.next();
+
+		iterator.close();
+		assertEquals(false, iterator.hasNext());
+
+		// closing again does nothing
+		iterator.close();
+	}
+
+	@Test
+	public void testCursorCSV() throws IOException {
+		testCursor(csvSelection);
+	}
+
+	@Test
+	public void testCursorXLS() throws IOException {
+		testCursor(xlsSelection);
+	}
+
+	private void testCursor(AbstractTableReader table) {
+		Iterator<Object[]> expected = table.iterator();
+		RowCursor cursor = table.cursor();
+
+		assertEquals(columnsSelection.length, cursor.getColumnCount());
+
+		while (expected.hasNext()) {
+			Object[] expectedRow = expected.next();
+			assertEquals(true, cursor.advance());
+
+			for (int i = 0; i < expectedRow.length; i++) {
+				assertEquals(expectedRow[i], cursor.get(i));
+			}
+			assertArrayEquals(expectedRow, cursor.toArray());
+		}
+
+		assertEquals(false, cursor.advance());
+
+		// closed when exhausted
+		cursor.close();
+		assertEquals(false, cursor.advance());
+	}
+
 	public void testSelectionOfColumns(AbstractTableReader xls) throws IOException {
 		
 		assertArrayEquals(columnsSelection, xls.getColumnsRead());
@@ -284,6 +684,602 @@ public class TableReaderFileTest {
 		testMissingValues(csv);
 	}
 
+	@Test
+	public void testCursorMissingValuesCSV() throws IOException  {
+		testCursorMissingValues(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, optionalReaders,
+				null));
+	}
+
+	@Test
+	public void testCursorMissingValuesXLS() throws IOException  {
+		testCursorMissingValues(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, optionalReaders));
+	}
+
+	private void testCursorMissingValues(AbstractTableReader table) {
+		RowCursor cursor = table.cursor();
+
+		try {
+			assertEquals(true, cursor.advance());
+
+			assertEquals(true, cursor.isMissing(0));
+			assertEquals(CellReaders.MISSING_VALUE_INTEGER, cursor.getInt(0));
+			assertEquals(true, cursor.isMissing(3));
+			assertEquals(false, cursor.isMissing(4));
+			assertEquals(Boolean.valueOf(cursor.getBoolean(4)), cursor.get(4));
+		} finally {
+			cursor.close();
+		}
+	}
+
+	@Test
+	public void testCursorChecksMissingOnlyForMissingValue()
+			throws IOException {
+		final int[] checks = new int[1];
+
+		// reads without calling isMissing, so only the cursor's checks count
+		CellReader<?>[] countingReaders = { new OptionalIntegerReader(-1) {
+			@Override
+			public int readInt(Object value) {
+				return MissingValueReader.isMissing(value) ? -1
+						: objectToInt(value);
+			}
+
+			@Override
+			public boolean tryRead(Object value, ReadResult result) {
+				return MissingValueReader.isMissing(value) ? result.setInt(-1)
+						: CellReaders.INTEGER.tryRead(value, result);
+			}
+
+			@Override
+			public boolean isMissing(Object value) {
+				checks[0]++;
+				return super.isMissing(value);
+			}
+		} };
+		DelimitedFileReader table = new DelimitedFileReader(
+				writeTemp("a,b\r\n1,x\r\n,y\r\n-1,z\r\n7,w\r\n"),
+				new String[] { "a" }, countingReaders, null);
+
+		RowCursor[] cursors = { table.cursor(),
+				table.cursor(ErrorPolicy.COLLECT, new ErrorReport(1)) };
+
+		for (RowCursor cursor : cursors) {
+			checks[0] = 0;
+			int[] values = new int[4];
+			boolean[] missing = new boolean[4];
+
+			for (int row = 0; cursor.advance(); row++) {
+				values[row] = cursor.getInt(0);
+				missing[row] = cursor.isMissing(0);
+			}
+
+			assertArrayEquals(new int[] { 1, -1, -1, 7 }, values);
+			assertEquals("[false, true, false, false]", Arrays
+					.toString(missing));
+
+			// only the cells read as the missing value are checked
+			assertEquals(2, checks[0]);
+		}
+	}
+
+	@Test
+	public void testBatchCSV() throws IOException  {
+		testBatch(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, optionalReaders,
+				null));
+	}
+
+	@Test
+	public void testBatchXLS() throws IOException  {
+		testBatch(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, optionalReaders));
+	}
+
+	private void testBatch(AbstractTableReader table) {
+		Iterator<Object[]> expected = table.iterator();
+		ColumnBatch batch = table.newBatch(2);
+		RowCursor cursor = table.cursor();
+
+		try {
+			int rows = 0;
+			int size;
+
+			while ((size = batch.fill(cursor)) > 0) {
+				assertEquals(Math.min(2, 5 - rows), size);
+
+				for (int i = 0; i < size; i++) {
+					Object[] row = expected.next();
+
+					assertEquals(row[0], batch.getInts(0)[i]);
+					assertEquals(row[1], batch.getStrings(1)[i]);
+					assertEquals(row[2], batch.getChars(2)[i]);
+					assertEquals((Double) row[3], batch.getDoubles(3)[i], 0);
+					assertEquals(row[4], batch.getBooleans(4).get(i));
+
+					boolean first = rows == 0 && i == 0;
+					assertEquals(!first, batch.isValid(0, i));
+					assertEquals(true, batch.isValid(1, i));
+					assertEquals(!first, batch.isValid(3, i));
+				}
+
+				rows += size;
+			}
+
+			assertEquals(5, rows);
+			assertEquals(false, expected.hasNext());
+		} finally {
+			cursor.close();
+		}
+
+		try {
+			batch.getDoubles(0);
+			fail("Integer column read as doubles");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testColumnarTableCSV() throws IOException  {
+		testColumnarTable(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, optionalReaders,
+				null));
+	}
+
+	@Test
+	public void testColumnarTableXLS() throws IOException  {
+		testColumnarTable(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, optionalReaders));
+	}
+
+	private void testColumnarTable(AbstractTableReader source) {
+		ColumnarTable table = new ColumnarTable(source);
+
+		assertEquals(5, table.getRowCount());
+		assertArrayEquals(source.getColumnsRead(), table.getColumnsRead());
+		assertArrayEquals(source.getColumnTypes(), table.getColumnTypes());
+
+		Iterator<Object[]> expected = source.iterator();
+		Iterator<Object[]> actual = table.iterator();
+
+		for (int row = 0; row < table.getRowCount(); row++) {
+			Object[] expectedRow = expected.next();
+
+			for (int col = 0; col < expectedRow.length; col++) {
+				assertEquals(expectedRow[col], table.get(row, col));
+			}
+			assertArrayEquals(expectedRow, actual.next());
+
+			assertEquals(expectedRow[0], table.getInt(row, 0));
+			assertEquals(expectedRow[1], table.getString(row, 1));
+			assertEquals(expectedRow[2], table.getChar(row, 2));
+			assertEquals((Double) expectedRow[3], table.getDouble(row, 3), 0);
+			assertEquals(expectedRow[4], table.getBoolean(row, 4));
+			assertEquals(row == 0, table.isMissing(row, 0));
+			assertEquals(row == 0, table.isMissing(row, 3));
+			assertEquals(false, table.isMissing(row, 1));
+		}
+
+		assertEquals(false, expected.hasNext());
+		assertEquals(false, actual.hasNext());
+	}
+
+	@Test
+	public void testSnapshotCacheCSV() throws IOException  {
+		final File source = copyToTemp("xls_people_missing_values.csv");
+
+		testSnapshotCache(source, header, optionalReaders,
+				new SnapshotCache.TableOpener() {
+					@Override
+					public AbstractTableReader open() throws IOException {
+						return new DelimitedFileReader(source, header,
+								optionalReaders, null);
+					}
+				});
+	}
+
+	@Test
+	public void testSnapshotCacheXLS() throws IOException  {
+		final File source = copyToTemp("xls_people.xls");
+
+		// unspecified columns are read as Objects
+		testSnapshotCache(source, null, null,
+				new SnapshotCache.TableOpener() {
+					@Override
+					public AbstractTableReader open() throws IOException {
+						return new ExcelFileReader(source);
+					}
+				});
+	}
+
+	private void testSnapshotCache(File source, String[] columns,
+			CellReader<?>[] readers, final SnapshotCache.TableOpener opener)
+			throws IOException {
+		File directory = new File(source.getPath() + ".cache");
+		SnapshotCache cache = new SnapshotCache(directory);
+		String configuration = SnapshotCache.describe(columns, readers);
+		final int[] opened = new int[1];
+
+		SnapshotCache.TableOpener countingOpener = new SnapshotCache.TableOpener() {
+			@Override
+			public AbstractTableReader open() throws IOException {
+				opened[0]++;
+				return opener.open();
+			}
+		};
+
+		try {
+			ColumnarTable read = cache.load(source, configuration,
+					countingOpener);
+			assertEquals(1, opened[0]);
+			assertEquals(true, cache.getSnapshotFile(source, configuration)
+					.isFile());
+
+			// loaded from the snapshot
+			ColumnarTable loaded = cache.load(source, configuration,
+					countingOpener);
+			assertEquals(1, opened[0]);
+			assertTablesEqual(read, loaded);
+
+			// different configuration
+			cache.load(source, configuration + "2", countingOpener);
+			assertEquals(2, opened[0]);
+
+			// source changed
+			source.setLastModified(source.lastModified() - 10000);
+			assertTablesEqual(read, cache.load(source, configuration,
+					countingOpener));
+			assertEquals(3, opened[0]);
+		} finally {
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+			source.delete();
+		}
+	}
+
+	private void assertTablesEqual(ColumnarTable expected, ColumnarTable actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertArrayEquals(expected.getColumnsRead(), actual.getColumnsRead());
+		assertArrayEquals(expected.getColumnTypes(), actual.getColumnTypes());
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+
+		for (int row = 0; row < expected.getRowCount(); row++) {
+			for (int col = 0; col < expected.getColumnsRead().length; col++) {
+				Object value = expected.get(row, col);
+
+				if (value instanceof Double) {
+					// missing values are NaNs, told apart by their bits
+					assertEquals(Double.doubleToRawLongBits((Double) value),
+							Double.doubleToRawLongBits((Double) actual.get(
+									row, col)));
+				} else {
+					assertEquals(value, actual.get(row, col));
+				}
+				assertEquals(expected.isMissing(row, col), actual.isMissing(
+						row, col));
+			}
+		}
+	}
+
+	private static File copyToTemp(String name) throws IOException {
+		File copy = File.createTempFile("rmt", "-" + name);
+		InputStream in = new FileInputStream(TEST_DIR + name);
+
+		try {
+			OutputStream out = new FileOutputStream(copy);
+
+			try {
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+
+		return copy;
+	}
+
+	@Test
+	public void testLongColumnCSV() throws IOException  {
+		long millis = 1299215167890L;
+		final File file = writeTemp("id,time\r\n1,2011-03-04T05:06:07.890Z\r\n"
+				+ "2,1970-01-01T00:00\r\n");
+		final String[] columns = { "id", "time" };
+		final CellReader<?>[] longReaders = { CellReaders.INTEGER,
+				CellReaders.EPOCH_MILLIS };
+		DelimitedFileReader table = new DelimitedFileReader(file, columns,
+				longReaders, null);
+
+		assertArrayEquals(new Class<?>[] { Integer.class, Long.class }, table
+				.getColumnTypes());
+
+		// read as a primitive long, and integers widened to long
+		RowCursor cursor = table.cursor();
+		try {
+			assertEquals(true, cursor.advance());
+			assertEquals(millis, cursor.getLong(1));
+			assertEquals(Long.valueOf(millis), cursor.get(1));
+			assertEquals(millis, cursor.getDouble(1), 0);
+			assertEquals(1L, cursor.getLong(0));
+			assertEquals(false, cursor.isMissing(1));
+		} finally {
+			cursor.close();
+		}
+
+		ColumnBatch batch = table.newBatch(4);
+		cursor = table.cursor();
+		try {
+			assertEquals(2, batch.fill(cursor));
+			assertEquals(millis, batch.getLongs(1)[0]);
+			assertEquals(0L, batch.getLongs(1)[1]);
+		} finally {
+			cursor.close();
+		}
+
+		ColumnarTable columnar = new ColumnarTable(table);
+		assertEquals(millis, columnar.getLong(0, 1));
+		assertEquals(Long.valueOf(millis), columnar.get(0, 1));
+		assertEquals(2L, columnar.getLong(1, 0));
+
+		try {
+			columnar.getInt(0, 1);
+			fail("Long column read as an int");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		testSnapshotCache(file, columns, longReaders,
+				new SnapshotCache.TableOpener() {
+					@Override
+					public AbstractTableReader open() throws IOException {
+						return new DelimitedFileReader(file, columns,
+								longReaders, null);
+					}
+				});
+	}
+
+	@Test
+	public void testFilterCSV() throws IOException  {
+		testFilter(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, readers, null));
+	}
+
+	@Test
+	public void testFilterXLS() throws IOException  {
+		testFilter(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, readers));
+	}
+
+	private void testFilter(AbstractTableReader table) {
+		RowFilter notMike = new RowFilter() {
+			@Override
+			public boolean accept(RowCursor row) {
+				return !"mike".equals(row.get(1));
+			}
+		};
+
+		// the first row can't be read as it is missing its id and age, but
+		// these are not read if the filter rejects it
+		Iterator<Object[]> iterator = table.iterator(notMike,
+				new String[] { "name" });
+
+		assertArrayEquals(new Object[] { 2, "michael", 'm', 10.0, true },
+				iterator.next());
+		assertEquals(true, iterator.hasNext());
+
+		int rows = 1;
+		while (iterator.hasNext()) {
+			iterator.next();
+			rows++;
+		}
+		assertEquals(4, rows);
+
+		// filter on a converted column
+		RowCursor cursor = new ColumnarTable(csvSpecified).cursor(
+				new RowFilter() {
+					@Override
+					public boolean accept(RowCursor row) {
+						return row.getDouble(3) > 20;
+					}
+				}, new String[] { "age" });
+
+		assertEquals(true, cursor.advance());
+		assertEquals(2, cursor.getInt(0));
+		assertEquals(true, cursor.advance());
+		assertEquals(3, cursor.getInt(0));
+		assertEquals(false, cursor.advance());
+
+		try {
+			table.cursor(notMike, new String[] { "height" });
+			fail("Filter column doesn't exist");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLazyCursorCSV() throws IOException  {
+		testLazyCursor(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, readers, null),
+				"line 2, column \"id\"");
+	}
+
+	@Test
+	public void testLazyCursorXLS() throws IOException  {
+		testLazyCursor(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, readers),
+				"Cell A2");
+	}
+
+	private void testLazyCursor(AbstractTableReader table, String cellName) {
+		RowCursor cursor = table.lazyCursor();
+
+		// the first row is missing its id, which is only read when used
+		assertEquals(true, cursor.advance());
+		assertEquals("mike", cursor.get(1));
+		assertEquals(true, cursor.getBoolean(4));
+
+		try {
+			cursor.getInt(0);
+			fail("Missing id");
+		} catch (RuntimeException e) {
+			assertEquals(true, e.getMessage().startsWith(table.getName()));
+			assertEquals(true, e.getMessage().endsWith(
+					cellName + ": Cannot convert \"\" to integer"));
+		}
+
+		// closed by the error
+		assertEquals(false, cursor.advance());
+
+		Iterator<Object[]> expected = table.iterator(new RowFilter() {
+			@Override
+			public boolean accept(RowCursor row) {
+				return !"mike".equals(row.get(1));
+			}
+		}, new String[] { "name" });
+
+		cursor = table.lazyCursor();
+		cursor.advance();
+		while (cursor.advance()) {
+			Object[] expectedRow = expected.next();
+
+			assertEquals(expectedRow[3], cursor.get(3));
+			assertEquals(expectedRow[3], cursor.get(3));
+			assertArrayEquals(expectedRow, cursor.toArray());
+		}
+		assertEquals(false, expected.hasNext());
+	}
+
+	@Test
+	public void testErrorPolicyCSV() throws IOException  {
+		testErrorPolicy(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv"), header, readers, null),
+				"line 2, column \"id\"");
+	}
+
+	@Test
+	public void testErrorPolicyXLS() throws IOException  {
+		testErrorPolicy(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls"), header, readers),
+				"Cell A2");
+	}
+
+	private void testErrorPolicy(AbstractTableReader table, String cellName)
+			throws IOException {
+		// the first row is missing its id and age
+		Iterator<Object[]> iterator = table.iterator(ErrorPolicy.SKIP_ROW,
+				null);
+
+		assertArrayEquals(new Object[] { 2, "michael", 'm', 10.0, true },
+				iterator.next());
+		int rows = 1;
+		while (iterator.hasNext()) {
+			iterator.next();
+			rows++;
+		}
+		assertEquals(4, rows);
+
+		RowCursor cursor = table.cursor(ErrorPolicy.SUBSTITUTE_MISSING, null);
+		assertEquals(true, cursor.advance());
+		assertEquals(true, cursor.isMissing(0));
+		assertEquals(0, cursor.getInt(0));
+		assertEquals(true, Double.isNaN(cursor.getDouble(3)));
+		assertEquals("mike", cursor.get(1));
+		cursor.close();
+
+		ErrorReport report = new ErrorReport(1);
+		iterator = table.iterator(ErrorPolicy.COLLECT, report);
+		rows = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			rows++;
+		}
+		assertEquals(5, rows);
+
+		assertEquals(2, report.getErrorCount());
+		assertEquals(true, report.isTruncated());
+		ErrorReport.CellError error = report.getErrors().get(0);
+		assertEquals(0, error.getRow());
+		assertEquals("id", error.getColumn());
+		assertEquals("", error.getValue());
+		assertEquals(true, error.getCellName().endsWith(cellName));
+		assertEquals(true, error.getReason() != null);
+
+		try {
+			table.cursor(ErrorPolicy.COLLECT, null);
+			fail("No report");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// missing values of optional readers are substituted
+		AbstractTableReader optional = new DelimitedFileReader(new File(
+				TEST_DIR + "xls_people_missing_values.csv"), header,
+				new CellReader<?>[] { CellReaders.OPTIONAL_INTEGER,
+						CellReaders.STRING, CellReaders.CHARACTER,
+						CellReaders.INTEGER, CellReaders.BOOLEAN }, null);
+		report = new ErrorReport(10);
+		cursor = optional.cursor(ErrorPolicy.COLLECT, report);
+		assertEquals(true, cursor.advance());
+		assertEquals(CellReaders.MISSING_VALUE_INTEGER, cursor.getInt(0));
+		while (cursor.advance()) {
+			assertEquals(false, cursor.isMissing(0));
+		}
+		// ages with a fractional part
+		assertEquals(3, report.getErrorCount());
+		assertEquals(false, report.isTruncated());
+		assertEquals("10.33333333", report.getErrors().get(1).getValue());
+	}
+
+	@Test
+	public void testSchemaInferenceCSV() throws IOException  {
+		testSchemaInference(new DelimitedFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.csv")));
+	}
+
+	@Test
+	public void testSchemaInferenceXLS() throws IOException  {
+		testSchemaInference(new ExcelFileReader(new File(TEST_DIR
+				+ "xls_people_missing_values.xls")));
+	}
+
+	private void testSchemaInference(AbstractTableReader raw) {
+		assertArrayEquals(optionalReaders,
+				new SchemaInference(100).inferReaders(raw));
+
+		// the first row is missing its id and age
+		assertArrayEquals(new CellReader<?>[] {
+				CellReaders.OPTIONAL_INTEGER, CellReaders.STRING,
+				CellReaders.CHARACTER, CellReaders.OPTIONAL_INTEGER,
+				CellReaders.BOOLEAN }, new SchemaInference(1)
+				.inferReaders(raw));
+
+		// a sample of every row is the whole table
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			assertArrayEquals(optionalReaders, new SchemaInference(5)
+					.setReservoirSampling(new Random(1)).setExecutor(executor)
+					.inferReaders(raw));
+			assertEquals(false, executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+
+		assertArrayEquals(new Class<?>[] { Integer.class, String.class,
+				Character.class, Double.class, Boolean.class },
+				new SchemaInference(2).setReservoirSampling(new Random(1))
+						.inferTypes(raw));
+	}
+
 	public void testMissingValues(AbstractTableReader xls) throws IOException  {
 		Iterator<Object[]> iterator = xls.iterator();
 		Object[] readRow1 = iterator.next();
@@ -326,4 +1322,152 @@ public class TableReaderFileTest {
 		
 	}
 
+	@Test
+	public void testStreamingXLSX() throws IOException  {
+		File xlsx = toXLSX("xls_people.xls");
+
+		testSameRows(new ExcelFileReader(xlsx), new StreamingExcelFileReader(
+				xlsx));
+		testSameRows(new ExcelFileReader(xlsx, header, readers),
+				new StreamingExcelFileReader(xlsx, header, readers));
+
+		AbstractTableReader selection = new StreamingExcelFileReader(xlsx,
+				columnsSelection, readersSelection);
+		testSelectionOfColumns(selection);
+		testCursor(selection);
+		testDoubleField3(new StreamingExcelFileReader(xlsx, header, readers));
+	}
+
+	@Test
+	public void testStreamingXLSXMissingValues() throws IOException  {
+		File xlsx = toXLSX("xls_people_missing_values.xls");
+
+		testSameRows(new ExcelFileReader(xlsx, header, optionalReaders),
+				new StreamingExcelFileReader(xlsx, header, optionalReaders));
+		testMissingValues(new StreamingExcelFileReader(xlsx, header,
+				optionalReaders));
+		testCursorMissingValues(new StreamingExcelFileReader(xlsx, header,
+				optionalReaders));
+	}
+
+	@Test
+	public void testStreamingXLSXBlank() {
+		try {
+			new StreamingExcelFileReader(new File(TEST_DIR + "blank.xlsx"));
+			fail("IOException not genereated");
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testStreamingXLSXCursorFails() throws IOException  {
+		File xlsx = toXLSX("xls_people.xls");
+		AbstractTableReader table = new StreamingExcelFileReader(xlsx);
+
+		// replace the sheet with one that ends part way through the header
+		File broken = File.createTempFile("rmt", "-broken.xlsx");
+		ZipInputStream in = new ZipInputStream(new FileInputStream(xlsx));
+		try {
+			ZipOutputStream out = new ZipOutputStream(new FileOutputStream(
+					broken));
+			try {
+				ZipEntry entry;
+				while ((entry = in.getNextEntry()) != null) {
+					out.putNextEntry(new ZipEntry(entry.getName()));
+
+					if (entry.getName().startsWith("xl/worksheets/")) {
+						out.write("<worksheet><sheetData><row r=\"1\"><c"
+								.getBytes("UTF-8"));
+					} else {
+						byte[] buffer = new byte[4096];
+						int read;
+						while ((read = in.read(buffer)) > 0) {
+							out.write(buffer, 0, read);
+						}
+					}
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+
+		assertEquals(true, xlsx.delete());
+		assertEquals(true, broken.renameTo(xlsx));
+
+		try {
+			table.cursor();
+			fail("RuntimeException not generated");
+		} catch (RuntimeException e) {
+			System.out.println(e.getMessage());
+		}
+
+		// the file is released
+		assertEquals(true, xlsx.delete());
+	}
+
+	private static void testSameRows(AbstractTableReader expected,
+			AbstractTableReader actual) {
+		assertArrayEquals(expected.getColumnsRead(), actual.getColumnsRead());
+
+		Iterator<Object[]> expectedRows = expected.iterator();
+		Iterator<Object[]> actualRows = actual.iterator();
+
+		while (expectedRows.hasNext()) {
+			assertEquals(true, actualRows.hasNext());
+			assertArrayEquals(expectedRows.next(), actualRows.next());
+		}
+		assertEquals(false, actualRows.hasNext());
+	}
+
+	/**
+	 * Save the first sheet of an XLS file as a temporary XLSX file.
+	 */
+	private static File toXLSX(String name) throws IOException {
+		Workbook xls;
+		InputStream in = new FileInputStream(TEST_DIR + name);
+
+		try {
+			xls = WorkbookFactory.create(in);
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+
+		Workbook xlsx = new XSSFWorkbook();
+		Sheet sheet = xlsx.createSheet(xls.getSheetAt(0).getSheetName());
+
+		for (Row row : xls.getSheetAt(0)) {
+			Row copy = sheet.createRow(row.getRowNum());
+
+			for (Cell cell : row) {
+				Object value = ExcelFileReader.getExcelCellValue(cell);
+				Cell cellCopy = copy.createCell(cell.getColumnIndex());
+
+				if (value instanceof Double) {
+					cellCopy.setCellValue((Double) value);
+				} else if (value instanceof Boolean) {
+					cellCopy.setCellValue((Boolean) value);
+				} else if (!"".equals(value)) {
+					cellCopy.setCellValue(value.toString());
+				}
+			}
+		}
+
+		File file = File.createTempFile("rmt", "-" + name + "x");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+
+		try {
+			xlsx.write(out);
+		} finally {
+			out.close();
+		}
+
+		return file;
+	}
+
 }
@@ -0,0 +1,71 @@
+package org.omancode.rmt.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.omancode.rmt.cellreader.TokenMatcher;
+import org.omancode.rmt.cellreader.TokenReader;
+
+public class TokenMatcherTest {
+
+	private static final String[] TOKENS = { "NA", "n/a", "", "-", "NA",
+			null, "missing" };
+
+	@Test
+	public void testExact() {
+		TokenMatcher matcher = new TokenMatcher(TOKENS, false, false);
+
+		assertEquals(0, matcher.indexOf("NA"));
+		assertEquals(1, matcher.indexOf(new StringBuilder("n/a")));
+		assertEquals(2, matcher.indexOf(""));
+		assertEquals(6, matcher.indexOf("missing"));
+		assertEquals(3, matcher.indexOf("x-y", 1, 2));
+
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf("na"));
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf(" NA"));
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf("NAN"));
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf("null"));
+	}
+
+	@Test
+	public void testIgnoreCaseAndTrim() {
+		TokenMatcher matcher = new TokenMatcher(TOKENS, true, true);
+
+		assertEquals(0, matcher.indexOf(" na "));
+		assertEquals(1, matcher.indexOf("N/A\t"));
+		assertEquals(2, matcher.indexOf("   "));
+		assertEquals(6, matcher.indexOf("MISSING"));
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf("miss ing"));
+	}
+
+	@Test
+	public void testManyTokens() {
+		String[] tokens = new String[1000];
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = "token" + i;
+		}
+
+		TokenMatcher matcher = new TokenMatcher(tokens, true, false);
+
+		for (int i = 0; i < tokens.length; i++) {
+			assertEquals(i, matcher.indexOf(tokens[i].toUpperCase()));
+		}
+		assertEquals(TokenMatcher.NOT_FOUND, matcher.indexOf("token1000"));
+		assertEquals(true, matcher.contains("Token999"));
+	}
+
+	@Test
+	public void testTokenReader() {
+		TokenReader single = new TokenReader("-", "");
+		assertEquals("", single.call("-"));
+		assertEquals("x", single.call("x"));
+
+		TokenReader reader = new TokenReader(new String[] { "NA", "-" }, "",
+				true, true);
+		assertEquals("", reader.call(" na "));
+		assertEquals("", reader.call(new StringBuilder("-")));
+		assertEquals("1", reader.call("1"));
+		assertEquals(5, reader.call(5));
+	}
+
+}
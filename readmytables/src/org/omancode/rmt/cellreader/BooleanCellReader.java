@@ -0,0 +1,21 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} of booleans that can return its result as a
+ * {@code boolean}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface BooleanCellReader extends PrimitiveCellReader<Boolean> {
+
+	/**
+	 * Reads the passed Object value and converts it to a {@code boolean}.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @return the result of conversion
+	 */
+	boolean readBoolean(Object value);
+
+}
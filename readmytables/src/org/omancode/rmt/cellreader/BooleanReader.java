@@ -10,13 +10,20 @@ import org.omancode.util.ArrayUtil;
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class BooleanReader implements CellReader<Boolean> {
+public class BooleanReader implements BooleanCellReader,
+		CharSequenceCellReader<Boolean>, TryCellReader<Boolean>,
+		SpecialisableCellReader<Boolean> {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = 2542403746336985674L;
 
+	private static final String NULL = "Null object cannot be converted to Boolean";
+	private static final String NOT_A_BOOLEAN = "Not a boolean value";
+	private static final String NOT_0_OR_1 = "Number is not 0 or 1";
+	private static final String WRONG_TYPE = "Type cannot be converted to Boolean";
+
 	private static final String[] DEFAULT_TRUE_VALUES = new String[] { "1",
 			"1.0", "true", "t", "yes", "y" };
 
@@ -26,6 +33,12 @@ public class BooleanReader implements CellReader<Boolean> {
 	private final String[] trueValues;
 	private final String[] falseValues;
 
+	/**
+	 * Matches the false values followed by the true values, ignoring case
+	 * and surrounding whitespace.
+	 */
+	private final TokenMatcher matcher;
+
 	/**
 	 * Construct with default true and false values.
 	 */
@@ -42,9 +55,7 @@ public class BooleanReader implements CellReader<Boolean> {
 	 *            string false value
 	 */
 	public BooleanReader(final String trueValue, final String falseValue) {
-		super();
-		this.trueValues = new String[] { trueValue };
-		this.falseValues = new String[] { falseValue };
+		this(new String[] { trueValue }, new String[] { falseValue });
 	}
 
 	/**
@@ -59,24 +70,43 @@ public class BooleanReader implements CellReader<Boolean> {
 		super();
 		this.trueValues = trueValues.clone();
 		this.falseValues = falseValues.clone();
+
+		String[] values = new String[falseValues.length + trueValues.length];
+		System.arraycopy(falseValues, 0, values, 0, falseValues.length);
+		System.arraycopy(trueValues, 0, values, falseValues.length,
+				trueValues.length);
+		this.matcher = new TokenMatcher(values, true, true);
 	}
 
 	/**
-	 * Convert String to Boolean.
+	 * Convert String to Boolean. Leading and trailing whitespace is ignored,
+	 * and the true and false values are matched ignoring case.
 	 * 
 	 * @param value
 	 *            string to convert.
 	 * @return Boolean
 	 */
 	public Boolean stringToBoolean(String value) {
+		return charSequenceToBoolean(value);
+	}
 
-		if (ArrayUtil.indexOfString(falseValues, value) != ArrayUtil.INDEX_NOT_FOUND) {
-			return false;
-		} else if (ArrayUtil.indexOfString(trueValues, value) != ArrayUtil.INDEX_NOT_FOUND) {
-			return true;
+	/**
+	 * Convert text to Boolean without creating a String. Leading and
+	 * trailing whitespace is ignored, and the true and false values are
+	 * matched ignoring case.
+	 * 
+	 * @param value
+	 *            text to convert.
+	 * @return Boolean
+	 */
+	public Boolean charSequenceToBoolean(CharSequence value) {
+		int index = matcher.indexOf(value);
+
+		if (index != TokenMatcher.NOT_FOUND) {
+			return index >= falseValues.length;
 		}
 
-		throw new CellReaderException("String [" + value
+		throw new CellReaderException("String [" + value.toString().trim()
 				+ "] is not a boolean value (ie: "
 				+ ArrayUtil.toString(falseValues) + ", "
 				+ ArrayUtil.toString(trueValues) + ")");
@@ -124,12 +154,12 @@ public class BooleanReader implements CellReader<Boolean> {
 			return numberToBoolean((Number) value);
 		}
 
-		if (value instanceof String) {
-			return stringToBoolean(value.toString().trim());
+		if (value instanceof CharSequence) {
+			return charSequenceToBoolean((CharSequence) value);
 		}
 
 		if (value instanceof Character) {
-			return stringToBoolean(value.toString());
+			return charSequenceToBoolean(value.toString());
 		}
 
 		throw new CellReaderException("Object [" + value.toString()
@@ -137,6 +167,79 @@ public class BooleanReader implements CellReader<Boolean> {
 				+ " cannot be converted to Boolean");
 	}
 
+	/**
+	 * Convert Object to Boolean without throwing an exception.
+	 * 
+	 * @param value
+	 *            Object to convert.
+	 * @param result
+	 *            holder for the {@code boolean}, or the reason it cannot be
+	 *            converted
+	 * @return {@code true} if converted
+	 */
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		if (value == null) {
+			return result.fail(NULL);
+		}
+
+		if (value instanceof Boolean) {
+			return result.setBoolean(((Boolean) value).booleanValue());
+		}
+
+		if (value instanceof Number) {
+			String valueAsString = value.toString();
+
+			if ("0".equals(valueAsString) || "0.0".equals(valueAsString)) {
+				return result.setBoolean(false);
+			} else if ("1".equals(valueAsString)
+					|| "1.0".equals(valueAsString)) {
+				return result.setBoolean(true);
+			}
+
+			return result.fail(NOT_0_OR_1);
+		}
+
+		if (value instanceof CharSequence || value instanceof Character) {
+			CharSequence text = value instanceof Character ? value
+					.toString() : (CharSequence) value;
+			int index = matcher.indexOf(text);
+
+			if (index != TokenMatcher.NOT_FOUND) {
+				return result.setBoolean(index >= falseValues.length);
+			}
+
+			return result.fail(NOT_A_BOOLEAN);
+		}
+
+		return result.fail(WRONG_TYPE);
+	}
+
+	/**
+	 * Return a variant of this reader specialised for text cells or
+	 * {@link Double} cells. Subclasses are not specialised, as they may
+	 * override the conversions.
+	 * 
+	 * @param cellType
+	 *            type of the cells to be read
+	 * @return specialised reader, or this reader
+	 */
+	@Override
+	public BooleanReader specialise(Class<?> cellType) {
+		if (getClass() != BooleanReader.class) {
+			return this;
+		}
+
+		if (CharSequence.class.isAssignableFrom(cellType)) {
+			return new TextBooleanReader(this);
+		}
+		if (cellType == Double.class) {
+			return new DoubleCellBooleanReader(this);
+		}
+
+		return this;
+	}
+
 	@Override
 	public Class<Boolean> getResultType() {
 		return Boolean.class;
@@ -147,4 +250,106 @@ public class BooleanReader implements CellReader<Boolean> {
 		return objectToBoolean(value);
 	}
 
-}
\ No newline at end of file
+	@Override
+	public Boolean call(CharSequence value) {
+		return objectToBoolean(value);
+	}
+
+	@Override
+	public boolean readBoolean(Object value) {
+		// Boolean values are cached, so unboxing the result allocates nothing
+		return objectToBoolean(value);
+	}
+
+	/**
+	 * Missing values cannot be converted to boolean, so are never read as
+	 * missing.
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isMissing(Object value) {
+		return false;
+	}
+
+	/**
+	 * {@link BooleanReader} specialised for text cells. Other values are read
+	 * by the reader it specialises.
+	 */
+	private static final class TextBooleanReader extends BooleanReader {
+
+		private final BooleanReader reader;
+
+		TextBooleanReader(BooleanReader reader) {
+			super(reader.trueValues, reader.falseValues);
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean readBoolean(Object value) {
+			if (value instanceof CharSequence) {
+				return reader.charSequenceToBoolean((CharSequence) value);
+			}
+
+			return reader.readBoolean(value);
+		}
+
+		@Override
+		public Boolean call(Object value) {
+			return readBoolean(value);
+		}
+
+		@Override
+		public Boolean call(CharSequence value) {
+			return readBoolean(value);
+		}
+
+		@Override
+		public BooleanReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
+	/**
+	 * {@link BooleanReader} specialised for {@link Double} cells. Other
+	 * values are read by the reader it specialises.
+	 */
+	private static final class DoubleCellBooleanReader extends BooleanReader {
+
+		private final BooleanReader reader;
+
+		DoubleCellBooleanReader(BooleanReader reader) {
+			super(reader.trueValues, reader.falseValues);
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean readBoolean(Object value) {
+			if (value instanceof Double) {
+				double number = ((Double) value).doubleValue();
+
+				// the numbers whose String is "0.0" or "1.0"
+				if (Double.doubleToRawLongBits(number) == 0L) {
+					return false;
+				} else if (number == 1) {
+					return true;
+				}
+			}
+
+			return reader.readBoolean(value);
+		}
+
+		@Override
+		public Boolean call(Object value) {
+			return readBoolean(value);
+		}
+
+		@Override
+		public BooleanReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} that can read text from any {@link CharSequence}, so
+ * that cells can be read without first creating a String, eg: straight from
+ * the buffer of a file tokenizer.
+ * <p>
+ * The {@link CharSequence} passed may be a view over a reused buffer, which
+ * is only valid for the duration of the call. Implementations must not keep
+ * a reference to it. The same applies to the primitive read methods of
+ * readers that are also a {@link PrimitiveCellReader}, eg:
+ * {@link IntCellReader#readInt(Object)}, and to
+ * {@link PrimitiveCellReader#isMissing(Object)}, which are passed the view
+ * as their Object value.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ * 
+ * @param <R>
+ *            type of value returned
+ */
+public interface CharSequenceCellReader<R> extends CellReader<R> {
+
+	/**
+	 * Reads the passed text and converts it. Gives the same result as
+	 * {@link #call(Object)} would for the String of the text.
+	 * 
+	 * @param value
+	 *            the text to convert
+	 * @return the result of conversion
+	 */
+	R call(CharSequence value);
+
+}
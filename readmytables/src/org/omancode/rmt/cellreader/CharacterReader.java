@@ -9,14 +9,17 @@ package org.omancode.rmt.cellreader;
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class CharacterReader implements
-		CellReader<Character> {
+public class CharacterReader implements CellReader<Character>,
+		CharSequenceCellReader<Character>, TryCellReader<Character> {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = -8349039119392596406L;
 
+	private static final String NULL = "Null object cannot be converted to Character";
+	private static final String WRONG_TYPE = "Type cannot be converted to Character";
+
 	/**
 	 * Convert an object to a Character without loss of fidelity.
 	 * 
@@ -35,11 +38,11 @@ public class CharacterReader implements
 			return (Character) value;
 		}
 
-		if (value instanceof String) {
-			String valueAsString = (String) value;
-			// if String of length 1, can be char
-			if (valueAsString.length() == 1) {
-				return Character.valueOf(valueAsString.charAt(0));
+		if (value instanceof CharSequence) {
+			CharSequence valueAsText = (CharSequence) value;
+			// if text of length 1, can be char
+			if (valueAsText.length() == 1) {
+				return Character.valueOf(valueAsText.charAt(0));
 			}
 		}
 
@@ -48,6 +51,25 @@ public class CharacterReader implements
 				+ " cannot be converted to Character");
 	}
 
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		if (value == null) {
+			return result.fail(NULL);
+		}
+
+		if (value instanceof Character) {
+			return result.setValue(value);
+		}
+
+		if (value instanceof CharSequence
+				&& ((CharSequence) value).length() == 1) {
+			return result.setValue(Character.valueOf(((CharSequence) value)
+					.charAt(0)));
+		}
+
+		return result.fail(WRONG_TYPE);
+	}
+
 	@Override
 	public Class<Character> getResultType() {
 		return Character.class;
@@ -58,4 +80,9 @@ public class CharacterReader implements
 		return objectToCharacter(value);
 	}
 
+	@Override
+	public Character call(CharSequence value) {
+		return objectToCharacter(value);
+	}
+
 }
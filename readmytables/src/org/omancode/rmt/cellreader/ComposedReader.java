@@ -0,0 +1,62 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * The composition of two cell readers, ie: {@code h(x) = f(g(x))}. Created by
+ * {@link CellReaders#compose(CellReader, CellReader)} when the readers cannot
+ * be fused. Keeps both readers so that a chain of compositions can be fused
+ * in any order.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ * 
+ * @param <F>
+ *            type returned by cell reader {@code f}
+ */
+final class ComposedReader<F> implements CellReader<F> {
+
+	private final CellReader<F> f;
+
+	private final CellReader<?> g;
+
+	/**
+	 * Construct the composition of {@code f} with {@code g}.
+	 * 
+	 * @param f
+	 *            reader applied second
+	 * @param g
+	 *            reader applied first
+	 */
+	ComposedReader(CellReader<F> f, CellReader<?> g) {
+		this.f = f;
+		this.g = g;
+	}
+
+	/**
+	 * Reader applied second.
+	 * 
+	 * @return f
+	 */
+	CellReader<F> getOuter() {
+		return f;
+	}
+
+	/**
+	 * Reader applied first.
+	 * 
+	 * @return g
+	 */
+	CellReader<?> getInner() {
+		return g;
+	}
+
+	@Override
+	public F call(Object param) {
+		return f.call(g.call(param));
+	}
+
+	@Override
+	public Class<F> getResultType() {
+		return f.getResultType();
+	}
+
+}
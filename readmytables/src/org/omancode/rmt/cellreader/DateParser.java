@@ -0,0 +1,425 @@
+package org.omancode.rmt.cellreader;
+
+import java.util.TimeZone;
+
+/**
+ * Parses dates and date-times directly from their digits, without creating
+ * any objects. Handles the common layouts:
+ * <ul>
+ * <li>ISO-8601 dates, ie: {@code yyyy-MM-dd}</li>
+ * <li>day first dates, ie: {@code dd/MM/yyyy} (the day and month may be a
+ * single digit)</li>
+ * <li>either date followed by a time, ie: {@code HH:mm}, {@code HH:mm:ss} or
+ * {@code HH:mm:ss.SSS} (with up to 9 fractional digits), separated from the
+ * date by {@code 'T'} or a space</li>
+ * <li>an ISO-8601 date and time followed by a zone offset, ie: {@code Z},
+ * {@code +HH:mm}, {@code +HHmm} or {@code +HH}</li>
+ * </ul>
+ * Whitespace around the text is ignored, as by {@link String#trim()}.
+ * Anything else, or a date that does not exist (eg: {@code 2011-02-29}), is
+ * reported as {@link #NOT_PARSED} so that the caller can fall back to a
+ * {@link java.text.DateFormat}.
+ * <p>
+ * Dates are in the proleptic Gregorian calendar, with years from 0000 to
+ * 9999.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class DateParser {
+
+	/**
+	 * Returned when the chars are not a date in one of the layouts handled.
+	 */
+	public static final long NOT_PARSED = Long.MIN_VALUE;
+
+	/**
+	 * Milliseconds in a day.
+	 */
+	public static final long MILLIS_PER_DAY = 86400000L;
+
+	/**
+	 * Excel serial date of 1970-01-01.
+	 */
+	public static final int EXCEL_SERIAL_1970 = 25569;
+
+	/**
+	 * Days from 0000-01-01 to 1970-01-01.
+	 */
+	private static final long DAYS_0000_TO_1970 = 719528L;
+
+	private static final int MILLIS_PER_MINUTE = 60000;
+
+	private static final int MILLIS_PER_HOUR = 3600000;
+
+	/**
+	 * Excel serial date-time after 9999-12-31T23:59:59.999.
+	 */
+	private static final double MAX_EXCEL_SERIAL = 2958466;
+
+	/**
+	 * Excel serial date of 1900-03-01, the day after Excel's fictitious
+	 * 1900-02-29 (serial 60).
+	 */
+	private static final int EXCEL_SERIAL_1900_03_01 = 61;
+
+	private DateParser() {
+		// static class, no instantiation
+	}
+
+	/**
+	 * Parse {@code chars} as a date, without a time.
+	 *
+	 * @param chars
+	 *            chars to parse
+	 * @return days since 1970-01-01, or {@link #NOT_PARSED}
+	 */
+	public static long parseEpochDay(CharSequence chars) {
+		int start = 0;
+		int end = chars.length();
+
+		while (start < end && chars.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && chars.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		long packed = parseDate(chars, start, end);
+
+		// the whole text must be the date
+		return packed == NOT_PARSED || (int) packed != end ? NOT_PARSED
+				: packed >> 32;
+	}
+
+	/**
+	 * Parse {@code chars} as a date, or a date and time.
+	 *
+	 * @param chars
+	 *            chars to parse
+	 * @param zone
+	 *            time zone of a date-time without a zone offset
+	 * @return milliseconds since 1970-01-01T00:00Z, or {@link #NOT_PARSED}
+	 */
+	public static long parseEpochMillis(CharSequence chars, TimeZone zone) {
+		int start = 0;
+		int end = chars.length();
+
+		while (start < end && chars.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && chars.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		long packed = parseDate(chars, start, end);
+
+		if (packed == NOT_PARSED) {
+			return NOT_PARSED;
+		}
+
+		long millis = (packed >> 32) * MILLIS_PER_DAY;
+		int i = (int) packed;
+
+		if (i == end) {
+			return toUTC(millis, zone);
+		}
+
+		// time, separated from the date by 'T' or a space
+		char separator = chars.charAt(i);
+		if ((separator != 'T' && separator != ' ') || end - i < 6) {
+			return NOT_PARSED;
+		}
+
+		int hour = twoDigits(chars, i + 1);
+		int minute = twoDigits(chars, i + 4);
+
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59
+				|| chars.charAt(i + 3) != ':') {
+			return NOT_PARSED;
+		}
+
+		millis += hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE;
+		i += 6;
+
+		if (i < end && chars.charAt(i) == ':') {
+			int second = i + 3 <= end ? twoDigits(chars, i + 1) : -1;
+
+			if (second < 0 || second > 59) {
+				return NOT_PARSED;
+			}
+
+			millis += second * 1000;
+			i += 3;
+
+			if (i < end && chars.charAt(i) == '.') {
+				int digits = 0;
+				int fraction = 0;
+
+				for (i++; i < end && isDigit(chars.charAt(i)); i++) {
+					// only the milliseconds are kept
+					if (digits < 3) {
+						fraction = fraction * 10 + chars.charAt(i) - '0';
+					}
+					digits++;
+				}
+
+				if (digits == 0 || digits > 9) {
+					return NOT_PARSED;
+				}
+
+				for (; digits < 3; digits++) {
+					fraction *= 10;
+				}
+
+				millis += fraction;
+			}
+		}
+
+		if (i == end) {
+			return toUTC(millis, zone);
+		}
+
+		// zone offset, only after an ISO date
+		if (chars.charAt(start + 4) != '-') {
+			return NOT_PARSED;
+		}
+
+		if (chars.charAt(i) == 'Z' && i + 1 == end) {
+			return millis;
+		}
+
+		int offset = parseOffset(chars, i, end);
+
+		return offset == Integer.MIN_VALUE ? NOT_PARSED : millis - offset;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+	 *
+	 * @param year
+	 *            year, from 0
+	 * @param month
+	 *            month of the year, from 1 to 12
+	 * @param day
+	 *            day of the month, from 1
+	 * @return days since 1970-01-01
+	 */
+	public static long epochDay(int year, int month, int day) {
+		long y = year;
+		long total = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+
+		total += (367 * month - 362) / 12;
+		total += day - 1;
+
+		if (month > 2) {
+			total -= isLeapYear(year) ? 1 : 2;
+		}
+
+		return total - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * Is {@code year} a leap year in the Gregorian calendar?
+	 *
+	 * @param year
+	 *            year
+	 * @return {@code true} if a leap year
+	 */
+	public static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * Parse the date at the start of a range of {@code chars}.
+	 *
+	 * @return the epoch day in the high 32 bits, and the index after the date
+	 *         in the low 32 bits, or {@link #NOT_PARSED}
+	 */
+	private static long parseDate(CharSequence chars, int start, int end) {
+		int year;
+		int month;
+		int day;
+		int i;
+
+		if (end - start >= 10 && chars.charAt(start + 4) == '-') {
+			// yyyy-MM-dd
+			year = fourDigits(chars, start);
+			month = twoDigits(chars, start + 5);
+			day = twoDigits(chars, start + 8);
+
+			if (chars.charAt(start + 7) != '-') {
+				return NOT_PARSED;
+			}
+
+			i = start + 10;
+		} else {
+			// d/M/yyyy, with one or two digit day and month
+			i = start;
+
+			day = digitsBefore(chars, i, end, '/');
+			if (day < 0) {
+				return NOT_PARSED;
+			}
+			i += chars.charAt(i + 1) == '/' ? 2 : 3;
+
+			month = digitsBefore(chars, i, end, '/');
+			if (month < 0) {
+				return NOT_PARSED;
+			}
+			i += chars.charAt(i + 1) == '/' ? 2 : 3;
+
+			year = i + 4 <= end ? fourDigits(chars, i) : -1;
+			i += 4;
+		}
+
+		if (year < 0 || month < 1 || month > 12 || day < 1
+				|| day > daysInMonth(year, month)) {
+			return NOT_PARSED;
+		}
+
+		// a date must not be followed by more digits
+		if (i < end && isDigit(chars.charAt(i))) {
+			return NOT_PARSED;
+		}
+
+		return (epochDay(year, month, day) << 32) | i;
+	}
+
+	/**
+	 * Convert milliseconds of a local date-time to UTC.
+	 *
+	 * @param localMillis
+	 *            milliseconds since 1970-01-01T00:00 in {@code zone}
+	 * @param zone
+	 *            time zone
+	 * @return milliseconds since 1970-01-01T00:00Z
+	 */
+	static long toUTC(long localMillis, TimeZone zone) {
+		int offset = zone.getOffset(localMillis - zone.getRawOffset());
+		long utc = localMillis - offset;
+		int actual = zone.getOffset(utc);
+
+		// the offset near a daylight saving change
+		return actual == offset ? utc : localMillis - actual;
+	}
+
+	/**
+	 * Is {@code serial} an Excel serial date-time, ie: from serial 0 (Excel's
+	 * 1900-01-00) to 9999-12-31T23:59:59.999? Used by the epoch readers, so
+	 * both accept the same serials.
+	 *
+	 * @param serial
+	 *            number to check
+	 * @return {@code true} if in range
+	 */
+	static boolean isExcelSerial(double serial) {
+		return serial >= 0 && serial < MAX_EXCEL_SERIAL;
+	}
+
+	/**
+	 * Convert an Excel serial date-time to days since 1970-01-01. Excel
+	 * treats 1900 as a leap year, so serials before 1900-03-01 are moved on
+	 * a day, as POI's {@code DateUtil} does. Serial 60 (1900-02-29) is read
+	 * as 1900-03-01.
+	 *
+	 * @param serial
+	 *            Excel serial date-time, see {@link #isExcelSerial(double)}
+	 * @return days, with the time of day as a fraction
+	 */
+	static double excelSerialToEpochDays(double serial) {
+		double days = serial - EXCEL_SERIAL_1970;
+
+		return serial < EXCEL_SERIAL_1900_03_01 ? days + 1 : days;
+	}
+
+	/**
+	 * Parse a zone offset, ie: {@code +HH:mm}, {@code +HHmm} or {@code +HH}.
+	 *
+	 * @return offset in milliseconds, or {@link Integer#MIN_VALUE}
+	 */
+	private static int parseOffset(CharSequence chars, int i, int end) {
+		char sign = chars.charAt(i);
+		int length = end - i;
+
+		if ((sign != '+' && sign != '-')
+				|| (length != 3 && length != 5 && length != 6)) {
+			return Integer.MIN_VALUE;
+		}
+
+		int hours = twoDigits(chars, i + 1);
+		int minutes = 0;
+
+		if (length == 5) {
+			minutes = twoDigits(chars, i + 3);
+		} else if (length == 6) {
+			minutes = chars.charAt(i + 3) == ':' ? twoDigits(chars, i + 4)
+					: -1;
+		}
+
+		if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+			return Integer.MIN_VALUE;
+		}
+
+		int offset = hours * MILLIS_PER_HOUR + minutes * MILLIS_PER_MINUTE;
+
+		return sign == '-' ? -offset : offset;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			return isLeapYear(year) ? 29 : 28;
+		}
+
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30
+				: 31;
+	}
+
+	/**
+	 * One or two digits followed by {@code separator}.
+	 *
+	 * @return value, or -1
+	 */
+	private static int digitsBefore(CharSequence chars, int i, int end,
+			char separator) {
+		if (i + 1 < end && isDigit(chars.charAt(i))
+				&& chars.charAt(i + 1) == separator) {
+			return chars.charAt(i) - '0';
+		}
+
+		if (i + 2 < end && chars.charAt(i + 2) == separator) {
+			return twoDigits(chars, i);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return value, or -1 if not two digits
+	 */
+	private static int twoDigits(CharSequence chars, int i) {
+		char c1 = chars.charAt(i);
+		char c2 = chars.charAt(i + 1);
+
+		if (!isDigit(c1) || !isDigit(c2)) {
+			return -1;
+		}
+
+		return (c1 - '0') * 10 + c2 - '0';
+	}
+
+	/**
+	 * @return value, or -1 if not four digits
+	 */
+	private static int fourDigits(CharSequence chars, int i) {
+		int high = twoDigits(chars, i);
+		int low = twoDigits(chars, i + 2);
+
+		return high < 0 || low < 0 ? -1 : high * 100 + low;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
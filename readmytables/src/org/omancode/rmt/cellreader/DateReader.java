@@ -8,13 +8,18 @@ import java.util.Date;
  * Converts an object to a Date without loss of fidelity. Throws
  * {@link CellReaderException} if the object cannot be converted without loss of
  * fidelity.
+ * <p>
+ * Text is parsed with a copy of the {@link DateFormat} for each thread, so a
+ * reader may be shared between threads. To read dates without creating a
+ * {@link Date} for each cell, see {@link EpochDayReader} and
+ * {@link EpochMillisReader}.
  * 
  * @author Oliver Mannion
  * @version $Revision$
  */
 public class DateReader implements CellReader<Date> {
 
-	private final DateFormat dateFormat;
+	private final ThreadLocalDateFormat dateFormat;
 
 	/**
 	 * Construct {@link DateReader} with default formatting style for the
@@ -24,8 +29,15 @@ public class DateReader implements CellReader<Date> {
 		this(DateFormat.getDateInstance());
 	}
 
+	/**
+	 * Construct {@link DateReader} with {@code dateFormat}. The format is
+	 * copied, so may be changed afterwards.
+	 * 
+	 * @param dateFormat
+	 *            format of the dates read
+	 */
 	public DateReader(DateFormat dateFormat) {
-		this.dateFormat = dateFormat;
+		this.dateFormat = new ThreadLocalDateFormat(dateFormat);
 	}
 
 	/**
@@ -49,7 +61,7 @@ public class DateReader implements CellReader<Date> {
 		}
 
 		try {
-			return dateFormat.parse((String) value);
+			return dateFormat.get().parse((String) value);
 		} catch (ParseException e) {
 			throw new CellReaderException("Cannot convert \"" // NOPMD
 					+ value.toString() + "\" to date");
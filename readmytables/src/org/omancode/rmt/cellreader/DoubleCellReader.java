@@ -0,0 +1,21 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} of doubles that can return its result as a
+ * {@code double}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface DoubleCellReader extends PrimitiveCellReader<Double> {
+
+	/**
+	 * Reads the passed Object value and converts it to a {@code double}.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @return the result of conversion
+	 */
+	double readDouble(Object value);
+
+}
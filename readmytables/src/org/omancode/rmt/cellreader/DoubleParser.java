@@ -0,0 +1,559 @@
+package org.omancode.rmt.cellreader;
+
+import java.math.BigInteger;
+
+/**
+ * Parses decimal numbers into doubles, with results identical to
+ * {@link Double#parseDouble(String)}.
+ * <p>
+ * Plain decimals (ie: an optional sign, digits with an optional decimal
+ * point, and an optional exponent) of up to 19 significant digits are
+ * converted directly from their digits. Exactly representable values use
+ * Clinger's fast path, and others use the Eisel-Lemire algorithm, which
+ * multiplies the digits by a 128 bit approximation of the power of ten. In
+ * the rare cases the approximation cannot decide the rounding, and for all
+ * other input (eg: {@code "NaN"}, hexadecimal, surrounding spaces or more
+ * digits), the chars are passed to {@link Double#parseDouble(String)}.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class DoubleParser {
+
+	private static final int MANTISSA_BITS = 52;
+
+	private static final int MIN_EXPONENT = -1023;
+
+	private static final int INFINITE_POWER = 0x7FF;
+
+	/**
+	 * Smallest and largest powers of ten for which a 19 digit decimal can be
+	 * neither zero nor infinity.
+	 */
+	private static final int SMALLEST_POWER_OF_TEN = -342;
+	private static final int LARGEST_POWER_OF_TEN = 308;
+
+	/**
+	 * Range of powers of ten where a decimal may be exactly half way between
+	 * two doubles, and so must be rounded to even.
+	 */
+	private static final int MIN_POWER_ROUND_TO_EVEN = -4;
+	private static final int MAX_POWER_ROUND_TO_EVEN = 23;
+
+	/**
+	 * Range of powers of ten where the product of the digits and the power of
+	 * five is always exact enough to round correctly.
+	 */
+	private static final int MIN_POWER_SAFE = -27;
+	private static final int MAX_POWER_SAFE = 55;
+
+	private static final int MAX_DIGITS = 19;
+
+	/**
+	 * Largest value of the digits for Clinger's fast path, ie: 2^53.
+	 */
+	private static final long MAX_EXACT_DIGITS = 1L << 53;
+
+	private static final int MAX_EXACT_POWER = 22;
+
+	/**
+	 * Exponents larger than this are clamped while parsing, which is enough
+	 * to make any number of digits zero or infinity.
+	 */
+	private static final int MAX_EXPONENT = 100000;
+
+	private static final double[] POWERS_OF_TEN =
+			new double[MAX_EXACT_POWER + 1];
+
+	/**
+	 * 128 bit approximations of 5^q, for each q from
+	 * {@link #SMALLEST_POWER_OF_TEN} to {@link #LARGEST_POWER_OF_TEN}. Stored
+	 * as pairs of the high and low 64 bits, shifted so that the most
+	 * significant bit is set. Positive powers are truncated, and negative
+	 * powers (ie: the reciprocal) are rounded up.
+	 */
+	private static final long[] POWERS_OF_FIVE =
+			new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+
+	static {
+		double power = 1;
+		for (int i = 0; i <= MAX_EXACT_POWER; i++) {
+			POWERS_OF_TEN[i] = power;
+			power *= 10;
+		}
+
+		BigInteger five = BigInteger.valueOf(5);
+		BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+
+		for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+			BigInteger value;
+
+			if (q < 0) {
+				BigInteger power5 = five.pow(-q);
+				int z = power5.subtract(BigInteger.ONE).bitLength();
+				int b = q >= MIN_POWER_SAFE ? z + 127 : 2 * z + 128;
+
+				value = BigInteger.ONE.shiftLeft(b).divide(power5)
+						.add(BigInteger.ONE);
+
+				if (value.compareTo(two128) >= 0) {
+					value = value.shiftRight(value.bitLength() - 128);
+				}
+			} else {
+				value = five.pow(q);
+				value = value.bitLength() > 128 ? value.shiftRight(value
+						.bitLength() - 128) : value.shiftLeft(128 - value
+						.bitLength());
+			}
+
+			int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+			POWERS_OF_FIVE[index] = value.shiftRight(64).longValue();
+			POWERS_OF_FIVE[index + 1] = value.longValue();
+		}
+	}
+
+	private DoubleParser() {
+		// static class, no instantiation
+	}
+
+	/**
+	 * Parse {@code chars} as a double.
+	 *
+	 * @param chars
+	 *            chars to parse
+	 * @return value
+	 * @throws NumberFormatException
+	 *             if {@code chars} is not a number
+	 */
+	public static double parseDouble(CharSequence chars) {
+		return parseDouble(chars, 0, chars.length());
+	}
+
+	/**
+	 * Parse a range of {@code chars} as a double.
+	 *
+	 * @param chars
+	 *            chars to parse
+	 * @param start
+	 *            index of the first char
+	 * @param end
+	 *            index after the last char
+	 * @return value
+	 * @throws NumberFormatException
+	 *             if the range is not a number
+	 */
+	public static double parseDouble(CharSequence chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+			negative = chars.charAt(i) == '-';
+			i++;
+		}
+
+		long digits = 0;
+		int significant = 0;
+		int power = 0;
+		boolean anyDigits = false;
+
+		// integer part
+		for (; i < end; i++) {
+			int digit = chars.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			anyDigits = true;
+			if (digits != 0 || digit != 0) {
+				digits = digits * 10 + digit;
+				significant++;
+			}
+		}
+
+		// fraction part
+		if (i < end && chars.charAt(i) == '.') {
+			i++;
+			for (; i < end; i++) {
+				int digit = chars.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				anyDigits = true;
+				power--;
+				if (digits != 0 || digit != 0) {
+					digits = digits * 10 + digit;
+					significant++;
+				}
+			}
+		}
+
+		// 19 digits always fit in an unsigned long
+		if (!anyDigits || significant > MAX_DIGITS) {
+			return fallback(chars, start, end);
+		}
+
+		// exponent
+		if (i < end && (chars.charAt(i) == 'e' || chars.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+
+			if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+				negativeExponent = chars.charAt(i) == '-';
+				i++;
+			}
+
+			int exponent = 0;
+			int exponentStart = i;
+
+			for (; i < end; i++) {
+				int digit = chars.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				if (exponent < MAX_EXPONENT) {
+					exponent = exponent * 10 + digit;
+				}
+			}
+
+			if (i == exponentStart) {
+				return fallback(chars, start, end);
+			}
+
+			power += negativeExponent ? -exponent : exponent;
+		}
+
+		if (i != end) {
+			return fallback(chars, start, end);
+		}
+
+		double value;
+
+		if (digits == 0) {
+			value = 0;
+		} else if (digits > 0 && digits <= MAX_EXACT_DIGITS
+				&& power >= -MAX_EXACT_POWER
+				&& power <= MAX_EXACT_POWER) {
+			// Clinger's fast path: digits and power of ten are exact, so
+			// the result of a single operation is correctly rounded
+			value = power < 0 ? (double) digits / POWERS_OF_TEN[-power]
+					: (double) digits * POWERS_OF_TEN[power];
+		} else {
+			long bits = eiselLemire(digits, power);
+
+			if (bits < 0) {
+				return fallback(chars, start, end);
+			}
+
+			value = Double.longBitsToDouble(bits);
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Is {@code chars} a number? Accepts exactly the strings accepted by
+	 * {@link Double#parseDouble(String)}, without throwing an exception for
+	 * those it does not.
+	 *
+	 * @param chars
+	 *            chars to check
+	 * @return {@code true} if {@link #parseDouble(CharSequence)} will return a
+	 *         value
+	 */
+	public static boolean isDouble(CharSequence chars) {
+		return isDouble(chars, 0, chars.length());
+	}
+
+	/**
+	 * Is a range of {@code chars} a number? Accepts exactly the strings
+	 * accepted by {@link Double#parseDouble(String)}.
+	 *
+	 * @param chars
+	 *            chars to check
+	 * @param start
+	 *            index of the first char
+	 * @param end
+	 *            index after the last char
+	 * @return {@code true} if
+	 *         {@link #parseDouble(CharSequence, int, int)} will return a
+	 *         value
+	 */
+	public static boolean isDouble(CharSequence chars, int start, int end) {
+		int i = start;
+
+		// same whitespace as String.trim()
+		while (i < end && chars.charAt(i) <= ' ') {
+			i++;
+		}
+		while (end > i && chars.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+			i++;
+		}
+
+		if (i == end) {
+			return false;
+		}
+
+		char c = chars.charAt(i);
+
+		if (c == 'N') {
+			return matches(chars, i, end, "NaN");
+		} else if (c == 'I') {
+			return matches(chars, i, end, "Infinity");
+		} else if (c == '0' && i + 1 < end
+				&& (chars.charAt(i + 1) == 'x' || chars.charAt(i + 1) == 'X')) {
+			return isHexDouble(chars, i + 2, end);
+		}
+
+		boolean anyDigits = false;
+		boolean point = false;
+
+		for (; i < end; i++) {
+			c = chars.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				anyDigits = true;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+
+		if (!anyDigits) {
+			return false;
+		}
+
+		if (i < end && (chars.charAt(i) == 'e' || chars.charAt(i) == 'E')) {
+			i++;
+
+			if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+				i++;
+			}
+
+			int exponentStart = i;
+			i = skipDigits(chars, i, end, false);
+
+			if (i == exponentStart) {
+				return false;
+			}
+		}
+
+		return isEndOrSuffix(chars, i, end);
+	}
+
+	/**
+	 * Is the range after {@code "0x"} a hexadecimal double, ie: hex digits
+	 * with an optional point and a binary exponent?
+	 */
+	private static boolean isHexDouble(CharSequence chars, int start, int end) {
+		int i = skipDigits(chars, start, end, true);
+		boolean anyDigits = i > start;
+
+		if (i < end && chars.charAt(i) == '.') {
+			int fractionStart = ++i;
+			i = skipDigits(chars, i, end, true);
+			anyDigits |= i > fractionStart;
+		}
+
+		if (!anyDigits || i == end
+				|| (chars.charAt(i) != 'p' && chars.charAt(i) != 'P')) {
+			return false;
+		}
+
+		i++;
+
+		if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+			i++;
+		}
+
+		int exponentStart = i;
+		i = skipDigits(chars, i, end, false);
+
+		return i > exponentStart && isEndOrSuffix(chars, i, end);
+	}
+
+	private static int skipDigits(CharSequence chars, int start, int end,
+			boolean hex) {
+		int i = start;
+
+		for (; i < end; i++) {
+			char c = chars.charAt(i);
+
+			if (!(c >= '0' && c <= '9' || hex
+					&& (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F'))) {
+				break;
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Is {@code i} the end, or the index of a final float or double type
+	 * suffix?
+	 */
+	private static boolean isEndOrSuffix(CharSequence chars, int i, int end) {
+		if (i == end) {
+			return true;
+		}
+
+		char c = chars.charAt(i);
+		return i == end - 1
+				&& (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+	}
+
+	private static boolean matches(CharSequence chars, int start, int end,
+			String text) {
+		if (end - start != text.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			if (chars.charAt(start + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static double fallback(CharSequence chars, int start, int end) {
+		return Double.parseDouble(chars.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Compute the bits of the double nearest to {@code w * 10^q}.
+	 *
+	 * @param w
+	 *            non-zero digits, unsigned
+	 * @param q
+	 *            power of ten
+	 * @return bits of the positive double, or {@code -1} if the result could
+	 *         not be determined
+	 */
+	private static long eiselLemire(long w, int q) {
+		if (q < SMALLEST_POWER_OF_TEN) {
+			return 0;
+		}
+
+		if (q > LARGEST_POWER_OF_TEN) {
+			return (long) INFINITE_POWER << MANTISSA_BITS;
+		}
+
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+		long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+		long low = w * POWERS_OF_FIVE[index];
+
+		// only the top 55 bits are needed, so the low half of the power of
+		// five only matters if the bits below them are all set
+		long precisionMask = -1L >>> (MANTISSA_BITS + 3);
+
+		if ((high & precisionMask) == precisionMask) {
+			long secondHigh = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+			low += secondHigh;
+
+			if (unsignedLessThan(low, secondHigh)) {
+				high++;
+			}
+
+			if (low == -1L && (q < MIN_POWER_SAFE || q > MAX_POWER_SAFE)) {
+				return -1;
+			}
+		}
+
+		int upperBit = (int) (high >>> 63);
+		int shift = upperBit + 64 - MANTISSA_BITS - 3;
+		long mantissa = high >>> shift;
+		int power2 = power(q) + upperBit - lz - MIN_EXPONENT;
+
+		if (power2 <= 0) {
+			// subnormal
+			if (-power2 + 1 >= 64) {
+				return 0;
+			}
+
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+
+			// rounding up may have made it normal
+			power2 = mantissa < (1L << MANTISSA_BITS) ? 0 : 1;
+
+			return ((long) power2 << MANTISSA_BITS)
+					| (mantissa & ((1L << MANTISSA_BITS) - 1));
+		}
+
+		// exactly half way between two doubles, so round to even
+		if (!unsignedLessThan(1, low) && q >= MIN_POWER_ROUND_TO_EVEN
+				&& q <= MAX_POWER_ROUND_TO_EVEN && (mantissa & 3) == 1
+				&& (mantissa << shift) == high) {
+			mantissa &= ~1L;
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+
+		if (mantissa >= (2L << MANTISSA_BITS)) {
+			mantissa = 1L << MANTISSA_BITS;
+			power2++;
+		}
+
+		mantissa &= ~(1L << MANTISSA_BITS);
+
+		if (power2 >= INFINITE_POWER) {
+			return (long) INFINITE_POWER << MANTISSA_BITS;
+		}
+
+		return ((long) power2 << MANTISSA_BITS) | mantissa;
+	}
+
+	/**
+	 * Approximately {@code floor(log2(10^q)) + 63}.
+	 *
+	 * @param q
+	 *            power of ten
+	 * @return power of two
+	 */
+	private static int power(int q) {
+		return (((152170 + 65536) * q) >> 16) + 63;
+	}
+
+	private static boolean unsignedLessThan(long a, long b) {
+		return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+	}
+
+	/**
+	 * High 64 bits of the unsigned 128 bit product of {@code a} and
+	 * {@code b}.
+	 *
+	 * @param a
+	 *            unsigned value
+	 * @param b
+	 *            unsigned value
+	 * @return high bits of the product
+	 */
+	private static long multiplyHigh(long a, long b) {
+		long aHigh = a >>> 32;
+		long aLow = a & 0xFFFFFFFFL;
+		long bHigh = b >>> 32;
+		long bLow = b & 0xFFFFFFFFL;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long highHigh = aHigh * bHigh;
+
+		long middle = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL)
+				+ (lowHigh & 0xFFFFFFFFL);
+
+		return highHigh + (highLow >>> 32) + (lowHigh >>> 32)
+				+ (middle >>> 32);
+	}
+
+}
@@ -8,13 +8,55 @@ package org.omancode.rmt.cellreader;
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class DoubleReader implements CellReader<Double> {
+public class DoubleReader implements DoubleCellReader,
+		CharSequenceCellReader<Double>, TryCellReader<Double>,
+		SpecialisableCellReader<Double> {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = -8349049119392596402L;
 
+	private static final String NULL = "Null object cannot be converted to Double";
+	private static final String NOT_A_NUMBER = "Not a number";
+	private static final String WRONG_TYPE = "Type cannot be converted to Double";
+
+	/**
+	 * Parse strings with {@link DoubleParser}?
+	 */
+	private final boolean fastParsing;
+
+	/**
+	 * Construct reader that parses strings with
+	 * {@link Double#parseDouble(String)}.
+	 */
+	public DoubleReader() {
+		this(false);
+	}
+
+	/**
+	 * Construct reader.
+	 * 
+	 * @param fastParsing
+	 *            if {@code true}, parse strings with {@link DoubleParser},
+	 *            which gives identical results to
+	 *            {@link Double#parseDouble(String)} but is faster for plain
+	 *            decimals.
+	 */
+	public DoubleReader(boolean fastParsing) {
+		super();
+		this.fastParsing = fastParsing;
+	}
+
+	/**
+	 * Are strings parsed with {@link DoubleParser}?
+	 * 
+	 * @return {@code true} if strings are parsed with {@link DoubleParser}
+	 */
+	boolean isFastParsing() {
+		return fastParsing;
+	}
+
 	/**
 	 * Convert an object to a Double without loss of fidelity.
 	 * 
@@ -23,17 +65,37 @@ public class DoubleReader implements CellReader<Double> {
 	 * @return result
 	 */
 	public Double objectToDouble(Object value) {
+		return objectToPrimitiveDouble(value);
+	}
+
+	/**
+	 * Convert an object to a double without loss of fidelity.
+	 * 
+	 * @param value
+	 *            value to convert
+	 * @return result
+	 */
+	public double objectToPrimitiveDouble(Object value) {
 		if (value == null) {
 			throw new CellReaderException(
 					"Null object cannot be converted to Double.");
 		}
 		
-		if (!(value instanceof Number || value instanceof String || value instanceof Character)) {
+		if (!(value instanceof Number || value instanceof CharSequence
+				|| value instanceof Character)) {
 			throw new CellReaderException("Object [" + value.toString()
 					+ "] of type " + value.getClass().toString()
 					+ " cannot be converted to Double.");
 		}
 
+		if (value instanceof Double) {
+			return ((Double) value).doubleValue();
+		}
+
+		if (value instanceof CharSequence) {
+			return charSequenceToDouble((CharSequence) value);
+		}
+
 		try {
 			return Double.parseDouble(value.toString());
 		} catch (NumberFormatException e) {
@@ -42,6 +104,100 @@ public class DoubleReader implements CellReader<Double> {
 		}
 	}
 
+	/**
+	 * Convert text to a double without loss of fidelity.
+	 * 
+	 * @param value
+	 *            text to convert
+	 * @return result
+	 */
+	private double charSequenceToDouble(CharSequence value) {
+		try {
+			if (fastParsing) {
+				return DoubleParser.parseDouble(value);
+			}
+
+			return Double.parseDouble(value.toString());
+		} catch (NumberFormatException e) {
+			throw new CellReaderException("Cannot convert \"" // NOPMD
+					+ value.toString() + "\" to double");
+		}
+	}
+
+	/**
+	 * Convert an object to a double without throwing an exception.
+	 * 
+	 * @param value
+	 *            value to convert
+	 * @param result
+	 *            holder for the {@code double}, or the reason it cannot be
+	 *            converted
+	 * @return {@code true} if converted
+	 */
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		if (value == null) {
+			return result.fail(NULL);
+		}
+
+		if (value instanceof Double) {
+			return result.setDouble(((Double) value).doubleValue());
+		}
+
+		if (value instanceof CharSequence) {
+			return tryCharSequenceToDouble((CharSequence) value, result);
+		}
+
+		if (!(value instanceof Number || value instanceof Character)) {
+			return result.fail(WRONG_TYPE);
+		}
+
+		String text = value.toString();
+
+		if (!DoubleParser.isDouble(text)) {
+			return result.fail(NOT_A_NUMBER);
+		}
+
+		return result.setDouble(Double.parseDouble(text));
+	}
+
+	private boolean tryCharSequenceToDouble(CharSequence value,
+			ReadResult result) {
+		if (!DoubleParser.isDouble(value)) {
+			return result.fail(NOT_A_NUMBER);
+		}
+
+		return result.setDouble(fastParsing ? DoubleParser.parseDouble(value)
+				: Double.parseDouble(value.toString()));
+	}
+
+	/**
+	 * Return a variant of this reader specialised for text cells or
+	 * {@link Double} cells. Subclasses other than
+	 * {@link OptionalDoubleReader} are not specialised, as they may override
+	 * the conversions.
+	 * 
+	 * @param cellType
+	 *            type of the cells to be read
+	 * @return specialised reader, or this reader
+	 */
+	@Override
+	public DoubleReader specialise(Class<?> cellType) {
+		if (getClass() != DoubleReader.class
+				&& getClass() != OptionalDoubleReader.class) {
+			return this;
+		}
+
+		if (CharSequence.class.isAssignableFrom(cellType)) {
+			return new TextDoubleReader(this);
+		}
+		if (cellType == Double.class) {
+			return new DoubleCellDoubleReader(this);
+		}
+
+		return this;
+	}
+
 	@Override
 	public Class<Double> getResultType() {
 		return Double.class;
@@ -52,4 +208,130 @@ public class DoubleReader implements CellReader<Double> {
 		return objectToDouble(value);
 	}
 
+	@Override
+	public Double call(CharSequence value) {
+		return readDouble(value);
+	}
+
+	@Override
+	public double readDouble(Object value) {
+		return objectToPrimitiveDouble(value);
+	}
+
+	/**
+	 * Missing values cannot be converted to double, so are never read as
+	 * missing.
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isMissing(Object value) {
+		return false;
+	}
+
+	/**
+	 * {@link DoubleReader} specialised for text cells. Other values are read
+	 * by the reader it specialises.
+	 */
+	private static final class TextDoubleReader extends DoubleReader {
+
+		private final DoubleReader reader;
+
+		TextDoubleReader(DoubleReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public double readDouble(Object value) {
+			if (value instanceof CharSequence && !reader.isMissing(value)) {
+				return reader.charSequenceToDouble((CharSequence) value);
+			}
+
+			return reader.readDouble(value);
+		}
+
+		@Override
+		public Double call(Object value) {
+			return readDouble(value);
+		}
+
+		@Override
+		public Double call(CharSequence value) {
+			return readDouble(value);
+		}
+
+		@Override
+		public boolean tryRead(Object value, ReadResult result) {
+			if (value instanceof CharSequence && !reader.isMissing(value)) {
+				return reader.tryCharSequenceToDouble((CharSequence) value,
+						result);
+			}
+
+			return reader.tryRead(value, result);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return reader.isMissing(value);
+		}
+
+		@Override
+		public DoubleReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
+	/**
+	 * {@link DoubleReader} specialised for {@link Double} cells. Other values
+	 * are read by the reader it specialises.
+	 */
+	private static final class DoubleCellDoubleReader extends DoubleReader {
+
+		private final DoubleReader reader;
+
+		DoubleCellDoubleReader(DoubleReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public double readDouble(Object value) {
+			if (value instanceof Double) {
+				return ((Double) value).doubleValue();
+			}
+
+			return reader.readDouble(value);
+		}
+
+		@Override
+		public Double call(Object value) {
+			return readDouble(value);
+		}
+
+		@Override
+		public Double call(CharSequence value) {
+			return reader.call(value);
+		}
+
+		@Override
+		public boolean tryRead(Object value, ReadResult result) {
+			if (value instanceof Double) {
+				return result.setDouble(((Double) value).doubleValue());
+			}
+
+			return reader.tryRead(value, result);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return reader.isMissing(value);
+		}
+
+		@Override
+		public DoubleReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
 }
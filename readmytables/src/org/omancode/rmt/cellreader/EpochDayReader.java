@@ -0,0 +1,202 @@
+package org.omancode.rmt.cellreader;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Converts an object to a date, as the number of days since 1970-01-01, so
+ * dates can be read into an {@code int} column. Throws
+ * {@link CellReaderException} if the object is not a date.
+ * <p>
+ * Text in the ISO-8601 ({@code yyyy-MM-dd}) or day first ({@code dd/MM/yyyy})
+ * layouts is parsed directly by {@link DateParser}. Other text is parsed with
+ * the pattern given to the constructor, if any. {@link Date}s must be at
+ * midnight UTC. Numbers are read as Excel serial dates, which is how dates
+ * are stored in a spreadsheet, and must be whole days in the same range as
+ * {@link EpochMillisReader}. As in Excel, serial 60 (the fictitious
+ * 1900-02-29) is read as 1900-03-01.
+ * <p>
+ * Immutable (the pattern is parsed with a {@link SimpleDateFormat} for each
+ * thread), so may be shared between threads.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class EpochDayReader implements IntCellReader,
+		CharSequenceCellReader<Integer>, TryCellReader<Integer> {
+
+	private static final String NULL = "Null object cannot be converted to a date";
+	private static final String NOT_A_DATE = "Not a date";
+	private static final String NOT_A_WHOLE_DAY = "Number is not a whole Excel date";
+	private static final String OUT_OF_RANGE = "Number is not an Excel date";
+	private static final String NOT_MIDNIGHT = "Date is not at midnight UTC";
+	private static final String WRONG_TYPE = "Type cannot be converted to a date";
+
+	/**
+	 * Format of text not handled by {@link DateParser}, or {@code null}.
+	 */
+	private final ThreadLocalDateFormat format;
+
+	/**
+	 * Construct reader of the layouts handled by {@link DateParser}.
+	 */
+	public EpochDayReader() {
+		this.format = null;
+	}
+
+	/**
+	 * Construct reader that also reads dates in {@code pattern}.
+	 *
+	 * @param pattern
+	 *            {@link SimpleDateFormat} pattern of text not in the layouts
+	 *            handled by {@link DateParser}, eg: {@code "MM/dd/yyyy"}
+	 */
+	public EpochDayReader(String pattern) {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+		dateFormat.setLenient(false);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		this.format = new ThreadLocalDateFormat(dateFormat);
+	}
+
+	/**
+	 * Convert an object to days since 1970-01-01.
+	 *
+	 * @param value
+	 *            value to convert
+	 * @return days, or {@link DateParser#NOT_PARSED} if {@code value} is not
+	 *         a date
+	 */
+	private long toEpochDay(Object value) {
+		if (value instanceof CharSequence) {
+			long day = DateParser.parseEpochDay((CharSequence) value);
+
+			if (day != DateParser.NOT_PARSED || format == null) {
+				return day;
+			}
+
+			Date date = format.parseWhole(value.toString().trim());
+
+			return date == null ? DateParser.NOT_PARSED : wholeDay(date);
+		}
+
+		if (value instanceof Date) {
+			return wholeDay((Date) value);
+		}
+
+		if (value instanceof Number) {
+			double serial = ((Number) value).doubleValue();
+
+			if (!DateParser.isExcelSerial(serial) || serial % 1 != 0) {
+				return DateParser.NOT_PARSED;
+			}
+
+			return (long) DateParser.excelSerialToEpochDays(serial);
+		}
+
+		return DateParser.NOT_PARSED;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date at midnight UTC.
+	 *
+	 * @return days, or {@link DateParser#NOT_PARSED} if {@code date} is not
+	 *         at midnight UTC
+	 */
+	private static long wholeDay(Date date) {
+		long millis = date.getTime();
+
+		return millis % DateParser.MILLIS_PER_DAY == 0 ? millis
+				/ DateParser.MILLIS_PER_DAY : DateParser.NOT_PARSED;
+	}
+
+	/**
+	 * The reason a value that is not a date cannot be converted.
+	 */
+	private static String reason(Object value) {
+		if (value == null) {
+			return NULL;
+		}
+
+		if (value instanceof CharSequence) {
+			return NOT_A_DATE;
+		}
+
+		if (value instanceof Date) {
+			return NOT_MIDNIGHT;
+		}
+
+		if (value instanceof Number) {
+			double serial = ((Number) value).doubleValue();
+
+			return DateParser.isExcelSerial(serial) ? NOT_A_WHOLE_DAY
+					: OUT_OF_RANGE;
+		}
+
+		return WRONG_TYPE;
+	}
+
+	/**
+	 * Convert an object to days since 1970-01-01.
+	 *
+	 * @param value
+	 *            value to convert
+	 * @return days
+	 */
+	public int objectToEpochDay(Object value) {
+		long day = toEpochDay(value);
+
+		if (day == DateParser.NOT_PARSED) {
+			if (value == null) {
+				throw new CellReaderException(
+						"Null object cannot be converted to a date.");
+			}
+
+			throw new CellReaderException("Cannot convert \"" // NOPMD
+					+ value.toString() + "\" to date (" + reason(value) + ")");
+		}
+
+		return (int) day;
+	}
+
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		long day = toEpochDay(value);
+
+		return day == DateParser.NOT_PARSED ? result.fail(reason(value))
+				: result.setInt((int) day);
+	}
+
+	@Override
+	public Class<Integer> getResultType() {
+		return Integer.class;
+	}
+
+	@Override
+	public Integer call(Object value) {
+		return objectToEpochDay(value);
+	}
+
+	@Override
+	public Integer call(CharSequence value) {
+		return objectToEpochDay(value);
+	}
+
+	@Override
+	public int readInt(Object value) {
+		return objectToEpochDay(value);
+	}
+
+	/**
+	 * Missing values are not dates, so are never read as missing.
+	 *
+	 * @param value
+	 *            value to check
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isMissing(Object value) {
+		return false;
+	}
+
+}
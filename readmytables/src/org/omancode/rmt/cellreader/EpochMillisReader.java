@@ -0,0 +1,205 @@
+package org.omancode.rmt.cellreader;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Converts an object to an instant, as the number of milliseconds since
+ * 1970-01-01T00:00Z (ie: the value of {@link Date#getTime()}), so date-times
+ * can be read without creating a {@link Date}. Throws
+ * {@link CellReaderException} if the object is not a date-time.
+ * <p>
+ * Text in the ISO-8601 ({@code yyyy-MM-dd'T'HH:mm:ss.SSS}, with an optional
+ * zone offset) or day first ({@code dd/MM/yyyy HH:mm:ss}) layouts is parsed
+ * directly by {@link DateParser}. Other text is parsed with the pattern given
+ * to the constructor, if any. Text without a zone offset is in the reader's
+ * time zone. {@link Date}s are read as their time, and numbers as Excel serial
+ * date-times in the reader's time zone.
+ * <p>
+ * Immutable (the pattern is parsed with a {@link SimpleDateFormat} for each
+ * thread), so may be shared between threads.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class EpochMillisReader implements LongCellReader,
+		CharSequenceCellReader<Long>, TryCellReader<Long> {
+
+	private static final String NULL = "Null object cannot be converted to a date-time";
+	private static final String NOT_A_DATE_TIME = "Not a date-time";
+	private static final String OUT_OF_RANGE = "Number is not an Excel date-time";
+	private static final String WRONG_TYPE = "Type cannot be converted to a date-time";
+
+	private final TimeZone zone;
+
+	/**
+	 * Format of text not handled by {@link DateParser}, or {@code null}.
+	 */
+	private final ThreadLocalDateFormat format;
+
+	/**
+	 * Construct reader of the layouts handled by {@link DateParser}, with
+	 * date-times in UTC.
+	 */
+	public EpochMillisReader() {
+		this(TimeZone.getTimeZone("UTC"));
+	}
+
+	/**
+	 * Construct reader of the layouts handled by {@link DateParser}.
+	 *
+	 * @param zone
+	 *            time zone of date-times without a zone offset
+	 */
+	public EpochMillisReader(TimeZone zone) {
+		this.zone = (TimeZone) zone.clone();
+		this.format = null;
+	}
+
+	/**
+	 * Construct reader that also reads date-times in {@code pattern}.
+	 *
+	 * @param pattern
+	 *            {@link SimpleDateFormat} pattern of text not in the layouts
+	 *            handled by {@link DateParser}, eg:
+	 *            {@code "MM/dd/yyyy h:mm a"}
+	 * @param zone
+	 *            time zone of date-times without a zone offset
+	 */
+	public EpochMillisReader(String pattern, TimeZone zone) {
+		this.zone = (TimeZone) zone.clone();
+
+		SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+		dateFormat.setLenient(false);
+		dateFormat.setTimeZone(this.zone);
+		this.format = new ThreadLocalDateFormat(dateFormat);
+	}
+
+	/**
+	 * Convert an object to milliseconds since 1970-01-01T00:00Z.
+	 *
+	 * @param value
+	 *            value to convert
+	 * @return milliseconds, or {@link DateParser#NOT_PARSED} if {@code value}
+	 *         is not a date-time
+	 */
+	private long toEpochMillis(Object value) {
+		if (value instanceof CharSequence) {
+			long millis = DateParser.parseEpochMillis((CharSequence) value,
+					zone);
+
+			if (millis != DateParser.NOT_PARSED || format == null) {
+				return millis;
+			}
+
+			Date date = format.parseWhole(value.toString().trim());
+
+			return date == null ? DateParser.NOT_PARSED : date.getTime();
+		}
+
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+
+		if (value instanceof Number) {
+			double serial = ((Number) value).doubleValue();
+
+			if (!DateParser.isExcelSerial(serial)) {
+				return DateParser.NOT_PARSED;
+			}
+
+			long local = Math.round(DateParser
+					.excelSerialToEpochDays(serial)
+					* DateParser.MILLIS_PER_DAY);
+
+			return DateParser.toUTC(local, zone);
+		}
+
+		return DateParser.NOT_PARSED;
+	}
+
+	/**
+	 * The reason a value that is not a date-time cannot be converted.
+	 */
+	private static String reason(Object value) {
+		if (value == null) {
+			return NULL;
+		}
+
+		if (value instanceof CharSequence) {
+			return NOT_A_DATE_TIME;
+		}
+
+		if (value instanceof Number) {
+			return OUT_OF_RANGE;
+		}
+
+		return WRONG_TYPE;
+	}
+
+	/**
+	 * Convert an object to milliseconds since 1970-01-01T00:00Z.
+	 *
+	 * @param value
+	 *            value to convert
+	 * @return milliseconds
+	 */
+	public long objectToEpochMillis(Object value) {
+		long millis = toEpochMillis(value);
+
+		if (millis == DateParser.NOT_PARSED) {
+			if (value == null) {
+				throw new CellReaderException(
+						"Null object cannot be converted to a date-time.");
+			}
+
+			throw new CellReaderException("Cannot convert \"" // NOPMD
+					+ value.toString() + "\" to date-time (" + reason(value)
+					+ ")");
+		}
+
+		return millis;
+	}
+
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		long millis = toEpochMillis(value);
+
+		return millis == DateParser.NOT_PARSED ? result.fail(reason(value))
+				: result.setLong(millis);
+	}
+
+	@Override
+	public Class<Long> getResultType() {
+		return Long.class;
+	}
+
+	@Override
+	public Long call(Object value) {
+		return objectToEpochMillis(value);
+	}
+
+	@Override
+	public Long call(CharSequence value) {
+		return objectToEpochMillis(value);
+	}
+
+	@Override
+	public long readLong(Object value) {
+		return objectToEpochMillis(value);
+	}
+
+	/**
+	 * Missing values are not date-times, so are never read as missing.
+	 *
+	 * @param value
+	 *            value to check
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isMissing(Object value) {
+		return false;
+	}
+
+}
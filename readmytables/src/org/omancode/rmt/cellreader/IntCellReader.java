@@ -0,0 +1,21 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} of integers that can return its result as an
+ * {@code int}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface IntCellReader extends PrimitiveCellReader<Integer> {
+
+	/**
+	 * Reads the passed Object value and converts it to an {@code int}.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @return the result of conversion
+	 */
+	int readInt(Object value);
+
+}
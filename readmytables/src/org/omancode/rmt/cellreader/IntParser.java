@@ -0,0 +1,98 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * Parses integers directly from their digits. Only handles plain integers,
+ * ie: an optional sign followed by digits, with a value in the {@code int}
+ * range. Anything else, eg: {@code "3.0"}, {@code "1e3"}, {@code " 7"} or an
+ * overflow, is reported as {@link #NOT_PARSED} so that the caller can fall
+ * back to a more general (and slower) conversion.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class IntParser {
+
+	/**
+	 * Returned when the chars are not a plain integer in the {@code int}
+	 * range.
+	 */
+	public static final long NOT_PARSED = Long.MIN_VALUE;
+
+	/**
+	 * Maximum number of digits parsed. More digits than this (including
+	 * leading zeros) are left to the fallback, so the value accumulated in a
+	 * long can never overflow.
+	 */
+	private static final int MAX_DIGITS = 18;
+
+	private IntParser() {
+		// static class, no instantiation
+	}
+
+	/**
+	 * Parse {@code chars} as an int.
+	 * 
+	 * @param chars
+	 *            chars to parse
+	 * @return value, or {@link #NOT_PARSED} if {@code chars} is not a plain
+	 *         integer in the {@code int} range
+	 */
+	public static long parseInt(CharSequence chars) {
+		return parseInt(chars, 0, chars.length());
+	}
+
+	/**
+	 * Parse a range of {@code chars} as an int.
+	 * 
+	 * @param chars
+	 *            chars to parse
+	 * @param start
+	 *            index of the first char
+	 * @param end
+	 *            index after the last char
+	 * @return value, or {@link #NOT_PARSED} if the range is not a plain
+	 *         integer in the {@code int} range
+	 */
+	public static long parseInt(CharSequence chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end) {
+			char sign = chars.charAt(i);
+
+			if (sign == '-' || sign == '+') {
+				negative = sign == '-';
+				i++;
+			}
+		}
+
+		int digits = end - i;
+
+		if (digits == 0 || digits > MAX_DIGITS) {
+			return NOT_PARSED;
+		}
+
+		long value = 0;
+
+		for (; i < end; i++) {
+			int digit = chars.charAt(i) - '0';
+
+			if (digit < 0 || digit > 9) {
+				return NOT_PARSED;
+			}
+
+			value = value * 10 + digit;
+		}
+
+		if (negative) {
+			value = -value;
+		}
+
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return NOT_PARSED;
+		}
+
+		return value;
+	}
+
+}
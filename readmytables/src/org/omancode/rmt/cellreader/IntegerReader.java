@@ -8,13 +8,21 @@ package org.omancode.rmt.cellreader;
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class IntegerReader implements CellReader<Integer> {
+public class IntegerReader implements IntCellReader,
+		CharSequenceCellReader<Integer>, TryCellReader<Integer>,
+		SpecialisableCellReader<Integer> {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = 2542403746336945674L;
 
+	private static final String NULL = "Null object cannot be converted to Integer";
+	private static final String NOT_A_NUMBER = "Not a number";
+	private static final String TOO_BIG = "Too big to be an integer";
+	private static final String FRACTIONAL = "Has a fractional part";
+	private static final String WRONG_TYPE = "Type cannot be converted to Integer";
+
 	/**
 	 * Convert String to Integer. If fidelity will be lost, throws
 	 * {@link CellReaderException}.
@@ -24,15 +32,35 @@ public class IntegerReader implements CellReader<Integer> {
 	 * @return Integer
 	 */
 	public Integer stringToInteger(String value) {
+		return stringToInt(value);
+	}
+
+	/**
+	 * Convert String to int. If fidelity will be lost, throws
+	 * {@link CellReaderException}. Plain integers are parsed directly from
+	 * their digits, and anything else (eg: {@code "3.0"} or {@code "1e3"}) is
+	 * parsed as a double and then checked for a fractional part.
+	 * 
+	 * @param value
+	 *            string to convert.
+	 * @return int
+	 */
+	public int stringToInt(String value) {
+		long parsed = IntParser.parseInt(value);
+
+		if (parsed != IntParser.NOT_PARSED) {
+			return (int) parsed;
+		}
+
 		try {
-			// try converting String to Double - the
+			// try converting String to double - the
 			// widest of all number types (can contain
 			// all other types including max & min long)
-			Double convertedDouble = Double.parseDouble(value);
+			double convertedDouble = Double.parseDouble(value);
 
-			// see if the converted Double can be an
-			// Integer
-			return doubleToInteger(convertedDouble);
+			// see if the converted double can be an
+			// int
+			return doubleToInt(convertedDouble);
 
 		} catch (NumberFormatException e) {
 			throw new CellReaderException("Cannot convert \"" + value // NOPMD
@@ -40,6 +68,25 @@ public class IntegerReader implements CellReader<Integer> {
 		}
 	}
 
+	/**
+	 * Convert text to int without creating a String, unless it is not a
+	 * plain integer. If fidelity will be lost, throws
+	 * {@link CellReaderException}.
+	 * 
+	 * @param value
+	 *            text to convert.
+	 * @return int
+	 */
+	public int charSequenceToInt(CharSequence value) {
+		long parsed = IntParser.parseInt(value);
+
+		if (parsed != IntParser.NOT_PARSED) {
+			return (int) parsed;
+		}
+
+		return stringToInt(value.toString());
+	}
+
 	/**
 	 * Convert Long to Integer. If fidelity will be lost, throws
 	 * {@link CellReaderException}.
@@ -49,8 +96,10 @@ public class IntegerReader implements CellReader<Integer> {
 	 * @return Integer
 	 */
 	public Integer longToInteger(Long arg) {
-		long value = arg.longValue();
+		return longToInt(arg.longValue());
+	}
 
+	private int longToInt(long value) {
 		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
 			return (int) value;
 		}
@@ -68,11 +117,13 @@ public class IntegerReader implements CellReader<Integer> {
 	 * @return Integer
 	 */
 	public Integer floatToInteger(Float arg) {
-		float value = arg.floatValue();
+		return floatToInt(arg.floatValue());
+	}
 
+	private int floatToInt(float value) {
 		// if no fractional part, return
 		if (value % 1 == 0) {
-			return longToInteger(arg.longValue());
+			return longToInt((long) value);
 		}
 
 		throw new CellReaderException("float value [" + value
@@ -89,11 +140,13 @@ public class IntegerReader implements CellReader<Integer> {
 	 * @return Integer
 	 */
 	public Integer doubleToInteger(Double arg) {
-		double value = arg.doubleValue();
+		return doubleToInt(arg.doubleValue());
+	}
 
+	private int doubleToInt(double value) {
 		// if no fractional part, return
 		if (value % 1 == 0) {
-			return longToInteger(arg.longValue());
+			return longToInt((long) value);
 		}
 
 		throw new CellReaderException("double value [" + value
@@ -110,12 +163,27 @@ public class IntegerReader implements CellReader<Integer> {
 	 * @return Integer
 	 */
 	public Integer objectToInteger(Object value) {
+		return objectToInt(value);
+	}
+
+	/**
+	 * Convert Object to int. If fidelity will be lost, throws
+	 * {@link CellReaderException}.
+	 * 
+	 * @param value
+	 *            Object to convert.
+	 * @return int
+	 */
+	public int objectToInt(Object value) {
 
 		if (value == null) {
 			throw new CellReaderException(
 					"Null object cannot be converted to Integer.");
 		}
 
+		if (value instanceof CharSequence) {
+			return charSequenceToInt((CharSequence) value);
+		}
 		if (value instanceof Boolean) {
 			return ((Boolean) value).booleanValue() ? 1 : 0;
 		}
@@ -124,16 +192,16 @@ public class IntegerReader implements CellReader<Integer> {
 			return ((Number) value).intValue();
 		}
 		if (value instanceof Long) {
-			return longToInteger((Long) value);
+			return longToInt(((Long) value).longValue());
 		}
 		if (value instanceof Float) {
-			return floatToInteger((Float) value);
+			return floatToInt(((Float) value).floatValue());
 		}
 		if (value instanceof Double) {
-			return doubleToInteger((Double) value);
+			return doubleToInt(((Double) value).doubleValue());
 		}
-		if (value instanceof String || value instanceof Character) {
-			return stringToInteger(value.toString());
+		if (value instanceof Character) {
+			return stringToInt(value.toString());
 		}
 
 		throw new CellReaderException("Object [" + value.toString()
@@ -141,6 +209,107 @@ public class IntegerReader implements CellReader<Integer> {
 				+ " cannot be converted to Integer.");
 	}
 
+	/**
+	 * Convert Object to int without throwing an exception.
+	 * 
+	 * @param value
+	 *            Object to convert.
+	 * @param result
+	 *            holder for the {@code int}, or the reason fidelity would
+	 *            be lost
+	 * @return {@code true} if converted
+	 */
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		if (value == null) {
+			return result.fail(NULL);
+		}
+
+		if (value instanceof CharSequence) {
+			return tryCharSequenceToInt((CharSequence) value, result);
+		}
+		if (value instanceof Boolean) {
+			return result.setInt(((Boolean) value).booleanValue() ? 1 : 0);
+		}
+		if (value instanceof Byte || value instanceof Short
+				|| value instanceof Integer) {
+			return result.setInt(((Number) value).intValue());
+		}
+		if (value instanceof Long) {
+			return tryLongToInt(((Long) value).longValue(), result);
+		}
+		if (value instanceof Float) {
+			return tryDoubleToInt(((Float) value).floatValue(), result);
+		}
+		if (value instanceof Double) {
+			return tryDoubleToInt(((Double) value).doubleValue(), result);
+		}
+		if (value instanceof Character) {
+			return tryCharSequenceToInt(value.toString(), result);
+		}
+
+		return result.fail(WRONG_TYPE);
+	}
+
+	private boolean tryCharSequenceToInt(CharSequence value,
+			ReadResult result) {
+		long parsed = IntParser.parseInt(value);
+
+		if (parsed != IntParser.NOT_PARSED) {
+			return result.setInt((int) parsed);
+		}
+
+		if (!DoubleParser.isDouble(value)) {
+			return result.fail(NOT_A_NUMBER);
+		}
+
+		return tryDoubleToInt(Double.parseDouble(value.toString()), result);
+	}
+
+	private boolean tryLongToInt(long value, ReadResult result) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			return result.setInt((int) value);
+		}
+
+		return result.fail(TOO_BIG);
+	}
+
+	private boolean tryDoubleToInt(double value, ReadResult result) {
+		// if no fractional part, return
+		if (value % 1 == 0) {
+			return tryLongToInt((long) value, result);
+		}
+
+		return result.fail(FRACTIONAL);
+	}
+
+	/**
+	 * Return a variant of this reader specialised for text cells or
+	 * {@link Double} cells. Subclasses other than
+	 * {@link OptionalIntegerReader} are not specialised, as they may override
+	 * the conversions.
+	 * 
+	 * @param cellType
+	 *            type of the cells to be read
+	 * @return specialised reader, or this reader
+	 */
+	@Override
+	public IntegerReader specialise(Class<?> cellType) {
+		if (getClass() != IntegerReader.class
+				&& getClass() != OptionalIntegerReader.class) {
+			return this;
+		}
+
+		if (CharSequence.class.isAssignableFrom(cellType)) {
+			return new TextIntegerReader(this);
+		}
+		if (cellType == Double.class) {
+			return new DoubleCellIntegerReader(this);
+		}
+
+		return this;
+	}
+
 	@Override
 	public Class<Integer> getResultType() {
 		return Integer.class;
@@ -151,4 +320,131 @@ public class IntegerReader implements CellReader<Integer> {
 		return objectToInteger(value);
 	}
 
-}
\ No newline at end of file
+	@Override
+	public Integer call(CharSequence value) {
+		return readInt(value);
+	}
+
+	@Override
+	public int readInt(Object value) {
+		return objectToInt(value);
+	}
+
+	/**
+	 * Missing values cannot be converted to integer, so are never read as
+	 * missing.
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code false}
+	 */
+	@Override
+	public boolean isMissing(Object value) {
+		return false;
+	}
+
+	/**
+	 * {@link IntegerReader} specialised for text cells. Other values are read
+	 * by the reader it specialises.
+	 */
+	private static final class TextIntegerReader extends IntegerReader {
+
+		private final IntegerReader reader;
+
+		TextIntegerReader(IntegerReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public int readInt(Object value) {
+			if (value instanceof CharSequence && !reader.isMissing(value)) {
+				return reader.charSequenceToInt((CharSequence) value);
+			}
+
+			return reader.readInt(value);
+		}
+
+		@Override
+		public Integer call(Object value) {
+			return readInt(value);
+		}
+
+		@Override
+		public Integer call(CharSequence value) {
+			return readInt(value);
+		}
+
+		@Override
+		public boolean tryRead(Object value, ReadResult result) {
+			if (value instanceof CharSequence && !reader.isMissing(value)) {
+				return reader.tryCharSequenceToInt((CharSequence) value,
+						result);
+			}
+
+			return reader.tryRead(value, result);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return reader.isMissing(value);
+		}
+
+		@Override
+		public IntegerReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
+	/**
+	 * {@link IntegerReader} specialised for {@link Double} cells. Other
+	 * values are read by the reader it specialises.
+	 */
+	private static final class DoubleCellIntegerReader extends IntegerReader {
+
+		private final IntegerReader reader;
+
+		DoubleCellIntegerReader(IntegerReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public int readInt(Object value) {
+			if (value instanceof Double) {
+				return reader.doubleToInt(((Double) value).doubleValue());
+			}
+
+			return reader.readInt(value);
+		}
+
+		@Override
+		public Integer call(Object value) {
+			return readInt(value);
+		}
+
+		@Override
+		public Integer call(CharSequence value) {
+			return reader.call(value);
+		}
+
+		@Override
+		public boolean tryRead(Object value, ReadResult result) {
+			if (value instanceof Double) {
+				return reader.tryDoubleToInt(((Double) value).doubleValue(),
+						result);
+			}
+
+			return reader.tryRead(value, result);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return reader.isMissing(value);
+		}
+
+		@Override
+		public IntegerReader specialise(Class<?> cellType) {
+			return reader.specialise(cellType);
+		}
+	}
+
+}
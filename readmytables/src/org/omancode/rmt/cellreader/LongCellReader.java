@@ -0,0 +1,21 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} of longs that can return its result as a
+ * {@code long}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface LongCellReader extends PrimitiveCellReader<Long> {
+
+	/**
+	 * Reads the passed Object value and converts it to a {@code long}.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @return the result of conversion
+	 */
+	long readLong(Object value);
+
+}
@@ -2,15 +2,23 @@ package org.omancode.rmt.cellreader;
 
 /**
  * Reader that checks the read value and returns a different value if the read
- * value is missing, ie: {@code null} or empty string.
+ * value is missing, ie: {@code null} or empty string. Text may also be treated
+ * as missing if it matches one of a set of missing value tokens, eg:
+ * {@code "NA"}.
  * 
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class MissingValueReader implements CellReader<Object> {
+public class MissingValueReader implements CellReader<Object>, Substitution {
 
 	private final Object returnValue;
 
+	/**
+	 * Matches text that is missing, or {@code null} if only {@code null} and
+	 * empty text are missing.
+	 */
+	private final TokenMatcher matcher;
+
 	/**
 	 * Construct a {@link MissingValueReader} that returns {@code returnValue}
 	 * if it encounters missing value.
@@ -20,22 +28,95 @@ public class MissingValueReader implements CellReader<Object> {
 	 */
 	public MissingValueReader(Object returnValue) {
 		this.returnValue = returnValue;
+		this.matcher = null;
+	}
+
+	/**
+	 * Construct a {@link MissingValueReader} that returns {@code returnValue}
+	 * if it encounters missing value or text that matches one of
+	 * {@code missingTokens}.
+	 * 
+	 * @param returnValue
+	 *            return value to return instead of missing value
+	 * @param missingTokens
+	 *            text that is also missing, eg: {@code "NA"}
+	 * @param ignoreCase
+	 *            if {@code true}, ignore case when matching
+	 * @param trim
+	 *            if {@code true}, ignore whitespace around the text matched
+	 */
+	public MissingValueReader(Object returnValue, String[] missingTokens,
+			boolean ignoreCase, boolean trim) {
+		this.returnValue = returnValue;
+		this.matcher = new TokenMatcher(missingTokens, ignoreCase, trim);
 	}
 
 	/**
-	 * If {@code value} is missing (ie: {@code null} or empty string), return
-	 * {@link #returnValue} else return {@code value}.
+	 * If {@code value} is missing (ie: {@code null}, empty string, or a
+	 * missing value token), return {@link #returnValue} else return
+	 * {@code value}.
 	 * 
 	 * @param value
 	 *            value to check
 	 * @return result {@code value} or {@link #returnValue}
 	 */
 	public Object iifMissing(Object value) {
-		if (value == null) {
-			return returnValue;
-		}
-		
-		return "".equals(value) ? returnValue : value;
+		return matches(value) ? returnValue : value;
+	}
+
+	private boolean isMissingToken(Object value) {
+		return matcher != null && value instanceof CharSequence
+				&& matcher.contains((CharSequence) value);
+	}
+
+	/**
+	 * Is {@code value} missing (ie: {@code null}, empty string, or a missing
+	 * value token)?
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if {@link #call(Object)} returns the return value
+	 */
+	@Override
+	public boolean matches(Object value) {
+		return isMissing(value) || isMissingToken(value);
+	}
+
+	@Override
+	public boolean matchesText(CharSequence text) {
+		return matches(text);
+	}
+
+	/**
+	 * Value returned instead of a missing value.
+	 * 
+	 * @return return value
+	 */
+	@Override
+	public Object getReturnValue() {
+		return returnValue;
+	}
+
+	/**
+	 * Does this reader have missing value tokens?
+	 * 
+	 * @return {@code true} if text other than the empty string is missing
+	 */
+	boolean hasTokens() {
+		return matcher != null;
+	}
+
+	/**
+	 * Is {@code value} missing, ie: {@code null} or empty text?
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if missing
+	 */
+	public static boolean isMissing(Object value) {
+		return value == null
+				|| (value instanceof CharSequence && ((CharSequence) value)
+						.length() == 0);
 	}
 
 	@Override
@@ -0,0 +1,67 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * Converts an object to a Double, or returns a missing value constant if the
+ * object is missing (ie: {@code null} or the empty string).
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class OptionalDoubleReader extends DoubleReader {
+
+	private final double missingValue;
+
+	/**
+	 * Construct reader that returns {@link CellReaders#MISSING_VALUE_DOUBLE}
+	 * for missing values.
+	 */
+	public OptionalDoubleReader() {
+		this(CellReaders.MISSING_VALUE_DOUBLE);
+	}
+
+	/**
+	 * Construct reader that returns {@code missingValue} for missing values.
+	 * 
+	 * @param missingValue
+	 *            value returned instead of a missing value
+	 */
+	public OptionalDoubleReader(double missingValue) {
+		this(missingValue, false);
+	}
+
+	/**
+	 * Construct reader that returns {@code missingValue} for missing values.
+	 * 
+	 * @param missingValue
+	 *            value returned instead of a missing value
+	 * @param fastParsing
+	 *            if {@code true}, parse strings with {@link DoubleParser}
+	 */
+	public OptionalDoubleReader(double missingValue, boolean fastParsing) {
+		super(fastParsing);
+		this.missingValue = missingValue;
+	}
+
+	@Override
+	public Double call(Object value) {
+		return readDouble(value);
+	}
+
+	@Override
+	public double readDouble(Object value) {
+		return isMissing(value) ? missingValue
+				: objectToPrimitiveDouble(value);
+	}
+
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		return isMissing(value) ? result.setDouble(missingValue) : super
+				.tryRead(value, result);
+	}
+
+	@Override
+	public boolean isMissing(Object value) {
+		return MissingValueReader.isMissing(value);
+	}
+
+}
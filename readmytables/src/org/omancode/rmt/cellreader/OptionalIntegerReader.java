@@ -0,0 +1,54 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * Converts an object to an Integer, or returns a missing value constant if the
+ * object is missing (ie: {@code null} or the empty string).
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class OptionalIntegerReader extends IntegerReader {
+
+	private final int missingValue;
+
+	/**
+	 * Construct reader that returns {@link CellReaders#MISSING_VALUE_INTEGER}
+	 * for missing values.
+	 */
+	public OptionalIntegerReader() {
+		this(CellReaders.MISSING_VALUE_INTEGER);
+	}
+
+	/**
+	 * Construct reader that returns {@code missingValue} for missing values.
+	 * 
+	 * @param missingValue
+	 *            value returned instead of a missing value
+	 */
+	public OptionalIntegerReader(int missingValue) {
+		super();
+		this.missingValue = missingValue;
+	}
+
+	@Override
+	public Integer call(Object value) {
+		return readInt(value);
+	}
+
+	@Override
+	public int readInt(Object value) {
+		return isMissing(value) ? missingValue : objectToInt(value);
+	}
+
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		return isMissing(value) ? result.setInt(missingValue) : super
+				.tryRead(value, result);
+	}
+
+	@Override
+	public boolean isMissing(Object value) {
+		return MissingValueReader.isMissing(value);
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} that can also return its result as a primitive, so
+ * that cells can be read without boxing. The primitive read methods are
+ * declared by the sub-interfaces, eg: {@link IntCellReader#readInt(Object)},
+ * and must return the same value as {@link #call(Object)}.
+ * <p>
+ * Readers of optional values (ie: that return a missing value constant
+ * instead of failing on a missing value) report missing values via
+ * {@link #isMissing(Object)}, so callers do not need to compare the result
+ * to the missing value constant.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ * 
+ * @param <R>
+ *            boxed type of value returned
+ */
+public interface PrimitiveCellReader<R> extends CellReader<R> {
+
+	/**
+	 * Is {@code value} a missing value that this reader reads as its missing
+	 * value constant?
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if {@code value} is missing and this reader reads
+	 *         missing values. Always {@code false} for readers that fail on
+	 *         missing values.
+	 */
+	boolean isMissing(Object value);
+
+}
@@ -0,0 +1,168 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * Holds the outcome of a {@link TryCellReader#tryRead(Object, ReadResult)}:
+ * either the value read, or the reason the value could not be read. Like a
+ * {@link java.text.ParsePosition}, a single instance is reused for many
+ * reads, so reading a cell allocates nothing, whether or not it succeeds.
+ * <p>
+ * The value is held in the type of the reader: readers that implement
+ * {@link IntCellReader}, {@link LongCellReader}, {@link DoubleCellReader} or
+ * {@link BooleanCellReader} store a primitive, and other readers store an
+ * Object.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ReadResult {
+
+	private int intValue;
+	private long longValue;
+	private double doubleValue;
+	private boolean booleanValue;
+	private Object value;
+	private String reason;
+
+	/**
+	 * Store an {@code int} value.
+	 * 
+	 * @param value
+	 *            value read
+	 * @return {@code true}
+	 */
+	public boolean setInt(int value) {
+		this.intValue = value;
+		this.reason = null;
+		return true;
+	}
+
+	/**
+	 * Store a {@code long} value.
+	 * 
+	 * @param value
+	 *            value read
+	 * @return {@code true}
+	 */
+	public boolean setLong(long value) {
+		this.longValue = value;
+		this.reason = null;
+		return true;
+	}
+
+	/**
+	 * Store a {@code double} value.
+	 * 
+	 * @param value
+	 *            value read
+	 * @return {@code true}
+	 */
+	public boolean setDouble(double value) {
+		this.doubleValue = value;
+		this.reason = null;
+		return true;
+	}
+
+	/**
+	 * Store a {@code boolean} value.
+	 * 
+	 * @param value
+	 *            value read
+	 * @return {@code true}
+	 */
+	public boolean setBoolean(boolean value) {
+		this.booleanValue = value;
+		this.reason = null;
+		return true;
+	}
+
+	/**
+	 * Store an Object value.
+	 * 
+	 * @param value
+	 *            value read
+	 * @return {@code true}
+	 */
+	public boolean setValue(Object value) {
+		this.value = value;
+		this.reason = null;
+		return true;
+	}
+
+	/**
+	 * Record that the value could not be read.
+	 * 
+	 * @param reason
+	 *            why the value could not be read. Should be a constant, so
+	 *            failing allocates nothing.
+	 * @return {@code false}
+	 */
+	public boolean fail(String reason) {
+		this.value = null;
+		this.reason = reason;
+		return false;
+	}
+
+	/**
+	 * Did the last read fail?
+	 * 
+	 * @return {@code true} if the last read failed
+	 */
+	public boolean isFailed() {
+		return reason != null;
+	}
+
+	/**
+	 * Why the last read failed.
+	 * 
+	 * @return reason, or {@code null} if the last read succeeded
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	/**
+	 * The {@code int} value of the last read.
+	 * 
+	 * @return value
+	 */
+	public int getInt() {
+		return intValue;
+	}
+
+	/**
+	 * The {@code long} value of the last read.
+	 * 
+	 * @return value
+	 */
+	public long getLong() {
+		return longValue;
+	}
+
+	/**
+	 * The {@code double} value of the last read.
+	 * 
+	 * @return value
+	 */
+	public double getDouble() {
+		return doubleValue;
+	}
+
+	/**
+	 * The {@code boolean} value of the last read.
+	 * 
+	 * @return value
+	 */
+	public boolean getBoolean() {
+		return booleanValue;
+	}
+
+	/**
+	 * The Object value of the last read.
+	 * 
+	 * @return value
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * Fuses common chains of built-in cell readers into a single reader, see
+ * {@link CellReaders#compose(CellReader, CellReader)}. A fused reader returns
+ * the same values, the same result type, and fails with the same exceptions
+ * as the chain it replaces. A fused reader also implements the same reader
+ * interfaces as {@code f}, eg: {@link IntCellReader}, so is read as
+ * efficiently as {@code f} would be on its own.
+ * <p>
+ * Only built-in readers (of exactly the built-in class, not a subclass) are
+ * fused, because a fused reader may read the return value of a substitution
+ * once, rather than every time it is substituted.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class ReaderFusion {
+
+	private ReaderFusion() {
+		// static class, no instantiation
+	}
+
+	/**
+	 * Fuse {@code f} with {@code g}, ie: return a single reader {@code h}
+	 * such that {@code h(x) = f(g(x))}.
+	 * 
+	 * @param f
+	 *            reader applied second
+	 * @param g
+	 *            reader applied first
+	 * @param <F>
+	 *            type returned by cell reader {@code f}
+	 * @return fused reader, or {@code null} if {@code f} and {@code g} cannot
+	 *         be fused
+	 */
+	@SuppressWarnings("unchecked")
+	static <F> CellReader<F> fuse(CellReader<F> f, CellReader<?> g) {
+		if (g.getClass() == IdentityReader.class) {
+			return f;
+		}
+
+		if (g instanceof ComposedReader) {
+			// f(g1(g2(x))): fuse f with g1
+			ComposedReader<?> inner = (ComposedReader<?>) g;
+			CellReader<F> fused = fuse(f, inner.getOuter());
+
+			return fused == null ? null : CellReaders.compose(fused, inner
+					.getInner());
+		}
+
+		if (f instanceof ComposedReader) {
+			// f1(f2(g(x))): fuse f2 with g
+			ComposedReader<F> outer = (ComposedReader<F>) f;
+			CellReader<?> fused = fuse(outer.getInner(), g);
+
+			return fused == null ? null : CellReaders.compose(outer
+					.getOuter(), fused);
+		}
+
+		if (!(g instanceof Substitution) || !isBuiltIn(g) || !isBuiltIn(f)) {
+			return null;
+		}
+
+		try {
+			if (g.getClass() == MissingValueReader.class
+					&& !((MissingValueReader) g).hasTokens()) {
+				Object returnValue = ((MissingValueReader) g).getReturnValue();
+
+				if (f.getClass() == IntegerReader.class
+						|| f.getClass() == OptionalIntegerReader.class) {
+					return (CellReader<F>) new OptionalIntegerReader(
+							((IntegerReader) f).readInt(returnValue));
+				}
+
+				if (f.getClass() == DoubleReader.class
+						|| f.getClass() == OptionalDoubleReader.class) {
+					DoubleReader reader = (DoubleReader) f;
+
+					return (CellReader<F>) new OptionalDoubleReader(reader
+							.readDouble(returnValue), reader.isFastParsing());
+				}
+			}
+
+			return SubstitutingReader.create(f, (Substitution) g);
+		} catch (RuntimeException e) {
+			// f cannot read the return value, so leave the chain to fail
+			// each time it substitutes
+			return null;
+		}
+	}
+
+	/**
+	 * Is {@code reader} exactly one of the built-in readers?
+	 */
+	private static boolean isBuiltIn(CellReader<?> reader) {
+		Class<?> type = reader.getClass();
+
+		return type == BooleanReader.class || type == CharacterReader.class
+				|| type == DoubleReader.class
+				|| type == OptionalDoubleReader.class
+				|| type == IntegerReader.class
+				|| type == OptionalIntegerReader.class
+				|| type == StringReader.class
+				|| type == MissingValueReader.class
+				|| type == TokenReader.class;
+	}
+
+}
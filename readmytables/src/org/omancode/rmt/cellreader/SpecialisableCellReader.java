@@ -0,0 +1,33 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} that can return a variant of itself specialised for
+ * cells of a particular type, eg: text cells from a delimited file, or
+ * {@link Double} cells from the numeric columns of a spreadsheet. The variant
+ * checks for that type first, and converts it without testing for all the
+ * other types the reader accepts.
+ * <p>
+ * The variant must read every value, of any type, the same as this reader
+ * (ie: return the same values and throw the same exceptions), and implement
+ * the same reader interfaces, eg: {@link IntCellReader}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ * 
+ * @param <R>
+ *            type of value returned
+ */
+public interface SpecialisableCellReader<R> extends CellReader<R> {
+
+	/**
+	 * Return a variant of this reader specialised for cells of
+	 * {@code cellType}.
+	 * 
+	 * @param cellType
+	 *            type of the cells to be read
+	 * @return specialised reader, or this reader if there is no variant for
+	 *         {@code cellType}
+	 */
+	CellReader<R> specialise(Class<?> cellType);
+
+}
@@ -9,14 +9,17 @@ package org.omancode.rmt.cellreader;
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class StringReader implements
-		CellReader<String> {
+public class StringReader implements CellReader<String>,
+		CharSequenceCellReader<String>, TryCellReader<String> {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = -8349049119312596406L;
 
+	private static final String NULL = "Null object cannot be converted to String";
+	private static final String WRONG_TYPE = "Type cannot be converted to String";
+
 	@Override
 	public Class<String> getResultType() {
 		return String.class;
@@ -27,9 +30,14 @@ public class StringReader implements
 		return objectToString(value);
 	}
 
+	@Override
+	public String call(CharSequence value) {
+		return objectToString(value);
+	}
+
 	/**
 	 * Convert an object to a String without loss of fidelity. Converts Boolean,
-	 * Number, Character, String to String, otherwise throws a runtime
+	 * Number, Character, CharSequence to String, otherwise throws a runtime
 	 * exception.
 	 * 
 	 * @param value
@@ -43,7 +51,8 @@ public class StringReader implements
 		}
 		
 		if (value instanceof Boolean || value instanceof Number
-				|| value instanceof Character || value instanceof String) {
+				|| value instanceof Character
+				|| value instanceof CharSequence) {
 			return value.toString();
 		}
 
@@ -52,4 +61,19 @@ public class StringReader implements
 				+ "cannot be converted to String");
 	}
 
+	@Override
+	public boolean tryRead(Object value, ReadResult result) {
+		if (value == null) {
+			return result.fail(NULL);
+		}
+
+		if (value instanceof Boolean || value instanceof Number
+				|| value instanceof Character
+				|| value instanceof CharSequence) {
+			return result.setValue(value.toString());
+		}
+
+		return result.fail(WRONG_TYPE);
+	}
+
 }
@@ -0,0 +1,352 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link Substitution} fused with the reader that reads its result. Returns
+ * the result of reading the substitution's return value, read once when
+ * constructed, for the values the substitution matches, and reads other
+ * values.
+ * <p>
+ * A fused reader implements the same reader interfaces as the reader it
+ * wraps, so is read as a primitive, as text, without throwing, and is
+ * specialised in the same way. Use {@link #create(CellReader, Substitution)}
+ * to construct the variant for a reader. Text, including a
+ * {@link CharSequence} view of a cell, is matched by its chars, as for a
+ * String cell.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ *
+ * @param <R>
+ *            type of value returned
+ */
+class SubstitutingReader<R> implements CellReader<R> {
+
+	private final Substitution substitution;
+
+	private final CellReader<R> reader;
+
+	private final R substitute;
+
+	/**
+	 * Construct reader. The reader must not implement any reader interfaces
+	 * other than {@link CellReader}, see
+	 * {@link #create(CellReader, Substitution)}.
+	 *
+	 * @param reader
+	 *            reader applied to values not matched, and to the return
+	 *            value of {@code substitution}
+	 * @param substitution
+	 *            substitution
+	 * @throws CellReaderException
+	 *             if {@code reader} cannot read the return value of
+	 *             {@code substitution}
+	 */
+	SubstitutingReader(CellReader<R> reader, Substitution substitution) {
+		this.reader = reader;
+		this.substitution = substitution;
+		this.substitute = reader.call(substitution.getReturnValue());
+	}
+
+	/**
+	 * Fuse {@code substitution} with {@code reader}, in a variant that
+	 * implements the same reader interfaces as {@code reader}.
+	 *
+	 * @param reader
+	 *            reader applied to values not matched, and to the return
+	 *            value of {@code substitution}
+	 * @param substitution
+	 *            substitution
+	 * @param <R>
+	 *            type returned by {@code reader}
+	 * @return fused reader, or {@code null} if there is no variant with the
+	 *         interfaces of {@code reader}
+	 * @throws CellReaderException
+	 *             if {@code reader} cannot read the return value of
+	 *             {@code substitution}
+	 */
+	@SuppressWarnings("unchecked")
+	static <R> CellReader<R> create(CellReader<R> reader,
+			Substitution substitution) {
+		boolean text = reader instanceof CharSequenceCellReader
+				&& reader instanceof TryCellReader;
+
+		if (reader instanceof PrimitiveCellReader
+				|| reader instanceof SpecialisableCellReader) {
+			if (!text || !(reader instanceof SpecialisableCellReader)) {
+				return null;
+			} else if (reader instanceof IntCellReader) {
+				return (CellReader<R>) new IntSubstitutingReader(
+						(CellReader<Integer>) reader, substitution);
+			} else if (reader instanceof DoubleCellReader) {
+				return (CellReader<R>) new DoubleSubstitutingReader(
+						(CellReader<Double>) reader, substitution);
+			} else if (reader instanceof BooleanCellReader) {
+				return (CellReader<R>) new BooleanSubstitutingReader(
+						(CellReader<Boolean>) reader, substitution);
+			}
+
+			return null;
+		}
+
+		if (text) {
+			return new TextSubstitutingReader<R>(reader, substitution);
+		}
+
+		if (reader instanceof CharSequenceCellReader
+				|| reader instanceof TryCellReader) {
+			return null;
+		}
+
+		return new SubstitutingReader<R>(reader, substitution);
+	}
+
+	/**
+	 * Does the substitution replace {@code value}?
+	 *
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if replaced by the substitute
+	 */
+	final boolean matches(Object value) {
+		return value instanceof CharSequence ? substitution
+				.matchesText((CharSequence) value) : substitution
+				.matches(value);
+	}
+
+	/**
+	 * Is the substitute read as missing by a primitive reader? Values
+	 * replaced by a {@link MissingValueReader} are missing, as they are when
+	 * it is fused into an optional reader, eg: {@link OptionalIntegerReader}.
+	 *
+	 * @param reader
+	 *            primitive reader
+	 * @param substitution
+	 *            substitution
+	 * @return {@code true} if the substitute is missing
+	 */
+	static boolean isMissingSubstitute(PrimitiveCellReader<?> reader,
+			Substitution substitution) {
+		return substitution instanceof MissingValueReader
+				|| reader.isMissing(substitution.getReturnValue());
+	}
+
+	final CellReader<R> getReader() {
+		return reader;
+	}
+
+	final Substitution getSubstitution() {
+		return substitution;
+	}
+
+	final R getSubstitute() {
+		return substitute;
+	}
+
+	@Override
+	public R call(Object value) {
+		return matches(value) ? substitute : reader.call(value);
+	}
+
+	@Override
+	public Class<R> getResultType() {
+		return reader.getResultType();
+	}
+
+	/**
+	 * Fused reader of a reader that accepts text and can read without
+	 * throwing.
+	 *
+	 * @param <R>
+	 *            type of value returned
+	 */
+	static class TextSubstitutingReader<R> extends SubstitutingReader<R>
+			implements CharSequenceCellReader<R>, TryCellReader<R> {
+
+		private final CharSequenceCellReader<R> textReader;
+
+		private final TryCellReader<R> tryReader;
+
+		@SuppressWarnings("unchecked")
+		TextSubstitutingReader(CellReader<R> reader,
+				Substitution substitution) {
+			super(reader, substitution);
+			this.textReader = (CharSequenceCellReader<R>) reader;
+			this.tryReader = (TryCellReader<R>) reader;
+		}
+
+		@Override
+		public R call(CharSequence value) {
+			return matches(value) ? getSubstitute() : textReader
+					.call(value);
+		}
+
+		@Override
+		public boolean tryRead(Object value, ReadResult result) {
+			return matches(value) ? storeSubstitute(result) : tryReader
+					.tryRead(value, result);
+		}
+
+		/**
+		 * Store the substitute in {@code result}, in the type the reader
+		 * stores its values in.
+		 *
+		 * @param result
+		 *            result
+		 * @return {@code true}
+		 */
+		boolean storeSubstitute(ReadResult result) {
+			return result.setValue(getSubstitute());
+		}
+	}
+
+	/**
+	 * Fused reader of an {@link IntCellReader}.
+	 */
+	static final class IntSubstitutingReader extends
+			TextSubstitutingReader<Integer> implements IntCellReader,
+			SpecialisableCellReader<Integer> {
+
+		private final IntCellReader intReader;
+
+		private final int intSubstitute;
+
+		private final boolean missingSubstitute;
+
+		IntSubstitutingReader(CellReader<Integer> reader,
+				Substitution substitution) {
+			super(reader, substitution);
+			this.intReader = (IntCellReader) reader;
+			this.intSubstitute = getSubstitute().intValue();
+			this.missingSubstitute = isMissingSubstitute(intReader,
+					substitution);
+		}
+
+		@Override
+		public int readInt(Object value) {
+			return matches(value) ? intSubstitute : intReader
+					.readInt(value);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return matches(value) ? missingSubstitute : intReader
+					.isMissing(value);
+		}
+
+		@Override
+		boolean storeSubstitute(ReadResult result) {
+			return result.setInt(intSubstitute);
+		}
+
+		@Override
+		public CellReader<Integer> specialise(Class<?> cellType) {
+			CellReader<Integer> specialised = CellReaders.specialise(
+					getReader(), cellType);
+
+			return specialised == getReader() ? this
+					: new IntSubstitutingReader(specialised,
+							getSubstitution());
+		}
+	}
+
+	/**
+	 * Fused reader of a {@link DoubleCellReader}.
+	 */
+	static final class DoubleSubstitutingReader extends
+			TextSubstitutingReader<Double> implements DoubleCellReader,
+			SpecialisableCellReader<Double> {
+
+		private final DoubleCellReader doubleReader;
+
+		private final double doubleSubstitute;
+
+		private final boolean missingSubstitute;
+
+		DoubleSubstitutingReader(CellReader<Double> reader,
+				Substitution substitution) {
+			super(reader, substitution);
+			this.doubleReader = (DoubleCellReader) reader;
+			this.doubleSubstitute = getSubstitute().doubleValue();
+			this.missingSubstitute = isMissingSubstitute(doubleReader,
+					substitution);
+		}
+
+		@Override
+		public double readDouble(Object value) {
+			return matches(value) ? doubleSubstitute : doubleReader
+					.readDouble(value);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return matches(value) ? missingSubstitute : doubleReader
+					.isMissing(value);
+		}
+
+		@Override
+		boolean storeSubstitute(ReadResult result) {
+			return result.setDouble(doubleSubstitute);
+		}
+
+		@Override
+		public CellReader<Double> specialise(Class<?> cellType) {
+			CellReader<Double> specialised = CellReaders.specialise(
+					getReader(), cellType);
+
+			return specialised == getReader() ? this
+					: new DoubleSubstitutingReader(specialised,
+							getSubstitution());
+		}
+	}
+
+	/**
+	 * Fused reader of a {@link BooleanCellReader}.
+	 */
+	static final class BooleanSubstitutingReader extends
+			TextSubstitutingReader<Boolean> implements
+			BooleanCellReader, SpecialisableCellReader<Boolean> {
+
+		private final BooleanCellReader booleanReader;
+
+		private final boolean booleanSubstitute;
+
+		private final boolean missingSubstitute;
+
+		BooleanSubstitutingReader(CellReader<Boolean> reader,
+				Substitution substitution) {
+			super(reader, substitution);
+			this.booleanReader = (BooleanCellReader) reader;
+			this.booleanSubstitute = getSubstitute().booleanValue();
+			this.missingSubstitute = isMissingSubstitute(booleanReader,
+					substitution);
+		}
+
+		@Override
+		public boolean readBoolean(Object value) {
+			return matches(value) ? booleanSubstitute : booleanReader
+					.readBoolean(value);
+		}
+
+		@Override
+		public boolean isMissing(Object value) {
+			return matches(value) ? missingSubstitute : booleanReader
+					.isMissing(value);
+		}
+
+		@Override
+		boolean storeSubstitute(ReadResult result) {
+			return result.setBoolean(booleanSubstitute);
+		}
+
+		@Override
+		public CellReader<Boolean> specialise(Class<?> cellType) {
+			CellReader<Boolean> specialised = CellReaders.specialise(
+					getReader(), cellType);
+
+			return specialised == getReader() ? this
+					: new BooleanSubstitutingReader(specialised,
+							getSubstitution());
+		}
+	}
+
+}
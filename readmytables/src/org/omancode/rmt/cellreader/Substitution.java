@@ -0,0 +1,41 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A reader that returns a fixed value instead of the values it matches, and
+ * returns other values unchanged, eg: a {@link MissingValueReader}. Used to
+ * fuse a substitution with the reader that reads its result, see
+ * {@link CellReaders#compose(CellReader, CellReader)}.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+interface Substitution {
+
+	/**
+	 * Is {@code value} replaced by the return value?
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if {@code value} is replaced
+	 */
+	boolean matches(Object value);
+
+	/**
+	 * Is text replaced by the return value? Gives the same result as
+	 * {@link #matches(Object)} for a String of the same chars, so a view of a
+	 * text cell can be matched without creating a String.
+	 * 
+	 * @param text
+	 *            text to check
+	 * @return {@code true} if a String of {@code text} is replaced
+	 */
+	boolean matchesText(CharSequence text);
+
+	/**
+	 * Value returned instead of the values matched.
+	 * 
+	 * @return return value
+	 */
+	Object getReturnValue();
+
+}
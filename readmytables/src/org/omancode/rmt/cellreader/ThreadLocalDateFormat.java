@@ -0,0 +1,51 @@
+package org.omancode.rmt.cellreader;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.util.Date;
+
+/**
+ * A {@link DateFormat} for each thread, cloned from a prototype.
+ * {@link DateFormat} is not thread-safe, so a reader that parses with one
+ * cannot otherwise be shared between threads.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class ThreadLocalDateFormat extends ThreadLocal<DateFormat> {
+
+	private final DateFormat prototype;
+
+	/**
+	 * Construct from a prototype. The prototype is copied, so may be changed
+	 * afterwards.
+	 * 
+	 * @param prototype
+	 *            date format cloned for each thread
+	 */
+	ThreadLocalDateFormat(DateFormat prototype) {
+		this.prototype = (DateFormat) prototype.clone();
+	}
+
+	@Override
+	protected DateFormat initialValue() {
+		return (DateFormat) prototype.clone();
+	}
+
+	/**
+	 * Parse the whole of {@code text} with this thread's format.
+	 * 
+	 * @param text
+	 *            text to parse
+	 * @return date, or {@code null} if {@code text} is not a date in the
+	 *         format
+	 */
+	Date parseWhole(String text) {
+		ParsePosition position = new ParsePosition(0);
+		Date date = get().parse(text, position);
+
+		return date == null || position.getIndex() != text.length() ? null
+				: date;
+	}
+
+}
@@ -0,0 +1,216 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A set of tokens compiled for matching text, eg: the true and false values
+ * of a {@link BooleanReader}. The tokens are held in a hash table, so finding
+ * the token that matches some text takes one pass over the text and usually
+ * one comparison, however many tokens there are.
+ * <p>
+ * Matching can ignore case, with the same comparison as
+ * {@link String#equalsIgnoreCase(String)}, and can ignore whitespace around
+ * the text, with the same whitespace as {@link String#trim()}. Text is
+ * matched in place, so no String is created.
+ * <p>
+ * Immutable, so may be shared between threads.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class TokenMatcher {
+
+	/**
+	 * Returned when no token matches.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private final String[] tokens;
+
+	private final boolean ignoreCase;
+
+	private final boolean trim;
+
+	/**
+	 * Hash table of token positions plus one, or {@code 0} for an empty
+	 * slot.
+	 */
+	private final int[] table;
+
+	/**
+	 * Hash of the token in each slot of {@link #table}.
+	 */
+	private final int[] hashes;
+
+	private final int mask;
+
+	private final int minLength;
+
+	private final int maxLength;
+
+	/**
+	 * Compile tokens.
+	 *
+	 * @param tokens
+	 *            tokens to match. {@code null} tokens never match.
+	 * @param ignoreCase
+	 *            if {@code true}, ignore case when matching
+	 * @param trim
+	 *            if {@code true}, ignore whitespace around the text matched
+	 */
+	public TokenMatcher(String[] tokens, boolean ignoreCase, boolean trim) {
+		this.tokens = tokens.clone();
+		this.ignoreCase = ignoreCase;
+		this.trim = trim;
+
+		int size = Integer.highestOneBit(Math.max(1, tokens.length)) * 4;
+		this.table = new int[size];
+		this.hashes = new int[size];
+		this.mask = size - 1;
+
+		int min = Integer.MAX_VALUE;
+		int max = -1;
+
+		for (int i = 0; i < tokens.length; i++) {
+			String token = tokens[i];
+
+			if (token == null || find(token, 0, token.length()) != NOT_FOUND) {
+				// first of equal tokens is found
+				continue;
+			}
+
+			int hash = hash(token, 0, token.length());
+			int slot = hash & mask;
+
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = i + 1;
+			hashes[slot] = hash;
+			min = Math.min(min, token.length());
+			max = Math.max(max, token.length());
+		}
+
+		this.minLength = min;
+		this.maxLength = max;
+	}
+
+	/**
+	 * Find the token that matches {@code text}.
+	 *
+	 * @param text
+	 *            text to match
+	 * @return position of the token in the tokens this matcher was compiled
+	 *         from, or {@link #NOT_FOUND}
+	 */
+	public int indexOf(CharSequence text) {
+		return indexOf(text, 0, text.length());
+	}
+
+	/**
+	 * Find the token that matches a range of {@code text}.
+	 *
+	 * @param text
+	 *            text to match
+	 * @param start
+	 *            index of the first char
+	 * @param end
+	 *            index after the last char
+	 * @return position of the token in the tokens this matcher was compiled
+	 *         from, or {@link #NOT_FOUND}
+	 */
+	public int indexOf(CharSequence text, int start, int end) {
+		if (trim) {
+			while (start < end && text.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && text.charAt(end - 1) <= ' ') {
+				end--;
+			}
+		}
+
+		int length = end - start;
+
+		// length is checked first, as most text matches no token
+		if (length < minLength || length > maxLength) {
+			return NOT_FOUND;
+		}
+
+		return find(text, start, end);
+	}
+
+	private int find(CharSequence text, int start, int end) {
+		int hash = hash(text, start, end);
+
+		for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1)
+				& mask) {
+			if (hashes[slot] == hash) {
+				String token = tokens[table[slot] - 1];
+
+				if (matches(token, text, start, end)) {
+					return table[slot] - 1;
+				}
+			}
+		}
+
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Does a token match {@code text}?
+	 *
+	 * @param text
+	 *            text to match
+	 * @return {@code true} if a token matches
+	 */
+	public boolean contains(CharSequence text) {
+		return indexOf(text) != NOT_FOUND;
+	}
+
+	/**
+	 * The tokens this matcher was compiled from.
+	 *
+	 * @return tokens
+	 */
+	public String[] getTokens() {
+		return tokens.clone();
+	}
+
+	private int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + fold(text.charAt(i));
+		}
+
+		// spread the bits used by the table
+		return hash ^ (hash >>> 16) ^ (hash >>> 7);
+	}
+
+	private boolean matches(String token, CharSequence text, int start,
+			int end) {
+		if (token.length() != end - start) {
+			return false;
+		}
+
+		for (int i = 0; i < token.length(); i++) {
+			char c1 = token.charAt(i);
+			char c2 = text.charAt(start + i);
+
+			if (c1 != c2 && fold(c1) != fold(c2)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Fold a char so that chars equal ignoring case, as compared by
+	 * {@link String#equalsIgnoreCase(String)}, fold to the same char.
+	 */
+	private char fold(char c) {
+		return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c))
+				: c;
+	}
+
+}
@@ -2,13 +2,17 @@ package org.omancode.rmt.cellreader;
 
 /**
  * Reader that checks the read value and returns a different value if matches a
- * token. Matching is done using the Object equals method. For example, a
- * {@link TokenReader} can be used to return a different value for empty string.
+ * token. Matching a single token is done using the Object equals method. For
+ * example, a {@link TokenReader} can be used to return a different value for
+ * empty string.
+ * <p>
+ * Text can also be matched to a set of tokens with a {@link TokenMatcher}, eg:
+ * to return the same value for {@code "NA"}, {@code "n/a"} and {@code "-"}.
  * 
  * @author Oliver Mannion
  * @version $Revision$
  */
-public class TokenReader implements CellReader<Object> {
+public class TokenReader implements CellReader<Object>, Substitution {
 
 	/**
 	 * 
@@ -18,6 +22,12 @@ public class TokenReader implements CellReader<Object> {
 	private final Object returnValue;
 	private final Object token;
 
+	/**
+	 * Matches text to a set of tokens, or {@code null} if there is a single
+	 * token.
+	 */
+	private final TokenMatcher matcher;
+
 	/**
 	 * Construct a token reader.
 	 * 
@@ -29,6 +39,26 @@ public class TokenReader implements CellReader<Object> {
 	public TokenReader(Object token, Object returnValue) {
 		this.returnValue = returnValue;
 		this.token = token;
+		this.matcher = null;
+	}
+
+	/**
+	 * Construct a token reader that matches text to a set of tokens.
+	 * 
+	 * @param tokens
+	 *            text to check for
+	 * @param returnValue
+	 *            value to return if a token is found
+	 * @param ignoreCase
+	 *            if {@code true}, ignore case when matching
+	 * @param trim
+	 *            if {@code true}, ignore whitespace around the text matched
+	 */
+	public TokenReader(String[] tokens, Object returnValue,
+			boolean ignoreCase, boolean trim) {
+		this.returnValue = returnValue;
+		this.token = null;
+		this.matcher = new TokenMatcher(tokens, ignoreCase, trim);
 	}
 
 	/**
@@ -40,7 +70,44 @@ public class TokenReader implements CellReader<Object> {
 	 * @return result {@code value} or {@link #returnValue}
 	 */
 	public Object iifToken(Object value) {
-		return token.equals(value) ? returnValue : value;
+		return matches(value) ? returnValue : value;
+	}
+
+	/**
+	 * Does {@code value} match the token?
+	 * 
+	 * @param value
+	 *            value to check
+	 * @return {@code true} if {@link #call(Object)} returns the return value
+	 */
+	@Override
+	public boolean matches(Object value) {
+		if (matcher != null) {
+			return value instanceof CharSequence
+					&& matcher.contains((CharSequence) value);
+		}
+
+		return token.equals(value);
+	}
+
+	@Override
+	public boolean matchesText(CharSequence text) {
+		if (matcher != null) {
+			return matcher.contains(text);
+		}
+
+		return token instanceof String ? ((String) token).contentEquals(text)
+				: token.equals(text.toString());
+	}
+
+	/**
+	 * Value returned instead of a token.
+	 * 
+	 * @return return value
+	 */
+	@Override
+	public Object getReturnValue() {
+		return returnValue;
 	}
 
 	@Override
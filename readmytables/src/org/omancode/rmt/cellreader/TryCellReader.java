@@ -0,0 +1,41 @@
+package org.omancode.rmt.cellreader;
+
+/**
+ * A {@link CellReader} that can report values it cannot read without
+ * throwing an exception. Used when bad cells are expected, where creating a
+ * {@link CellReaderException} for each one would cost more than reading the
+ * good cells, eg:
+ * 
+ * <pre>
+ * ReadResult result = new ReadResult();
+ * if (reader.tryRead(cell, result)) {
+ * 	total += result.getInt();
+ * } else {
+ * 	log(result.getReason());
+ * }
+ * </pre>
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ * 
+ * @param <R>
+ *            type of value returned
+ */
+public interface TryCellReader<R> extends CellReader<R> {
+
+	/**
+	 * Reads the passed Object value and converts it, storing the result, or
+	 * the reason it could not be converted, in {@code result}. Returns the
+	 * same values as {@link #call(Object)}, but returns {@code false} where
+	 * {@link #call(Object)} would throw a {@link CellReaderException}.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @param result
+	 *            holder for the result
+	 * @return {@code true} if the value was converted, or {@code false} if
+	 *         it cannot be
+	 */
+	boolean tryRead(Object value, ReadResult result);
+
+}
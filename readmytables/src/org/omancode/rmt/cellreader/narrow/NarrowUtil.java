@@ -29,70 +29,15 @@ public final class NarrowUtil {
 			return null;
 		}
 
-		// initially all types possible
-		boolean booleanPossible = true;
-		boolean integerPossible = true;
-		boolean doublePossible = true;
-		boolean charPossible = true;
-		boolean stringPossible = true;
-
-		boolean allSameClass = true;
-		Class<?> firstClass = values[0].getClass();
+		TypeNarrower narrower = new TypeNarrower(allowMissing);
 
 		// iterate, testing each value, and
 		// widen if necessary
 		for (Object value : values) {
-			TypeCheckedValue checkValue = new TypeCheckedValue(value)
-					.setConvertMissing(allowMissing);
-
-			if (booleanPossible) {
-				booleanPossible = checkValue.canBeBoolean();
-			}
-
-			if (doublePossible) {
-				doublePossible = checkValue.canBeDouble();
-
-				// if can't be a double, then can't be an integer
-				if (!doublePossible) {
-					integerPossible = false;
-				} else if (integerPossible) {
-					integerPossible = checkValue.canBeInteger();
-				}
-
-			}
-
-			if (stringPossible) {
-				stringPossible = checkValue.canBeString();
-
-				// if can't be a string, then can't be a char
-				if (!stringPossible) {
-					charPossible = false;
-				} else if (charPossible) {
-					charPossible = checkValue.canBeChar();
-				}
-
-			}
-
-			if (allSameClass) {
-				allSameClass = value.getClass() == firstClass;
-			}
-		}
-
-		if (booleanPossible) {
-			return Boolean.class;
-		} else if (integerPossible) {
-			return Integer.class;
-		} else if (doublePossible) {
-			return Double.class;
-		} else if (charPossible) {
-			return Character.class;
-		} else if (stringPossible) {
-			return String.class;
-		} else if (allSameClass) {
-			return firstClass;
+			narrower.add(value);
 		}
 
-		return Object.class;
+		return narrower.getType();
 	}
 
 	/**
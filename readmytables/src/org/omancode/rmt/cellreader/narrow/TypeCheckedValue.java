@@ -1,6 +1,5 @@
 package org.omancode.rmt.cellreader.narrow;
 
-import org.omancode.rmt.cellreader.CellReaderException;
 import org.omancode.rmt.cellreader.CellReaders;
 
 /**
@@ -35,6 +34,12 @@ public class TypeCheckedValue {
 	 */
 	private boolean convertMissing = false;
 
+	/**
+	 * Types this value can be, see {@link TypeClassifier}, or {@code -1} if
+	 * not yet classified.
+	 */
+	private int types = -1;
+
 	/**
 	 * Create {@link TypeCheckedValue} from Object.
 	 * 
@@ -55,22 +60,25 @@ public class TypeCheckedValue {
 	 */
 	public TypeCheckedValue setConvertMissing(boolean convertMissing) {
 		this.convertMissing = convertMissing;
+		this.types = -1;
 		return this;
 	}
 
+	private boolean canBe(int type) {
+		if (types == -1) {
+			types = new TypeClassifier(convertMissing).classify(value);
+		}
+
+		return (types & type) != 0;
+	}
+
 	/**
 	 * Check whether this value can be a boolean.
 	 * 
 	 * @return {@code true} if this can be a boolean.
 	 */
 	public boolean canBeBoolean() {
-		try {
-			asBoolean();
-			return true;
-		} catch (CellReaderException e) {
-			return false;
-		}
-
+		return canBe(TypeClassifier.BOOLEAN);
 	}
 
 	/**
@@ -79,13 +87,7 @@ public class TypeCheckedValue {
 	 * @return {@code true} if this can be a double.
 	 */
 	public boolean canBeDouble() {
-		try {
-			asDouble();
-			return true;
-		} catch (CellReaderException e) {
-			return false;
-		}
-
+		return canBe(TypeClassifier.DOUBLE);
 	}
 
 	/**
@@ -94,12 +96,7 @@ public class TypeCheckedValue {
 	 * @return {@code true} if this can be an integer.
 	 */
 	public boolean canBeInteger() {
-		try {
-			asInteger();
-			return true;
-		} catch (CellReaderException e) {
-			return false;
-		}
+		return canBe(TypeClassifier.INTEGER);
 	}
 
 	/**
@@ -108,13 +105,7 @@ public class TypeCheckedValue {
 	 * @return {@code true} if this can be a String.
 	 */
 	public boolean canBeString() {
-		try {
-			asString();
-			return true;
-		} catch (CellReaderException e) {
-			return false;
-		}
-
+		return canBe(TypeClassifier.STRING);
 	}
 
 	/**
@@ -123,13 +114,7 @@ public class TypeCheckedValue {
 	 * @return {@code true} if this can be a Character.
 	 */
 	public boolean canBeChar() {
-		try {
-			asChar();
-			return true;
-		} catch (CellReaderException e) {
-			return false;
-		}
-
+		return canBe(TypeClassifier.CHARACTER);
 	}
 
 	/**
@@ -138,7 +123,7 @@ public class TypeCheckedValue {
 	 * @return boolean
 	 */
 	public boolean asBoolean() {
-		return CellReaders.BOOLEAN.call(value);
+		return CellReaders.BOOLEAN.readBoolean(value);
 	}
 
 	/**
@@ -149,10 +134,10 @@ public class TypeCheckedValue {
 	public double asDouble() {
 
 		if (convertMissing) {
-			return CellReaders.OPTIONAL_DOUBLE.call(value);
+			return CellReaders.OPTIONAL_DOUBLE.readDouble(value);
 		}
 
-		return CellReaders.DOUBLE.call(value);
+		return CellReaders.DOUBLE.readDouble(value);
 	}
 
 	/**
@@ -163,10 +148,10 @@ public class TypeCheckedValue {
 	public int asInteger() {
 
 		if (convertMissing) {
-			return CellReaders.OPTIONAL_INTEGER.call(value);
+			return CellReaders.OPTIONAL_INTEGER.readInt(value);
 		}
 
-		return CellReaders.INTEGER.call(value);
+		return CellReaders.INTEGER.readInt(value);
 	}
 
 	/**
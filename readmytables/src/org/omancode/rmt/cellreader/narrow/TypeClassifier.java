@@ -0,0 +1,230 @@
+package org.omancode.rmt.cellreader.narrow;
+
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.DoubleParser;
+import org.omancode.rmt.cellreader.MissingValueReader;
+import org.omancode.rmt.cellreader.ReadResult;
+
+/**
+ * Decides which types a value can be converted to without loss of fidelity,
+ * without throwing exceptions. Gives the same results as checking whether
+ * {@link CellReaders#BOOLEAN}, {@link CellReaders#INTEGER},
+ * {@link CellReaders#DOUBLE}, {@link CellReaders#CHARACTER} and
+ * {@link CellReaders#STRING} (or {@link CellReaders#OPTIONAL_INTEGER} and
+ * {@link CellReaders#OPTIONAL_DOUBLE} when missing values are allowed) can
+ * read the value.
+ * <p>
+ * Text is checked for integers and doubles in a single pass over its chars.
+ * Only text whose digits are too long to decide whether the double it
+ * represents is a whole number, or that uses a rare form (eg: an exponent or
+ * {@code "NaN"}), is parsed. Other values are checked with the readers'
+ * {@link org.omancode.rmt.cellreader.TryCellReader#tryRead(Object, ReadResult)}.
+ * <p>
+ * A classifier reuses a single {@link ReadResult}, so is not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class TypeClassifier {
+
+	/**
+	 * Value can be a Boolean.
+	 */
+	public static final int BOOLEAN = 1;
+
+	/**
+	 * Value can be an Integer.
+	 */
+	public static final int INTEGER = 2;
+
+	/**
+	 * Value can be a Double.
+	 */
+	public static final int DOUBLE = 4;
+
+	/**
+	 * Value can be a Character.
+	 */
+	public static final int CHARACTER = 8;
+
+	/**
+	 * Value can be a String.
+	 */
+	public static final int STRING = 16;
+
+	/**
+	 * Significant digits of a decimal that are exactly represented by a
+	 * double, so a decimal with a fractional part of no more than this many
+	 * digits in all is not read as a whole number.
+	 */
+	private static final int EXACT_DIGITS = 15;
+
+	/**
+	 * Most digits of a whole number in the {@code int} range.
+	 */
+	private static final int MAX_INT_DIGITS = 10;
+
+	private final boolean allowMissing;
+
+	private final ReadResult result = new ReadResult();
+
+	/**
+	 * Construct classifier.
+	 *
+	 * @param allowMissing
+	 *            if {@code true}, missing values ({@code null} or empty text)
+	 *            can be integers or doubles
+	 */
+	public TypeClassifier(boolean allowMissing) {
+		this.allowMissing = allowMissing;
+	}
+
+	/**
+	 * Decide which types {@code value} can be.
+	 *
+	 * @param value
+	 *            value to classify
+	 * @return a combination of {@link #BOOLEAN}, {@link #INTEGER},
+	 *         {@link #DOUBLE}, {@link #CHARACTER} and {@link #STRING}
+	 */
+	public int classify(Object value) {
+		if (allowMissing && MissingValueReader.isMissing(value)) {
+			return value == null ? INTEGER | DOUBLE : INTEGER | DOUBLE
+					| STRING;
+		}
+
+		int types = 0;
+
+		if (CellReaders.BOOLEAN.tryRead(value, result)) {
+			types |= BOOLEAN;
+		}
+		if (CellReaders.STRING.tryRead(value, result)) {
+			types |= STRING;
+		}
+		if (CellReaders.CHARACTER.tryRead(value, result)) {
+			types |= CHARACTER;
+		}
+
+		if (value instanceof CharSequence) {
+			return types | classifyNumber((CharSequence) value);
+		}
+
+		if (CellReaders.INTEGER.tryRead(value, result)) {
+			types |= INTEGER;
+		}
+		if (CellReaders.DOUBLE.tryRead(value, result)) {
+			types |= DOUBLE;
+		}
+
+		return types;
+	}
+
+	/**
+	 * Decide whether text can be an integer or double, ie: is a number, and
+	 * if so whether it is a whole number in the {@code int} range.
+	 *
+	 * @param text
+	 *            text to classify
+	 * @return {@link #INTEGER}, {@link #DOUBLE}, both, or neither
+	 */
+	private static int classifyNumber(CharSequence text) {
+		int i = 0;
+		int end = text.length();
+
+		// same whitespace as String.trim()
+		while (i < end && text.charAt(i) <= ' ') {
+			i++;
+		}
+		while (end > i && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		boolean negative = false;
+
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+
+		boolean anyDigits = false;
+
+		// significant digits of the whole part, and its value
+		int wholeDigits = 0;
+		long whole = 0;
+
+		// digits of the fraction up to its last non-zero digit
+		int fractionDigits = 0;
+
+		for (; i < end; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			anyDigits = true;
+			if (whole != 0 || digit != 0) {
+				if (wholeDigits <= MAX_INT_DIGITS) {
+					whole = whole * 10 + digit;
+				}
+				wholeDigits++;
+			}
+		}
+
+		if (i < end && text.charAt(i) == '.') {
+			i++;
+			for (int position = 1; i < end; i++, position++) {
+				int digit = text.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				anyDigits = true;
+				if (digit != 0) {
+					fractionDigits = position;
+				}
+			}
+		}
+
+		if (i != end || !anyDigits) {
+			// exponent, suffix, NaN, hexadecimal etc., or not a number
+			return parseNumber(text);
+		}
+
+		if (wholeDigits > MAX_INT_DIGITS) {
+			// too big to be an int, even if it has a fractional part
+			return DOUBLE;
+		}
+
+		if (fractionDigits == 0) {
+			long value = negative ? -whole : whole;
+			boolean isInt = value >= Integer.MIN_VALUE
+					&& value <= Integer.MAX_VALUE;
+			return isInt ? INTEGER | DOUBLE : DOUBLE;
+		}
+
+		if (wholeDigits + fractionDigits <= EXACT_DIGITS) {
+			// the double is nearer the decimal than any whole number
+			return DOUBLE;
+		}
+
+		// the fraction may be lost when read as a double
+		return parseNumber(text);
+	}
+
+	/**
+	 * Decide whether text can be an integer or double by parsing it.
+	 */
+	private static int parseNumber(CharSequence text) {
+		if (!DoubleParser.isDouble(text)) {
+			return 0;
+		}
+
+		double value = Double.parseDouble(text.toString());
+
+		if (value % 1 == 0 && value >= Integer.MIN_VALUE
+				&& value <= Integer.MAX_VALUE) {
+			return INTEGER | DOUBLE;
+		}
+
+		return DOUBLE;
+	}
+
+}
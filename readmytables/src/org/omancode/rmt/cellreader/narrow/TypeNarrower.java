@@ -0,0 +1,127 @@
+package org.omancode.rmt.cellreader.narrow;
+
+/**
+ * Calculates the narrowest type of a sequence of values, one value at a
+ * time, so values can be checked as they are read, and checking can stop
+ * once the type is known. Gives the same type as
+ * {@link NarrowUtil#calcNarrowestType(Object[], boolean)}.
+ * <p>
+ * Once the type has widened to String, values are only checked for being
+ * convertible to a String, which is cheap. Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class TypeNarrower {
+
+	private final TypeClassifier classifier;
+
+	// initially all types possible
+	private boolean booleanPossible = true;
+	private boolean integerPossible = true;
+	private boolean doublePossible = true;
+	private boolean charPossible = true;
+	private boolean stringPossible = true;
+
+	private boolean allSameClass = true;
+	private Class<?> firstClass;
+
+	private long count;
+
+	/**
+	 * Construct narrower.
+	 *
+	 * @param allowMissing
+	 *            allow values that are empty string or null
+	 */
+	public TypeNarrower(boolean allowMissing) {
+		this.classifier = new TypeClassifier(allowMissing);
+	}
+
+	/**
+	 * Check a value, widening the type if necessary.
+	 *
+	 * @param value
+	 *            value
+	 */
+	public void add(Object value) {
+		count++;
+
+		if (booleanPossible || doublePossible || charPossible) {
+			int types = classifier.classify(value);
+
+			booleanPossible &= (types & TypeClassifier.BOOLEAN) != 0;
+
+			// if can't be a double, then can't be an integer
+			doublePossible &= (types & TypeClassifier.DOUBLE) != 0;
+			integerPossible &= doublePossible
+					&& (types & TypeClassifier.INTEGER) != 0;
+
+			// if can't be a string, then can't be a char
+			stringPossible &= (types & TypeClassifier.STRING) != 0;
+			charPossible &= stringPossible
+					&& (types & TypeClassifier.CHARACTER) != 0;
+		} else if (stringPossible) {
+			// same as StringReader
+			stringPossible = value instanceof Boolean
+					|| value instanceof Number || value instanceof Character
+					|| value instanceof CharSequence;
+		}
+
+		if (allSameClass && value != null) {
+			if (firstClass == null) {
+				firstClass = value.getClass();
+			} else {
+				allSameClass = value.getClass() == firstClass;
+			}
+		}
+	}
+
+	/**
+	 * Has the type widened to String or wider? If so the type will not
+	 * become narrower than String, whatever values are added.
+	 *
+	 * @return {@code true} if the type is String or wider
+	 */
+	public boolean isString() {
+		return !(booleanPossible || doublePossible || charPossible);
+	}
+
+	/**
+	 * Number of values added.
+	 *
+	 * @return number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * The narrowest type that will not reduce fidelity of any of the values
+	 * added.
+	 *
+	 * @return narrowest type, or {@code null} if no values have been added
+	 */
+	public Class<?> getType() {
+		if (count == 0) {
+			return null;
+		}
+
+		if (booleanPossible) {
+			return Boolean.class;
+		} else if (integerPossible) {
+			return Integer.class;
+		} else if (doublePossible) {
+			return Double.class;
+		} else if (charPossible) {
+			return Character.class;
+		} else if (stringPossible) {
+			return String.class;
+		} else if (allSameClass && firstClass != null) {
+			return firstClass;
+		}
+
+		return Object.class;
+	}
+
+}
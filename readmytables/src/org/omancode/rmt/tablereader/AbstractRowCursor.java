@@ -0,0 +1,711 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.IOException;
+
+import org.omancode.rmt.cellreader.BooleanCellReader;
+import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.CharSequenceCellReader;
+import org.omancode.rmt.cellreader.DoubleCellReader;
+import org.omancode.rmt.cellreader.IntCellReader;
+import org.omancode.rmt.cellreader.LongCellReader;
+import org.omancode.rmt.cellreader.PrimitiveCellReader;
+import org.omancode.rmt.cellreader.ReadResult;
+import org.omancode.rmt.cellreader.TryCellReader;
+
+/**
+ * A {@link RowCursor} that reads the cells of each row with the column
+ * {@link CellReader}s. Subclasses supply the raw cells of each row, and a
+ * name for a cell to use in error messages.
+ * <p>
+ * Cells of columns with an {@link IntCellReader}, {@link LongCellReader},
+ * {@link DoubleCellReader} or {@link BooleanCellReader} are read into
+ * primitive arrays, and are only boxed if requested via {@link #get(int)} or
+ * {@link #toArray()}.
+ * <p>
+ * Subclasses that read text may also supply each cell as a
+ * {@link CharSequence} via {@link #getCellText(Column)}. This is passed to
+ * columns with a {@link CharSequenceCellReader} instead of the cell from
+ * {@link #getCell(Column)}, so those cells are read without creating a
+ * String.
+ * <p>
+ * A {@link RowFilter} may be set with {@link #setFilter(RowFilter, int[])},
+ * in which case only the filter columns are read before the filter is
+ * called, and the other columns are only read for the rows it accepts.
+ * <p>
+ * In lazy mode (see {@link #setLazy(boolean)}) cells are not read when the
+ * cursor advances. Instead each cell is read the first time its value is
+ * requested, and the value is kept until the next row.
+ * <p>
+ * By default a cell that cannot be read throws an exception. Another
+ * {@link ErrorPolicy} may be set with
+ * {@link #setErrorPolicy(ErrorPolicy, ErrorReport)}, in which case cells of
+ * columns with a {@link TryCellReader} are read without throwing.
+ * <p>
+ * Each column is read with a variant of its cell reader specialised for the
+ * column's cell type (see {@link Column#getCellType()}).
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public abstract class AbstractRowCursor implements RowCursor {
+
+	private final Column[] columns;
+
+	/**
+	 * Reader of each column, specialised for the column's cell type.
+	 */
+	private final CellReader<?>[] readers;
+
+	/**
+	 * Primitive reader of each column, or {@code null} if the column is not
+	 * read as that primitive.
+	 */
+	private final IntCellReader[] intReaders;
+	private final LongCellReader[] longReaders;
+	private final DoubleCellReader[] doubleReaders;
+	private final BooleanCellReader[] booleanReaders;
+
+	/**
+	 * Value each primitive reader reads missing values as, as a long (the
+	 * raw bits of a double, or {@code 1} for {@code true}), if
+	 * {@link #readsMissing}. Only a cell read as this value is checked with
+	 * {@link PrimitiveCellReader#isMissing(Object)}, so most cells are read
+	 * with a single call to their reader.
+	 */
+	private final long[] missingValues;
+	private final boolean[] readsMissing;
+
+	/**
+	 * Readers of each column that accept text, or {@code null} if the
+	 * column's reader does not.
+	 */
+	private final CharSequenceCellReader<?>[] textReaders;
+
+	/**
+	 * Readers of each column that can read without throwing, or {@code null}
+	 * if the column's reader cannot.
+	 */
+	private final TryCellReader<?>[] tryReaders;
+
+	/**
+	 * Values of the current row. Each column uses the array of its type.
+	 */
+	private final Object[] row;
+	private final int[] ints;
+	private final long[] longs;
+	private final double[] doubles;
+	private final boolean[] booleans;
+	private final boolean[] missing;
+
+	/**
+	 * Filter, or {@code null} to return all rows.
+	 */
+	private RowFilter filter;
+
+	/**
+	 * {@code true} for columns read before the filter is called.
+	 */
+	private boolean[] filterColumns;
+
+	/**
+	 * Read cells when first requested?
+	 */
+	private boolean lazy;
+
+	/**
+	 * {@code true} for cells of the current row that have been read. Only
+	 * used in lazy mode.
+	 */
+	private final boolean[] read;
+
+	private ErrorPolicy errorPolicy = ErrorPolicy.FAIL;
+
+	/**
+	 * Report of errors handled by the error policy, or {@code null}.
+	 */
+	private ErrorReport errorReport;
+
+	/**
+	 * Result of a {@link TryCellReader}, reused for each cell.
+	 */
+	private final ReadResult result = new ReadResult();
+
+	/**
+	 * Position of the current row, zero based.
+	 */
+	private long rowNumber = -1;
+
+	private boolean closed;
+
+	/**
+	 * Construct cursor.
+	 * 
+	 * @param columns
+	 *            columns to read
+	 */
+	protected AbstractRowCursor(Column[] columns) {
+		int count = columns.length;
+
+		this.columns = columns;
+		this.readers = new CellReader<?>[count];
+		this.intReaders = new IntCellReader[count];
+		this.longReaders = new LongCellReader[count];
+		this.doubleReaders = new DoubleCellReader[count];
+		this.booleanReaders = new BooleanCellReader[count];
+		this.missingValues = new long[count];
+		this.readsMissing = new boolean[count];
+		this.textReaders = new CharSequenceCellReader<?>[count];
+		this.tryReaders = new TryCellReader<?>[count];
+		this.row = new Object[count];
+		this.ints = new int[count];
+		this.longs = new long[count];
+		this.doubles = new double[count];
+		this.booleans = new boolean[count];
+		this.missing = new boolean[count];
+		this.read = new boolean[count];
+
+		for (int i = 0; i < count; i++) {
+			CellReader<?> reader = CellReaders.specialise(columns[i]
+					.getCellReader(), columns[i].getCellType());
+			readers[i] = reader;
+
+			if (reader instanceof IntCellReader) {
+				intReaders[i] = (IntCellReader) reader;
+			} else if (reader instanceof LongCellReader) {
+				longReaders[i] = (LongCellReader) reader;
+			} else if (reader instanceof DoubleCellReader) {
+				doubleReaders[i] = (DoubleCellReader) reader;
+			} else if (reader instanceof BooleanCellReader) {
+				booleanReaders[i] = (BooleanCellReader) reader;
+			}
+
+			if (reader instanceof PrimitiveCellReader) {
+				initMissingValue(i, (PrimitiveCellReader<?>) reader);
+			}
+
+			if (reader instanceof CharSequenceCellReader) {
+				textReaders[i] = (CharSequenceCellReader<?>) reader;
+			}
+
+			if (reader instanceof TryCellReader) {
+				tryReaders[i] = (TryCellReader<?>) reader;
+			}
+		}
+	}
+
+	/**
+	 * Find the value a primitive reader reads missing values as. Readers of
+	 * optional values read all missing values, including {@code null} or
+	 * empty text, as the same constant.
+	 */
+	private void initMissingValue(int i, PrimitiveCellReader<?> reader) {
+		Object cell = reader.isMissing(null) ? null : "";
+		readsMissing[i] = reader.isMissing(cell);
+
+		if (!readsMissing[i]) {
+			return;
+		}
+
+		if (intReaders[i] != null) {
+			missingValues[i] = intReaders[i].readInt(cell);
+		} else if (longReaders[i] != null) {
+			missingValues[i] = longReaders[i].readLong(cell);
+		} else if (doubleReaders[i] != null) {
+			missingValues[i] = Double.doubleToRawLongBits(doubleReaders[i]
+					.readDouble(cell));
+		} else if (booleanReaders[i] != null) {
+			missingValues[i] = booleanReaders[i].readBoolean(cell) ? 1 : 0;
+		} else {
+			// not read as a primitive
+			readsMissing[i] = false;
+		}
+	}
+
+	/**
+	 * Move to the next row of the table.
+	 * 
+	 * @return {@code true} if there is a row, or {@code false} if there are no
+	 *         more rows
+	 * @throws RuntimeException
+	 *             if the row cannot be read
+	 */
+	protected abstract boolean nextRow();
+
+	/**
+	 * Get the raw value of a cell in the current row.
+	 * 
+	 * @param column
+	 *            column
+	 * @return cell value to be read by the column's cell reader
+	 */
+	protected abstract Object getCell(Column column);
+
+	/**
+	 * Get the text of a cell in the current row without creating a String.
+	 * The text is only used until the next call to this method, so may be a
+	 * view over a reused buffer.
+	 * 
+	 * @param column
+	 *            column
+	 * @return cell text, or {@code null} to use {@link #getCell(Column)}.
+	 *         Returns {@code null} unless overridden.
+	 */
+	protected CharSequence getCellText(Column column) {
+		return null;
+	}
+
+	/**
+	 * Name of a cell in the current row, for use in error messages.
+	 * 
+	 * @param column
+	 *            column
+	 * @return cell name, eg: {@code file.csv: line 2, column "age"}
+	 */
+	protected abstract String getCellName(Column column);
+
+	/**
+	 * Release the underlying table. Called once, when the cursor is
+	 * closed.
+	 * 
+	 * @throws IOException
+	 *             if problem releasing the table
+	 */
+	protected abstract void closeTable() throws IOException;
+
+	/**
+	 * Only return rows accepted by {@code filter}. Must be set before the
+	 * first call to {@link #advance()}.
+	 * 
+	 * @param filter
+	 *            filter, or {@code null} to return all rows
+	 * @param columns
+	 *            positions of the columns read by the filter, zero based.
+	 *            Only these columns have been read when the filter is
+	 *            called.
+	 */
+	public final void setFilter(RowFilter filter, int[] columns) {
+		this.filter = filter;
+		this.filterColumns = new boolean[this.columns.length];
+
+		for (int column : columns) {
+			filterColumns[column] = true;
+		}
+	}
+
+	/**
+	 * Read each cell the first time its value is requested, instead of when
+	 * the cursor advances. The cells of a row that are never requested are
+	 * not read by their cell readers. Errors reading a cell are thrown by the
+	 * method requesting its value, and close the cursor.
+	 * 
+	 * @param lazy
+	 *            {@code true} to read cells when first requested
+	 */
+	public final void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	/**
+	 * Set what to do with cells that cannot be read. Must be set before the
+	 * first call to {@link #advance()}. In lazy mode, a cell of a row already
+	 * returned cannot skip the row, so {@link ErrorPolicy#SKIP_ROW} reads it
+	 * as missing instead.
+	 * 
+	 * @param policy
+	 *            error policy
+	 * @param report
+	 *            report to add the errors handled by the policy to, or
+	 *            {@code null}. Required for {@link ErrorPolicy#COLLECT}.
+	 */
+	public final void setErrorPolicy(ErrorPolicy policy, ErrorReport report) {
+		if (policy == ErrorPolicy.COLLECT && report == null) {
+			throw new IllegalArgumentException(
+					"An error report is required to collect errors");
+		}
+
+		this.errorPolicy = policy;
+		this.errorReport = report;
+	}
+
+	@Override
+	public final boolean advance() {
+		if (closed) {
+			return false;
+		}
+
+		try {
+			while (nextRow()) {
+				rowNumber++;
+
+				if (filter == null) {
+					if (readCells(null, false)) {
+						return true;
+					}
+				} else if (readCells(filterColumns, true)
+						&& filter.accept(this)
+						&& readCells(filterColumns, false)) {
+					return true;
+				}
+			}
+		} catch (RuntimeException e) {
+			closeAfterError();
+			throw e;
+		}
+
+		close();
+		return false;
+	}
+
+	/**
+	 * Read the cells of the current row, or in lazy mode mark them as
+	 * unread.
+	 * 
+	 * @param selected
+	 *            columns to select, or {@code null} for all columns
+	 * @param selection
+	 *            read the selected columns if {@code true}, or those not
+	 *            selected if {@code false}
+	 * @return {@code false} if the row is to be skipped
+	 */
+	private boolean readCells(boolean[] selected, boolean selection) {
+		for (int i = 0; i < columns.length; i++) {
+			boolean isSelected = selected != null && selected[i];
+
+			if (isSelected == selection) {
+				if (lazy && !isSelected) {
+					read[i] = false;
+				} else {
+					if (!readCell(i, true)) {
+						return false;
+					}
+					read[i] = true;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * In lazy mode, read a cell of the current row if it hasn't been read.
+	 * 
+	 * @param i
+	 *            column position
+	 */
+	private void load(int i) {
+		if (lazy && !read[i]) {
+			try {
+				readCell(i, false);
+			} catch (RuntimeException e) {
+				closeAfterError();
+				throw e;
+			}
+
+			read[i] = true;
+		}
+	}
+
+	/**
+	 * Read a cell of the current row.
+	 * 
+	 * @param i
+	 *            column position
+	 * @param canSkip
+	 *            can the row be skipped?
+	 * @return {@code false} if the cell could not be read and the row is to
+	 *         be skipped
+	 */
+	private boolean readCell(int i, boolean canSkip) {
+		Column column = columns[i];
+		Object cell = null;
+
+		try {
+			CharSequence text = textReaders[i] == null ? null
+					: getCellText(column);
+			cell = text == null ? getCell(column) : text;
+
+			if (errorPolicy == ErrorPolicy.FAIL) {
+				convert(i, cell, text != null);
+				return true;
+			}
+
+			String reason = tryConvert(i, cell, text != null);
+
+			if (reason == null) {
+				return true;
+			}
+
+			return handleError(i, cell, reason, canSkip);
+		} catch (RuntimeException e) {
+			throw new RuntimeException(getCellName(column) + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	private void convert(int i, Object cell, boolean isText) {
+		if (intReaders[i] != null) {
+			ints[i] = intReaders[i].readInt(cell);
+			missing[i] = isMissing(i, ints[i], cell);
+		} else if (longReaders[i] != null) {
+			longs[i] = longReaders[i].readLong(cell);
+			missing[i] = isMissing(i, longs[i], cell);
+		} else if (doubleReaders[i] != null) {
+			doubles[i] = doubleReaders[i].readDouble(cell);
+			missing[i] = isMissing(i, Double
+					.doubleToRawLongBits(doubles[i]), cell);
+		} else if (booleanReaders[i] != null) {
+			booleans[i] = booleanReaders[i].readBoolean(cell);
+			missing[i] = isMissing(i, booleans[i] ? 1 : 0, cell);
+		} else if (isText) {
+			row[i] = textReaders[i].call((CharSequence) cell);
+		} else {
+			row[i] = readers[i].call(cell);
+		}
+	}
+
+	/**
+	 * Convert a cell without throwing if its reader is a
+	 * {@link TryCellReader}. Exceptions thrown by other readers are caught.
+	 * 
+	 * @return {@code null} if converted, otherwise the reason the cell could
+	 *         not be converted
+	 */
+	private String tryConvert(int i, Object cell, boolean isText) {
+		TryCellReader<?> reader = tryReaders[i];
+
+		if (reader == null) {
+			try {
+				convert(i, cell, isText);
+				return null;
+			} catch (RuntimeException e) {
+				return e.getMessage() == null ? e.toString() : e
+						.getMessage();
+			}
+		}
+
+		if (!reader.tryRead(cell, result)) {
+			return result.getReason();
+		}
+
+		if (intReaders[i] != null) {
+			ints[i] = result.getInt();
+			missing[i] = isMissing(i, ints[i], cell);
+		} else if (longReaders[i] != null) {
+			longs[i] = result.getLong();
+			missing[i] = isMissing(i, longs[i], cell);
+		} else if (doubleReaders[i] != null) {
+			doubles[i] = result.getDouble();
+			missing[i] = isMissing(i, Double
+					.doubleToRawLongBits(doubles[i]), cell);
+		} else if (booleanReaders[i] != null) {
+			booleans[i] = result.getBoolean();
+			missing[i] = isMissing(i, booleans[i] ? 1 : 0, cell);
+		} else {
+			row[i] = result.getValue();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Was a cell read by a primitive reader missing? The reader is only
+	 * asked if the cell was read as its missing value.
+	 * 
+	 * @param i
+	 *            column position
+	 * @param value
+	 *            value read, as stored in {@link #missingValues}
+	 * @param cell
+	 *            cell read
+	 * @return {@code true} if missing
+	 */
+	private boolean isMissing(int i, long value, Object cell) {
+		return readsMissing[i] && value == missingValues[i]
+				&& ((PrimitiveCellReader<?>) readers[i]).isMissing(cell);
+	}
+
+	/**
+	 * Apply the error policy to a cell that could not be read.
+	 * 
+	 * @return {@code false} if the row is to be skipped
+	 */
+	private boolean handleError(int i, Object cell, String reason,
+			boolean canSkip) {
+		Column column = columns[i];
+
+		if (errorReport != null && errorReport.count()) {
+			// copy the cell, which may be a view over a reused buffer
+			Object value = cell instanceof CharSequence ? cell.toString()
+					: cell;
+			errorReport.add(new ErrorReport.CellError(rowNumber, column
+					.getName(), value, reason, getCellName(column)));
+		}
+
+		if (errorPolicy == ErrorPolicy.SKIP_ROW && canSkip) {
+			return false;
+		}
+
+		// the reader's value for a missing cell, if it has one
+		missing[i] = true;
+		TryCellReader<?> reader = tryReaders[i];
+		boolean substituted = reader != null && reader.tryRead(null, result);
+
+		if (intReaders[i] != null) {
+			ints[i] = substituted ? result.getInt() : 0;
+		} else if (longReaders[i] != null) {
+			longs[i] = substituted ? result.getLong() : 0;
+		} else if (doubleReaders[i] != null) {
+			doubles[i] = substituted ? result.getDouble() : Double.NaN;
+		} else if (booleanReaders[i] != null) {
+			booleans[i] = substituted && result.getBoolean();
+		} else {
+			row[i] = substituted ? result.getValue() : null;
+		}
+
+		return true;
+	}
+
+	@Override
+	public Object get(int column) {
+		load(column);
+
+		if (intReaders[column] != null) {
+			return Integer.valueOf(ints[column]);
+		} else if (longReaders[column] != null) {
+			return Long.valueOf(longs[column]);
+		} else if (doubleReaders[column] != null) {
+			return Double.valueOf(doubles[column]);
+		} else if (booleanReaders[column] != null) {
+			return Boolean.valueOf(booleans[column]);
+		}
+
+		return row[column];
+	}
+
+	@Override
+	public int getInt(int column) {
+		load(column);
+
+		if (intReaders[column] != null) {
+			return ints[column];
+		} else if (row[column] instanceof Integer) {
+			return ((Integer) row[column]).intValue();
+		}
+
+		throw notReadAs(column, "an integer");
+	}
+
+	@Override
+	public long getLong(int column) {
+		load(column);
+
+		if (longReaders[column] != null) {
+			return longs[column];
+		} else if (intReaders[column] != null) {
+			return ints[column];
+		} else if (row[column] instanceof Long
+				|| row[column] instanceof Integer) {
+			return ((Number) row[column]).longValue();
+		}
+
+		throw notReadAs(column, "a long");
+	}
+
+	@Override
+	public double getDouble(int column) {
+		load(column);
+
+		if (doubleReaders[column] != null) {
+			return doubles[column];
+		} else if (intReaders[column] != null) {
+			return ints[column];
+		} else if (longReaders[column] != null) {
+			return longs[column];
+		} else if (row[column] instanceof Number) {
+			return ((Number) row[column]).doubleValue();
+		}
+
+		throw notReadAs(column, "a number");
+	}
+
+	@Override
+	public boolean getBoolean(int column) {
+		load(column);
+
+		if (booleanReaders[column] != null) {
+			return booleans[column];
+		} else if (row[column] instanceof Boolean) {
+			return ((Boolean) row[column]).booleanValue();
+		}
+
+		throw notReadAs(column, "a boolean");
+	}
+
+	private IllegalArgumentException notReadAs(int column, String type) {
+		return new IllegalArgumentException("Column \""
+				+ columns[column].getName() + "\" is not read as " + type);
+	}
+
+	@Override
+	public boolean isMissing(int column) {
+		load(column);
+
+		if (intReaders[column] != null || longReaders[column] != null
+				|| doubleReaders[column] != null
+				|| booleanReaders[column] != null) {
+			return missing[column];
+		}
+
+		return row[column] == null;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return row.length;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] copy = new Object[row.length];
+
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = get(i);
+		}
+
+		return copy;
+	}
+
+	@Override
+	public final void close() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			closeTable();
+		} catch (IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Close without hiding the error that caused the close.
+	 */
+	private void closeAfterError() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			closeTable();
+		} catch (IOException e) {
+			// report the original error instead
+		}
+	}
+
+}
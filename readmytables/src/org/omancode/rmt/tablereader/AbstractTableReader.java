@@ -21,9 +21,12 @@ import org.omancode.util.ArrayUtil;
  * {@link CellReaders#OPTIONAL_DOUBLE}.
  * 
  * <p>
- * Returns an iterator that starts at the first row after the header. Subclasses
- * are responsible for making sure their iterator calls the column's
- * {@link CellReader} on the values it reads.
+ * Rows after the header are read either with an iterator, which returns a new
+ * array for each row, or with a {@link RowCursor}, which reuses a single row.
+ * Subclasses supply the cursor, usually by extending {@link AbstractRowCursor}
+ * which calls the column's {@link CellReader} on the values it reads. The
+ * cursor must release any resources it holds when it is exhausted, fails, or
+ * is closed.
  * 
  * @author Oliver Mannion
  * @version $Revision: 72 $
@@ -53,6 +56,27 @@ public abstract class AbstractTableReader implements Iterable<Object[]> {
 			CellReader<?>[] cellReaders) throws IOException {
 		this.columns = loadCellReadersIntoColumns(initColumns(columnsToRead),
 				cellReaders);
+
+		for (Column column : columns) {
+			column.setCellType(getCellType(column));
+		}
+	}
+
+	/**
+	 * Type of the raw cells the table supplies for a column, eg:
+	 * {@link CharSequence} for a text file. Cursors read the column with a
+	 * variant of its cell reader specialised for this type. Called during
+	 * {@link #initializeColumns(String[], CellReader[])}.
+	 * 
+	 * @param column
+	 *            column
+	 * @return cell type. Returns {@link Object} (ie: unknown) unless
+	 *         overridden.
+	 * @throws IOException
+	 *             if problem reading the table
+	 */
+	protected Class<?> getCellType(Column column) throws IOException {
+		return Object.class;
 	}
 
 	/**
@@ -200,6 +224,207 @@ public abstract class AbstractTableReader implements Iterable<Object[]> {
 		return columnNames;
 	}
 
+	/**
+	 * Returns an iterator over the rows after the header. If the iterator is
+	 * not read to the end it should be closed.
+	 * 
+	 * @return row iterator
+	 */
+	@Override
+	public CloseableIterator<Object[]> iterator() {
+		return new RowCursorIterator(cursor());
+	}
+
+	/**
+	 * Returns a cursor positioned before the first row after the header. If
+	 * the cursor is not read to the end it should be closed.
+	 * 
+	 * @return row cursor
+	 */
+	public abstract RowCursor cursor();
+
+	/**
+	 * Returns a cursor over the rows after the header that reads each cell
+	 * the first time its value is requested, so the cell readers are only
+	 * called for the cells used. Cursors that do not extend
+	 * {@link AbstractRowCursor} are returned as is.
+	 * 
+	 * @return row cursor
+	 * @see AbstractRowCursor#setLazy(boolean)
+	 */
+	public RowCursor lazyCursor() {
+		RowCursor cursor = cursor();
+
+		if (cursor instanceof AbstractRowCursor) {
+			((AbstractRowCursor) cursor).setLazy(true);
+		}
+
+		return cursor;
+	}
+
+	/**
+	 * Returns a cursor over the rows after the header that handles cells
+	 * that cannot be read with {@code policy}. Cursors that do not extend
+	 * {@link AbstractRowCursor} are returned as is, and so fail on the first
+	 * cell that cannot be read.
+	 * 
+	 * @param policy
+	 *            error policy
+	 * @param report
+	 *            report to add the errors handled by the policy to, or
+	 *            {@code null}. Required for {@link ErrorPolicy#COLLECT}.
+	 * @return row cursor
+	 * @throws IllegalArgumentException
+	 *             if collecting errors without a report
+	 * @see AbstractRowCursor#setErrorPolicy(ErrorPolicy, ErrorReport)
+	 */
+	public RowCursor cursor(ErrorPolicy policy, ErrorReport report) {
+		if (policy == ErrorPolicy.COLLECT && report == null) {
+			throw new IllegalArgumentException(
+					"An error report is required to collect errors");
+		}
+
+		RowCursor cursor = cursor();
+
+		if (cursor instanceof AbstractRowCursor) {
+			((AbstractRowCursor) cursor).setErrorPolicy(policy, report);
+		}
+
+		return cursor;
+	}
+
+	/**
+	 * Returns an iterator over the rows after the header that handles cells
+	 * that cannot be read with {@code policy}. See
+	 * {@link #cursor(ErrorPolicy, ErrorReport)}.
+	 * 
+	 * @param policy
+	 *            error policy
+	 * @param report
+	 *            report to add the errors handled by the policy to, or
+	 *            {@code null}. Required for {@link ErrorPolicy#COLLECT}.
+	 * @return row iterator
+	 */
+	public CloseableIterator<Object[]> iterator(ErrorPolicy policy,
+			ErrorReport report) {
+		return new RowCursorIterator(cursor(policy, report));
+	}
+
+	/**
+	 * Returns a cursor over the rows after the header that are accepted by
+	 * {@code filter}. Cursors that extend {@link AbstractRowCursor} only read
+	 * the filter columns of each row before calling the filter, so the cell
+	 * readers of the other columns are only called for the rows returned.
+	 * 
+	 * @param filter
+	 *            filter
+	 * @param filterColumns
+	 *            names of the columns read by the filter
+	 * @return row cursor
+	 * @throws IllegalArgumentException
+	 *             if a filter column is not one of the columns read
+	 */
+	public RowCursor cursor(RowFilter filter, String[] filterColumns) {
+		String[] columnsRead = getColumnsRead();
+		int[] positions = new int[filterColumns.length];
+
+		for (int i = 0; i < filterColumns.length; i++) {
+			positions[i] = ArrayUtil.indexOfString(columnsRead,
+					filterColumns[i], false, 0);
+
+			if (positions[i] == ArrayUtil.INDEX_NOT_FOUND) {
+				throw new IllegalArgumentException(getName()
+						+ " does not read a column with the header \""
+						+ filterColumns[i] + "\"");
+			}
+		}
+
+		RowCursor cursor = cursor();
+
+		if (cursor instanceof AbstractRowCursor) {
+			((AbstractRowCursor) cursor).setFilter(filter, positions);
+			return cursor;
+		}
+
+		return new FilteredRowCursor(cursor, filter);
+	}
+
+	/**
+	 * Returns an iterator over the rows after the header that are accepted
+	 * by {@code filter}. See {@link #cursor(RowFilter, String[])}.
+	 * 
+	 * @param filter
+	 *            filter
+	 * @param filterColumns
+	 *            names of the columns read by the filter
+	 * @return row iterator
+	 * @throws IllegalArgumentException
+	 *             if a filter column is not one of the columns read
+	 */
+	public CloseableIterator<Object[]> iterator(RowFilter filter,
+			String[] filterColumns) {
+		return new RowCursorIterator(cursor(filter, filterColumns));
+	}
+
+	/**
+	 * Returns a {@link RowSpliterator} over the rows after the header, for
+	 * reading parts of the table in parallel. Unless overridden, the
+	 * spliterator cannot be split and reads the rows with {@link #cursor()}.
+	 * 
+	 * @return row spliterator
+	 */
+	public RowSpliterator rowSpliterator() {
+		return new RowSpliterator() {
+
+			private boolean read;
+
+			@Override
+			public RowSpliterator trySplit() {
+				return null;
+			}
+
+			@Override
+			public long estimateSize() {
+				return read ? 0 : Long.MAX_VALUE;
+			}
+
+			@Override
+			public RowCursor cursor() {
+				if (read) {
+					throw new IllegalStateException(getName()
+							+ " rows have already been read");
+				}
+
+				read = true;
+				return AbstractTableReader.this.cursor();
+			}
+		};
+	}
+
+	/**
+	 * Returns an empty batch for reading the columns of this table with
+	 * {@link ColumnBatch#fill(RowCursor)}, eg:
+	 *
+	 * <pre>
+	 * ColumnBatch batch = reader.newBatch(1024);
+	 * RowCursor cursor = reader.cursor();
+	 * try {
+	 * 	while (batch.fill(cursor) &gt; 0) {
+	 * 		...
+	 * 	}
+	 * } finally {
+	 * 	cursor.close();
+	 * }
+	 * </pre>
+	 *
+	 * @param capacity
+	 *            maximum number of rows in the batch
+	 * @return column batch
+	 */
+	public ColumnBatch newBatch(int capacity) {
+		return new ColumnBatch(getColumnTypes(), capacity);
+	}
+
 	/**
 	 * Get the table name.
 	 * 
@@ -0,0 +1,41 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator over a resource, eg: an open file. The resource is released
+ * when the iterator is exhausted, when reading fails, or when
+ * {@link #close()} is called. Call {@link #close()} in a {@code finally}
+ * block if the iterator may not be read to the end, eg:
+ *
+ * <pre>
+ * CloseableIterator&lt;Object[]&gt; rows = reader.iterator();
+ * try {
+ * 	while (rows.hasNext()) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	rows.close();
+ * }
+ * </pre>
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ *
+ * @param <T>
+ *            type of element returned
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Release the resource. Once closed, {@link #hasNext()} returns
+	 * {@code false}. Closing more than once has no effect.
+	 *
+	 * @throws RuntimeException
+	 *             if problem releasing the resource
+	 */
+	@Override
+	void close();
+
+}
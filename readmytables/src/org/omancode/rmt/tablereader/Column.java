@@ -20,6 +20,8 @@ public class Column {
 
 	private CellReader<?> cellReader;
 
+	private Class<?> cellType = Object.class;
+
 	/**
 	 * Construct a {@link Column} with the default cell reader
 	 * {@link CellReaders#IDENTITY}.
@@ -89,6 +91,29 @@ public class Column {
 		this.cellReader = cellReader;
 	}
 
+	/**
+	 * Get the type of the raw cells of this column, as supplied by the table
+	 * before they are read by the cell reader.
+	 * 
+	 * @return cell type, or {@link Object} if cells may be of any type
+	 */
+	public Class<?> getCellType() {
+		return cellType;
+	}
+
+	/**
+	 * Set the type of the raw cells of this column. Cursors read the column
+	 * with a variant of its cell reader specialised for this type, see
+	 * {@link CellReaders#specialise(CellReader, Class)}. Cells of other types
+	 * are still read, but more slowly.
+	 * 
+	 * @param cellType
+	 *            cell type, or {@link Object} if cells may be of any type
+	 */
+	public void setCellType(Class<?> cellType) {
+		this.cellType = cellType;
+	}
+
 	/**
 	 * Returns a map of {@link Column}s, keyed by name.
 	 * 
@@ -0,0 +1,375 @@
+package org.omancode.rmt.tablereader;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A batch of rows stored column by column. Each column is stored in an array
+ * of the type read by its {@link org.omancode.rmt.cellreader.CellReader}, as
+ * follows:
+ * <p>
+ * <table>
+ * <tr>
+ * <td>Result type</td>
+ * <td>Stored as</td>
+ * </tr>
+ * <tr>
+ * <td>Integer</td>
+ * <td>{@code int[]}, see {@link #getInts(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>Long</td>
+ * <td>{@code long[]}, see {@link #getLongs(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>Double</td>
+ * <td>{@code double[]}, see {@link #getDoubles(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>Boolean</td>
+ * <td>{@link BitSet}, see {@link #getBooleans(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>Character</td>
+ * <td>{@code char[]}, see {@link #getChars(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>String</td>
+ * <td>{@code String[]}, see {@link #getStrings(int)}</td>
+ * </tr>
+ * <tr>
+ * <td>anything else</td>
+ * <td>{@code Object[]}, see {@link #getObjects(int)}</td>
+ * </tr>
+ * </table>
+ * </p>
+ * Each column also has a validity bitmap, which is clear for rows whose value
+ * was missing (see {@link RowCursor#isMissing(int)}).
+ * <p>
+ * A batch is filled from a {@link RowCursor} by {@link #fill(RowCursor)}, and
+ * its arrays are reused for each fill. The arrays have a length of
+ * {@link #getCapacity()}, and only the first {@link #size()} elements belong
+ * to the current batch.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ColumnBatch {
+
+	private final Class<?>[] types;
+	private final int capacity;
+
+	/**
+	 * Values of each column. Only the array for the column's type is
+	 * created.
+	 */
+	private final int[][] ints;
+	private final long[][] longs;
+	private final double[][] doubles;
+	private final BitSet[] booleans;
+	private final char[][] chars;
+	private final String[][] strings;
+	private final Object[][] objects;
+
+	private final BitSet[] validity;
+
+	private int size;
+
+	/**
+	 * Construct batch.
+	 *
+	 * @param types
+	 *            type of each column, eg: from
+	 *            {@link AbstractTableReader#getColumnTypes()}
+	 * @param capacity
+	 *            maximum number of rows in the batch
+	 */
+	public ColumnBatch(Class<?>[] types, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+
+		int count = types.length;
+
+		this.types = types.clone();
+		this.capacity = capacity;
+		this.ints = new int[count][];
+		this.longs = new long[count][];
+		this.doubles = new double[count][];
+		this.booleans = new BitSet[count];
+		this.chars = new char[count][];
+		this.strings = new String[count][];
+		this.objects = new Object[count][];
+		this.validity = new BitSet[count];
+
+		for (int i = 0; i < count; i++) {
+			Class<?> type = types[i];
+
+			if (type == Integer.class) {
+				ints[i] = new int[capacity];
+			} else if (type == Long.class) {
+				longs[i] = new long[capacity];
+			} else if (type == Double.class) {
+				doubles[i] = new double[capacity];
+			} else if (type == Boolean.class) {
+				booleans[i] = new BitSet(capacity);
+			} else if (type == Character.class) {
+				chars[i] = new char[capacity];
+			} else if (type == String.class) {
+				strings[i] = new String[capacity];
+			} else {
+				objects[i] = new Object[capacity];
+			}
+
+			validity[i] = new BitSet(capacity);
+		}
+	}
+
+	/**
+	 * Read the next rows of {@code cursor} into this batch, replacing the
+	 * rows of the previous fill.
+	 *
+	 * @param cursor
+	 *            cursor to read. Must have the same columns as this batch.
+	 * @return number of rows read, or {@code 0} if the cursor has no more
+	 *         rows
+	 * @throws IllegalArgumentException
+	 *             if the cursor has a different number of columns, or a
+	 *             value is not of its column's type
+	 */
+	public int fill(RowCursor cursor) {
+		if (cursor.getColumnCount() != types.length) {
+			throw new IllegalArgumentException("Cursor has "
+					+ cursor.getColumnCount() + " columns but the batch has "
+					+ types.length);
+		}
+
+		int previousSize = size;
+		size = 0;
+
+		for (int i = 0; i < types.length; i++) {
+			validity[i].clear();
+
+			if (booleans[i] != null) {
+				booleans[i].clear();
+			}
+		}
+
+		while (size < capacity && cursor.advance()) {
+			for (int i = 0; i < types.length; i++) {
+				readValue(cursor, i);
+			}
+			size++;
+		}
+
+		// release references to the values of the previous fill
+		for (int i = 0; i < types.length && size < previousSize; i++) {
+			if (strings[i] != null) {
+				Arrays.fill(strings[i], size, previousSize, null);
+			} else if (objects[i] != null) {
+				Arrays.fill(objects[i], size, previousSize, null);
+			}
+		}
+
+		return size;
+	}
+
+	private void readValue(RowCursor cursor, int column) {
+		boolean missing = cursor.isMissing(column);
+
+		if (!missing) {
+			validity[column].set(size);
+		}
+
+		if (ints[column] != null) {
+			// primitive columns hold the reader's missing value constant,
+			// other columns hold null
+			ints[column][size] = missing && cursor.get(column) == null ? 0
+					: cursor.getInt(column);
+		} else if (longs[column] != null) {
+			longs[column][size] = missing && cursor.get(column) == null ? 0
+					: cursor.getLong(column);
+		} else if (doubles[column] != null) {
+			doubles[column][size] = missing && cursor.get(column) == null ? 0
+					: cursor.getDouble(column);
+		} else if (booleans[column] != null) {
+			if (!(missing && cursor.get(column) == null)
+					&& cursor.getBoolean(column)) {
+				booleans[column].set(size);
+			}
+		} else if (chars[column] != null) {
+			Character value = (Character) cursor.get(column);
+			chars[column][size] = value == null ? 0 : value.charValue();
+		} else if (strings[column] != null) {
+			strings[column][size] = (String) cursor.get(column);
+		} else {
+			objects[column][size] = cursor.get(column);
+		}
+	}
+
+	/**
+	 * Number of rows in the batch.
+	 *
+	 * @return rows read by the last {@link #fill(RowCursor)}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Maximum number of rows in the batch.
+	 *
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Number of columns.
+	 *
+	 * @return column count
+	 */
+	public int getColumnCount() {
+		return types.length;
+	}
+
+	/**
+	 * Type of a column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return type
+	 */
+	public Class<?> getType(int column) {
+		return types[column];
+	}
+
+	/**
+	 * Values of an Integer column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not an Integer column
+	 */
+	public int[] getInts(int column) {
+		return checkType(ints[column], column, Integer.class);
+	}
+
+	/**
+	 * Values of a Long column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Long column
+	 */
+	public long[] getLongs(int column) {
+		return checkType(longs[column], column, Long.class);
+	}
+
+	/**
+	 * Values of a Double column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Double column
+	 */
+	public double[] getDoubles(int column) {
+		return checkType(doubles[column], column, Double.class);
+	}
+
+	/**
+	 * Values of a Boolean column. Bit {@code n} is set if the value of row
+	 * {@code n} is {@code true}.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Boolean column
+	 */
+	public BitSet getBooleans(int column) {
+		return checkType(booleans[column], column, Boolean.class);
+	}
+
+	/**
+	 * Values of a Character column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Character column
+	 */
+	public char[] getChars(int column) {
+		return checkType(chars[column], column, Character.class);
+	}
+
+	/**
+	 * Values of a String column.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is not a String column
+	 */
+	public String[] getStrings(int column) {
+		return checkType(strings[column], column, String.class);
+	}
+
+	/**
+	 * Values of a column of any other type.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return values, reused by the next fill
+	 * @throws IllegalArgumentException
+	 *             if the column is stored in a typed array
+	 */
+	public Object[] getObjects(int column) {
+		return checkType(objects[column], column, Object.class);
+	}
+
+	/**
+	 * Validity of the values of a column. Bit {@code n} is set if the value
+	 * of row {@code n} is not missing.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return validity bitmap, reused by the next fill
+	 */
+	public BitSet getValidity(int column) {
+		return validity[column];
+	}
+
+	/**
+	 * Is a value not missing?
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @param row
+	 *            row of the batch, zero based
+	 * @return {@code true} if the value is not missing
+	 */
+	public boolean isValid(int column, int row) {
+		return validity[column].get(row);
+	}
+
+	private <T> T checkType(T values, int column, Class<?> type) {
+		if (values == null) {
+			throw new IllegalArgumentException("Column " + column
+					+ " is of type " + types[column].getName() + " not "
+					+ type.getName());
+		}
+
+		return values;
+	}
+
+}
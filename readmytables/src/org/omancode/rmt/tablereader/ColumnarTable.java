@@ -0,0 +1,579 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.omancode.rmt.cellreader.PrimitiveCellReader;
+
+/**
+ * An immutable, in-memory copy of a table, stored column by column. Values
+ * of Integer, Long, Double, Boolean and Character columns are stored as
+ * primitives, in the same arrays as {@link ColumnBatch}, so a numeric table
+ * takes a fraction of the memory of a list of {@code Object[]} rows. Each
+ * column has a validity bitmap for missing values.
+ * <p>
+ * Values can be read by position, eg: {@link #getInt(int, int)}, or like any
+ * other table, with {@link #iterator()} or {@link #cursor()}. A columnar
+ * table is safe to read from multiple threads.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ColumnarTable extends AbstractTableReader {
+
+	/**
+	 * Number of rows read from the source at a time.
+	 */
+	private static final int BATCH_SIZE = 4096;
+
+	private final String name;
+
+	/*
+	 * The fields below are package-private so that they can be written and
+	 * read by TableSnapshot.
+	 */
+
+	final Class<?>[] types;
+	final int rowCount;
+
+	/**
+	 * Values of each column. Only the array for the column's type is
+	 * created, as in {@link ColumnBatch}.
+	 */
+	final int[][] ints;
+	final long[][] longs;
+	final double[][] doubles;
+	final BitSet[] booleans;
+	final char[][] chars;
+	final String[][] strings;
+	final Object[][] objects;
+
+	final BitSet[] validity;
+
+	/**
+	 * {@code true} for columns whose missing values are {@code null}, ie:
+	 * not read by a {@link PrimitiveCellReader} which has a missing value
+	 * constant.
+	 */
+	final boolean[] nullable;
+
+	/**
+	 * Read all rows of {@code source} into memory.
+	 *
+	 * @param source
+	 *            table to read
+	 * @throws RuntimeException
+	 *             if a row of {@code source} cannot be read
+	 */
+	public ColumnarTable(AbstractTableReader source) {
+		int count = source.columns.length;
+
+		this.name = source.getName();
+		this.types = source.getColumnTypes();
+		this.columns = new Column[count];
+		this.nullable = new boolean[count];
+
+		for (int i = 0; i < count; i++) {
+			Column sourceColumn = source.columns[i];
+			columns[i] = new Column(sourceColumn.getName(), i, // NOPMD
+					sourceColumn.getCellReader());
+			nullable[i] = !(sourceColumn.getCellReader()
+					instanceof PrimitiveCellReader);
+		}
+
+		this.ints = new int[count][];
+		this.longs = new long[count][];
+		this.doubles = new double[count][];
+		this.booleans = new BitSet[count];
+		this.chars = new char[count][];
+		this.strings = new String[count][];
+		this.objects = new Object[count][];
+		this.validity = new BitSet[count];
+
+		for (int i = 0; i < count; i++) {
+			Class<?> type = types[i];
+
+			if (type == Integer.class) {
+				ints[i] = new int[BATCH_SIZE];
+			} else if (type == Long.class) {
+				longs[i] = new long[BATCH_SIZE];
+			} else if (type == Double.class) {
+				doubles[i] = new double[BATCH_SIZE];
+			} else if (type == Boolean.class) {
+				booleans[i] = new BitSet();
+			} else if (type == Character.class) {
+				chars[i] = new char[BATCH_SIZE];
+			} else if (type == String.class) {
+				strings[i] = new String[BATCH_SIZE];
+			} else {
+				objects[i] = new Object[BATCH_SIZE];
+			}
+
+			validity[i] = new BitSet();
+		}
+
+		this.rowCount = readRows(source);
+		trim();
+	}
+
+	/**
+	 * Construct from values already in columns, eg: read from a snapshot.
+	 * The arrays are not copied. Columns have the default cell reader.
+	 */
+	ColumnarTable(String name, String[] columnNames, Class<?>[] types,
+			boolean[] nullable, int rowCount, int[][] ints, long[][] longs,
+			double[][] doubles, BitSet[] booleans, char[][] chars,
+			String[][] strings, Object[][] objects, BitSet[] validity) {
+		this.name = name;
+		this.columns = new Column[columnNames.length];
+
+		for (int i = 0; i < columnNames.length; i++) {
+			columns[i] = new Column(columnNames[i], i); // NOPMD
+		}
+
+		this.types = types;
+		this.nullable = nullable;
+		this.rowCount = rowCount;
+		this.ints = ints;
+		this.longs = longs;
+		this.doubles = doubles;
+		this.booleans = booleans;
+		this.chars = chars;
+		this.strings = strings;
+		this.objects = objects;
+		this.validity = validity;
+	}
+
+	/**
+	 * Append the rows of {@code source}, one batch at a time.
+	 *
+	 * @param source
+	 *            table to read
+	 * @return number of rows read
+	 */
+	private int readRows(AbstractTableReader source) {
+		ColumnBatch batch = new ColumnBatch(types, BATCH_SIZE);
+		RowCursor cursor = source.cursor();
+		int size = 0;
+
+		try {
+			int read;
+
+			while ((read = batch.fill(cursor)) > 0) {
+				for (int i = 0; i < types.length; i++) {
+					append(batch, read, i, size);
+				}
+				size += read;
+			}
+		} finally {
+			cursor.close();
+		}
+
+		return size;
+	}
+
+	private void append(ColumnBatch batch, int read, int column, int size) {
+		int length = size + read;
+
+		if (ints[column] != null) {
+			ints[column] = grow(ints[column], length);
+			System.arraycopy(batch.getInts(column), 0, ints[column], size,
+					read);
+		} else if (longs[column] != null) {
+			longs[column] = grow(longs[column], length);
+			System.arraycopy(batch.getLongs(column), 0, longs[column], size,
+					read);
+		} else if (doubles[column] != null) {
+			doubles[column] = grow(doubles[column], length);
+			System.arraycopy(batch.getDoubles(column), 0, doubles[column],
+					size, read);
+		} else if (booleans[column] != null) {
+			appendBits(batch.getBooleans(column), booleans[column], size);
+		} else if (chars[column] != null) {
+			chars[column] = grow(chars[column], length);
+			System.arraycopy(batch.getChars(column), 0, chars[column], size,
+					read);
+		} else if (strings[column] != null) {
+			strings[column] = grow(strings[column], length);
+			System.arraycopy(batch.getStrings(column), 0, strings[column],
+					size, read);
+		} else {
+			objects[column] = grow(objects[column], length);
+			System.arraycopy(batch.getObjects(column), 0, objects[column],
+					size, read);
+		}
+
+		appendBits(batch.getValidity(column), validity[column], size);
+	}
+
+	private static void appendBits(BitSet source, BitSet dest, int offset) {
+		for (int i = source.nextSetBit(0); i >= 0; i = source
+				.nextSetBit(i + 1)) {
+			dest.set(offset + i);
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		return length <= array.length ? array : Arrays.copyOf(array,
+				Math.max(length, array.length * 2));
+	}
+
+	private static long[] grow(long[] array, int length) {
+		return length <= array.length ? array : Arrays.copyOf(array,
+				Math.max(length, array.length * 2));
+	}
+
+	private static double[] grow(double[] array, int length) {
+		return length <= array.length ? array : Arrays.copyOf(array,
+				Math.max(length, array.length * 2));
+	}
+
+	private static char[] grow(char[] array, int length) {
+		return length <= array.length ? array : Arrays.copyOf(array,
+				Math.max(length, array.length * 2));
+	}
+
+	private static <T> T[] grow(T[] array, int length) {
+		return length <= array.length ? array : Arrays.copyOf(array,
+				Math.max(length, array.length * 2));
+	}
+
+	/**
+	 * Shrink the arrays to the number of rows read.
+	 */
+	private void trim() {
+		for (int i = 0; i < types.length; i++) {
+			if (ints[i] != null) {
+				ints[i] = Arrays.copyOf(ints[i], rowCount);
+			} else if (longs[i] != null) {
+				longs[i] = Arrays.copyOf(longs[i], rowCount);
+			} else if (doubles[i] != null) {
+				doubles[i] = Arrays.copyOf(doubles[i], rowCount);
+			} else if (chars[i] != null) {
+				chars[i] = Arrays.copyOf(chars[i], rowCount);
+			} else if (strings[i] != null) {
+				strings[i] = Arrays.copyOf(strings[i], rowCount);
+			} else if (objects[i] != null) {
+				objects[i] = Arrays.copyOf(objects[i], rowCount);
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the column types of the source table.
+	 *
+	 * @return column types
+	 */
+	@Override
+	public Class<?>[] getColumnTypes() {
+		return types.clone();
+	}
+
+	@Override
+	public String[] getHeaderRow() throws IOException {
+		return getColumnsRead();
+	}
+
+	/**
+	 * Number of rows, not including the header.
+	 *
+	 * @return row count
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Get a value.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value as read by the column's cell reader. Missing values of
+	 *         columns not read by a {@link PrimitiveCellReader} are
+	 *         {@code null}.
+	 */
+	public Object get(int row, int column) {
+		checkRow(row);
+
+		if (nullable[column] && !validity[column].get(row)) {
+			return null;
+		} else if (ints[column] != null) {
+			return Integer.valueOf(ints[column][row]);
+		} else if (longs[column] != null) {
+			return Long.valueOf(longs[column][row]);
+		} else if (doubles[column] != null) {
+			return Double.valueOf(doubles[column][row]);
+		} else if (booleans[column] != null) {
+			return Boolean.valueOf(booleans[column].get(row));
+		} else if (chars[column] != null) {
+			return Character.valueOf(chars[column][row]);
+		} else if (strings[column] != null) {
+			return strings[column][row];
+		}
+
+		return objects[column][row];
+	}
+
+	/**
+	 * Get the value of an Integer column.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value, or the missing value constant of the column's reader
+	 * @throws IllegalArgumentException
+	 *             if the column is not an Integer column
+	 */
+	public int getInt(int row, int column) {
+		if (ints[column] == null) {
+			throw notOfType(column, Integer.class);
+		}
+
+		checkRow(row);
+		return ints[column][row];
+	}
+
+	/**
+	 * Get the value of a Long column. Integer columns are widened to long.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value, or the missing value constant of the column's reader
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Long or Integer column
+	 */
+	public long getLong(int row, int column) {
+		checkRow(row);
+
+		if (longs[column] != null) {
+			return longs[column][row];
+		} else if (ints[column] != null) {
+			return ints[column][row];
+		}
+
+		throw notOfType(column, Long.class);
+	}
+
+	/**
+	 * Get the value of a Double column. Integer and Long columns are widened
+	 * to double.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value, or the missing value constant of the column's reader
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Double, Integer or Long column
+	 */
+	public double getDouble(int row, int column) {
+		checkRow(row);
+
+		if (doubles[column] != null) {
+			return doubles[column][row];
+		} else if (ints[column] != null) {
+			return ints[column][row];
+		} else if (longs[column] != null) {
+			return longs[column][row];
+		}
+
+		throw notOfType(column, Double.class);
+	}
+
+	/**
+	 * Get the value of a Boolean column.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Boolean column
+	 */
+	public boolean getBoolean(int row, int column) {
+		if (booleans[column] == null) {
+			throw notOfType(column, Boolean.class);
+		}
+
+		checkRow(row);
+		return booleans[column].get(row);
+	}
+
+	/**
+	 * Get the value of a Character column.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value, or {@code 0} if missing
+	 * @throws IllegalArgumentException
+	 *             if the column is not a Character column
+	 */
+	public char getChar(int row, int column) {
+		if (chars[column] == null) {
+			throw notOfType(column, Character.class);
+		}
+
+		checkRow(row);
+		return chars[column][row];
+	}
+
+	/**
+	 * Get the value of a String column.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not a String column
+	 */
+	public String getString(int row, int column) {
+		if (strings[column] == null) {
+			throw notOfType(column, String.class);
+		}
+
+		checkRow(row);
+		return strings[column][row];
+	}
+
+	/**
+	 * Is a value missing?
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return {@code true} if the value was read as missing
+	 */
+	public boolean isMissing(int row, int column) {
+		checkRow(row);
+		return !validity[column].get(row);
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("Row " + row
+					+ " is not between 0 and " + (rowCount - 1));
+		}
+	}
+
+	private IllegalArgumentException notOfType(int column, Class<?> type) {
+		return new IllegalArgumentException("Column \""
+				+ columns[column].getName() + "\" is of type "
+				+ types[column].getName() + " not " + type.getName());
+	}
+
+	@Override
+	public RowCursor cursor() {
+		return new ColumnarCursor(0, rowCount);
+	}
+
+	/**
+	 * Returns a spliterator that splits the rows in half.
+	 *
+	 * @return row spliterator
+	 */
+	@Override
+	public RowSpliterator rowSpliterator() {
+		return new RowRangeSpliterator(0, rowCount) {
+			@Override
+			protected RowCursor cursor(long fromRow, long toRow) {
+				return new ColumnarCursor((int) fromRow, (int) toRow);
+			}
+		};
+	}
+
+	/**
+	 * Cursor over a range of the rows in memory.
+	 */
+	private class ColumnarCursor implements RowCursor {
+
+		private final int end;
+		private int row;
+		private boolean closed;
+
+		ColumnarCursor(int start, int end) {
+			this.row = start - 1;
+			this.end = end;
+		}
+
+		@Override
+		public boolean advance() {
+			if (closed || row + 1 >= end) {
+				closed = true;
+				return false;
+			}
+
+			row++;
+			return true;
+		}
+
+		@Override
+		public Object get(int column) {
+			return ColumnarTable.this.get(row, column);
+		}
+
+		@Override
+		public int getInt(int column) {
+			return ColumnarTable.this.getInt(row, column);
+		}
+
+		@Override
+		public long getLong(int column) {
+			return ColumnarTable.this.getLong(row, column);
+		}
+
+		@Override
+		public double getDouble(int column) {
+			return ColumnarTable.this.getDouble(row, column);
+		}
+
+		@Override
+		public boolean getBoolean(int column) {
+			return ColumnarTable.this.getBoolean(row, column);
+		}
+
+		@Override
+		public boolean isMissing(int column) {
+			return ColumnarTable.this.isMissing(row, column);
+		}
+
+		@Override
+		public int getColumnCount() {
+			return types.length;
+		}
+
+		@Override
+		public Object[] toArray() {
+			Object[] copy = new Object[types.length];
+
+			for (int i = 0; i < copy.length; i++) {
+				copy[i] = get(i);
+			}
+
+			return copy;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+	}
+
+}
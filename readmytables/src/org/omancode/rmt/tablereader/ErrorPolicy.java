@@ -0,0 +1,38 @@
+package org.omancode.rmt.tablereader;
+
+import org.omancode.rmt.cellreader.TryCellReader;
+
+/**
+ * What a cursor does with a cell its cell reader cannot read, see
+ * {@link AbstractTableReader#cursor(ErrorPolicy, ErrorReport)}. Cells read
+ * by a {@link TryCellReader} are handled without creating an exception.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public enum ErrorPolicy {
+
+	/**
+	 * Throw an exception and close the cursor.
+	 */
+	FAIL,
+
+	/**
+	 * Skip the row, and continue with the next row.
+	 */
+	SKIP_ROW,
+
+	/**
+	 * Read the cell as missing. Its value is the reader's value for a
+	 * missing cell if it has one (eg: {@code OPTIONAL_INTEGER}), otherwise
+	 * {@code 0}, {@code NaN}, {@code false} or {@code null}.
+	 */
+	SUBSTITUTE_MISSING,
+
+	/**
+	 * As {@link #SUBSTITUTE_MISSING}, and add each error to an
+	 * {@link ErrorReport}.
+	 */
+	COLLECT
+
+}
@@ -0,0 +1,188 @@
+package org.omancode.rmt.tablereader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The cells a cursor could not read, see
+ * {@link AbstractTableReader#cursor(ErrorPolicy, ErrorReport)}. Counts every
+ * error, but only keeps the details of the first few, so a table with many
+ * bad cells does not use a lot of memory.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ErrorReport {
+
+	private final int maxErrors;
+
+	private final List<CellError> errors;
+
+	private long errorCount;
+
+	/**
+	 * Construct report.
+	 * 
+	 * @param maxErrors
+	 *            maximum number of errors to keep details of
+	 */
+	public ErrorReport(int maxErrors) {
+		if (maxErrors < 0) {
+			throw new IllegalArgumentException("Maximum errors " + maxErrors
+					+ " is negative");
+		}
+
+		this.maxErrors = maxErrors;
+		this.errors = new ArrayList<CellError>(Math.min(maxErrors, 16));
+	}
+
+	/**
+	 * Count an error.
+	 * 
+	 * @return {@code true} if the details of the error should be added with
+	 *         {@link #add(CellError)}
+	 */
+	boolean count() {
+		errorCount++;
+		return errors.size() < maxErrors;
+	}
+
+	/**
+	 * Add the details of an error.
+	 * 
+	 * @param error
+	 *            error
+	 */
+	void add(CellError error) {
+		errors.add(error);
+	}
+
+	/**
+	 * Total number of errors, including those whose details were not kept.
+	 * 
+	 * @return number of errors
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Details of the first errors, in the order they occurred.
+	 * 
+	 * @return errors
+	 */
+	public List<CellError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * Were there more errors than those kept?
+	 * 
+	 * @return {@code true} if some errors were only counted
+	 */
+	public boolean isTruncated() {
+		return errorCount > errors.size();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(errorCount).append(" errors");
+
+		for (CellError error : errors) {
+			sb.append(System.getProperty("line.separator")).append(error);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * A cell that could not be read.
+	 */
+	public static final class CellError {
+
+		private final long row;
+		private final String column;
+		private final Object value;
+		private final String reason;
+		private final String cellName;
+
+		/**
+		 * Construct error.
+		 * 
+		 * @param row
+		 *            row position, see {@link #getRow()}
+		 * @param column
+		 *            column name
+		 * @param value
+		 *            raw cell value
+		 * @param reason
+		 *            why the cell could not be read
+		 * @param cellName
+		 *            name of the cell, eg:
+		 *            {@code file.csv: line 2, column "age"}
+		 */
+		CellError(long row, String column, Object value, String reason,
+				String cellName) {
+			this.row = row;
+			this.column = column;
+			this.value = value;
+			this.reason = reason;
+			this.cellName = cellName;
+		}
+
+		/**
+		 * Position of the row among the rows read by the cursor, zero based
+		 * (ie: the first row after the header is 0).
+		 * 
+		 * @return row position
+		 */
+		public long getRow() {
+			return row;
+		}
+
+		/**
+		 * Name of the column.
+		 * 
+		 * @return column name
+		 */
+		public String getColumn() {
+			return column;
+		}
+
+		/**
+		 * The raw cell value passed to the column's cell reader.
+		 * 
+		 * @return cell value
+		 */
+		public Object getValue() {
+			return value;
+		}
+
+		/**
+		 * Why the cell could not be read.
+		 * 
+		 * @return reason
+		 */
+		public String getReason() {
+			return reason;
+		}
+
+		/**
+		 * Name of the cell in the table, eg:
+		 * {@code file.csv: line 2, column "age"}.
+		 * 
+		 * @return cell name
+		 */
+		public String getCellName() {
+			return cellName;
+		}
+
+		@Override
+		public String toString() {
+			return cellName + ": " + reason + " (\"" + value + "\")";
+		}
+	}
+
+}
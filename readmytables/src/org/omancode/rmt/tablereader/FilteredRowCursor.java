@@ -0,0 +1,90 @@
+package org.omancode.rmt.tablereader;
+
+/**
+ * Cursor that skips the rows of another cursor that are not accepted by a
+ * {@link RowFilter}. Used for cursors that read all columns of a row at
+ * once, eg: a {@link ColumnarTable}.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+class FilteredRowCursor implements RowCursor {
+
+	private final RowCursor cursor;
+	private final RowFilter filter;
+
+	/**
+	 * Construct cursor.
+	 *
+	 * @param cursor
+	 *            cursor to filter
+	 * @param filter
+	 *            filter
+	 */
+	FilteredRowCursor(RowCursor cursor, RowFilter filter) {
+		this.cursor = cursor;
+		this.filter = filter;
+	}
+
+	@Override
+	public boolean advance() {
+		try {
+			while (cursor.advance()) {
+				if (filter.accept(cursor)) {
+					return true;
+				}
+			}
+		} catch (RuntimeException e) {
+			cursor.close();
+			throw e;
+		}
+
+		return false;
+	}
+
+	@Override
+	public Object get(int column) {
+		return cursor.get(column);
+	}
+
+	@Override
+	public int getInt(int column) {
+		return cursor.getInt(column);
+	}
+
+	@Override
+	public long getLong(int column) {
+		return cursor.getLong(column);
+	}
+
+	@Override
+	public double getDouble(int column) {
+		return cursor.getDouble(column);
+	}
+
+	@Override
+	public boolean getBoolean(int column) {
+		return cursor.getBoolean(column);
+	}
+
+	@Override
+	public boolean isMissing(int column) {
+		return cursor.isMissing(column);
+	}
+
+	@Override
+	public int getColumnCount() {
+		return cursor.getColumnCount();
+	}
+
+	@Override
+	public Object[] toArray() {
+		return cursor.toArray();
+	}
+
+	@Override
+	public void close() {
+		cursor.close();
+	}
+
+}
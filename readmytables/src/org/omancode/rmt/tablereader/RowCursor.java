@@ -0,0 +1,145 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.Closeable;
+
+/**
+ * Reads the rows of a table one at a time into a single reusable row.
+ * Unlike {@link AbstractTableReader#iterator()} no array is created per row,
+ * so a table can be scanned without keeping or allocating rows, eg:
+ * 
+ * <pre>
+ * RowCursor cursor = reader.cursor();
+ * try {
+ * 	while (cursor.advance()) {
+ * 		total += (Double) cursor.get(0);
+ * 	}
+ * } finally {
+ * 	cursor.close();
+ * }
+ * </pre>
+ * 
+ * Values returned by {@link #get(int)} belong to the current row, and the
+ * row is overwritten by the next call to {@link #advance()}. To keep a row,
+ * copy it with {@link #toArray()}.
+ * <p>
+ * Columns read by a {@link org.omancode.rmt.cellreader.PrimitiveCellReader},
+ * eg: {@link org.omancode.rmt.cellreader.CellReaders#INTEGER}, are read as
+ * primitives and can be accessed without boxing via {@link #getInt(int)},
+ * {@link #getLong(int)}, {@link #getDouble(int)}, {@link #getBoolean(int)}
+ * and {@link #isMissing(int)}.
+ * <p>
+ * The underlying table is released when the cursor is exhausted, when a row
+ * fails to read, or when {@link #close()} is called. A cursor is not
+ * thread-safe.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface RowCursor extends Closeable {
+
+	/**
+	 * Move to the next row and read its cells using the column
+	 * {@link org.omancode.rmt.cellreader.CellReader}s.
+	 * 
+	 * @return {@code true} if there is a row, or {@code false} if there are no
+	 *         more rows or the cursor is closed
+	 * @throws RuntimeException
+	 *             if the row cannot be read
+	 */
+	boolean advance();
+
+	/**
+	 * Get a value of the current row.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value read by the column's cell reader. Only valid until the
+	 *         next call to {@link #advance()}.
+	 */
+	Object get(int column);
+
+	/**
+	 * Get an int value of the current row.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not read as an integer
+	 */
+	int getInt(int column);
+
+	/**
+	 * Get a long value of the current row. Integer columns are widened to
+	 * long.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not read as a long or an integer
+	 */
+	long getLong(int column);
+
+	/**
+	 * Get a double value of the current row. Integer and long columns are
+	 * widened to double.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not read as a number
+	 */
+	double getDouble(int column);
+
+	/**
+	 * Get a boolean value of the current row.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return value
+	 * @throws IllegalArgumentException
+	 *             if the column is not read as a boolean
+	 */
+	boolean getBoolean(int column);
+
+	/**
+	 * Was the value of the current row missing? If so, optional readers (eg:
+	 * {@link org.omancode.rmt.cellreader.CellReaders#OPTIONAL_INTEGER}) return
+	 * their missing value constant from {@link #get(int)} and the typed
+	 * accessors.
+	 * 
+	 * @param column
+	 *            position of the column in the columns read, zero based
+	 * @return {@code true} if the column's reader read the value as missing,
+	 *         or the column is not read as a primitive and its value is
+	 *         {@code null}
+	 */
+	boolean isMissing(int column);
+
+	/**
+	 * Number of columns read, ie: the size of each row.
+	 * 
+	 * @return column count
+	 */
+	int getColumnCount();
+
+	/**
+	 * Copy the current row.
+	 * 
+	 * @return new array containing the values of the current row
+	 */
+	Object[] toArray();
+
+	/**
+	 * Release the underlying table. Once closed, {@link #advance()} returns
+	 * {@code false}. Closing more than once has no effect.
+	 * 
+	 * @throws RuntimeException
+	 *             if problem releasing the table
+	 */
+	@Override
+	void close();
+
+}
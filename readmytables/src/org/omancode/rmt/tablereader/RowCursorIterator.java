@@ -0,0 +1,66 @@
+package org.omancode.rmt.tablereader;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator that returns a copy of each row of a {@link RowCursor}. Closing
+ * the iterator closes the cursor.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class RowCursorIterator implements CloseableIterator<Object[]> {
+
+	private final RowCursor cursor;
+
+	/**
+	 * Has the cursor been advanced to the row returned by the next call to
+	 * {@link #next()}?
+	 */
+	private boolean advanced;
+	private boolean hasRow;
+
+	/**
+	 * Construct iterator.
+	 * 
+	 * @param cursor
+	 *            cursor positioned before the first row to return
+	 */
+	public RowCursorIterator(RowCursor cursor) {
+		this.cursor = cursor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!advanced) {
+			hasRow = cursor.advance();
+			advanced = true;
+		}
+
+		return hasRow;
+	}
+
+	@Override
+	public Object[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		advanced = false;
+
+		return cursor.toArray();
+	}
+
+	@Override
+	public void close() {
+		cursor.close();
+		advanced = true;
+		hasRow = false;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+}
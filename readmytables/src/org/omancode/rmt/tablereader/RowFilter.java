@@ -0,0 +1,32 @@
+package org.omancode.rmt.tablereader;
+
+/**
+ * Selects the rows returned by a filtered cursor, see
+ * {@link AbstractTableReader#cursor(RowFilter, String[])}. The filter is
+ * called once the filter columns of a row have been read, and the other
+ * columns are only read if the row is accepted, eg:
+ *
+ * <pre>
+ * RowCursor cursor = reader.cursor(new RowFilter() {
+ * 	public boolean accept(RowCursor row) {
+ * 		return row.getDouble(ageColumn) &gt; 65;
+ * 	}
+ * }, new String[] { &quot;age&quot; });
+ * </pre>
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface RowFilter {
+
+	/**
+	 * Should the row be returned?
+	 *
+	 * @param row
+	 *            cursor positioned at the row. Only the values of the filter
+	 *            columns have been read.
+	 * @return {@code true} to return the row
+	 */
+	boolean accept(RowCursor row);
+
+}
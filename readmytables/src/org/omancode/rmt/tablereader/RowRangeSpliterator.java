@@ -0,0 +1,88 @@
+package org.omancode.rmt.tablereader;
+
+/**
+ * A {@link RowSpliterator} over a range of row numbers, for tables that can
+ * read any range of rows directly, eg: a table held in memory. Splits the
+ * range in half. Subclasses supply a cursor over a range of rows.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public abstract class RowRangeSpliterator implements RowSpliterator {
+
+	private long from;
+	private final long to;
+
+	/**
+	 * Construct spliterator.
+	 *
+	 * @param fromRow
+	 *            first row
+	 * @param toRow
+	 *            row after the last row
+	 */
+	protected RowRangeSpliterator(long fromRow, long toRow) {
+		if (toRow < fromRow) {
+			throw new IllegalArgumentException("Row " + toRow
+					+ " is before row " + fromRow);
+		}
+
+		this.from = fromRow;
+		this.to = toRow;
+	}
+
+	/**
+	 * Returns a cursor over a range of rows.
+	 *
+	 * @param fromRow
+	 *            first row
+	 * @param toRow
+	 *            row after the last row
+	 * @return row cursor
+	 */
+	protected abstract RowCursor cursor(long fromRow, long toRow);
+
+	@Override
+	public RowSpliterator trySplit() {
+		long mid = from + (to - from) / 2;
+
+		if (mid == from) {
+			return null;
+		}
+
+		RowSpliterator prefix = new Part(this, from, mid);
+		from = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return to - from;
+	}
+
+	@Override
+	public RowCursor cursor() {
+		RowCursor cursor = cursor(from, to);
+		from = to;
+		return cursor;
+	}
+
+	/**
+	 * A part split off another spliterator, which reads its rows.
+	 */
+	private static final class Part extends RowRangeSpliterator {
+
+		private final RowRangeSpliterator source;
+
+		Part(RowRangeSpliterator source, long fromRow, long toRow) {
+			super(fromRow, toRow);
+			this.source = source;
+		}
+
+		@Override
+		protected RowCursor cursor(long fromRow, long toRow) {
+			return source.cursor(fromRow, toRow);
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.omancode.rmt.tablereader;
+
+/**
+ * A source of the rows of a table that can be split into parts, so the parts
+ * can be read in parallel. Follows the contract of a Java 8
+ * {@code Spliterator}: {@link #trySplit()} splits off the rows before the
+ * rows that remain in this spliterator, so reading the parts in the order
+ * they were split off, followed by this spliterator, reads the rows in
+ * table order, eg:
+ *
+ * <pre>
+ * RowSpliterator rows = reader.rowSpliterator();
+ * RowSpliterator firstHalf = rows.trySplit();
+ * // read firstHalf.cursor() and rows.cursor() on separate threads
+ * </pre>
+ *
+ * The rows of a part are read with {@link #cursor()}, which takes all its
+ * remaining rows, so a spliterator can be split or read, but not both.
+ * Parts are read concurrently, so the column cell readers must be
+ * thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public interface RowSpliterator {
+
+	/**
+	 * Split off the first part of the remaining rows.
+	 *
+	 * @return a spliterator over the first part of the rows, which are no
+	 *         longer covered by this spliterator, or {@code null} if the
+	 *         rows cannot be split
+	 */
+	RowSpliterator trySplit();
+
+	/**
+	 * Estimate of the amount of remaining work, used to decide whether to
+	 * split further. Tables held in memory return the exact number of rows
+	 * and delimited files return the number of bytes.
+	 *
+	 * @return estimated size, or {@link Long#MAX_VALUE} if unknown
+	 */
+	long estimateSize();
+
+	/**
+	 * Returns a cursor over the remaining rows. Afterwards this spliterator
+	 * has no rows left.
+	 *
+	 * @return row cursor
+	 */
+	RowCursor cursor();
+
+}
@@ -0,0 +1,261 @@
+package org.omancode.rmt.tablereader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.cellreader.CellReaders;
+import org.omancode.rmt.cellreader.MissingValueReader;
+import org.omancode.rmt.cellreader.narrow.NarrowUtil;
+import org.omancode.rmt.cellreader.narrow.TypeNarrower;
+
+/**
+ * Infers the cell readers of a table from a sample of its rows, eg:
+ *
+ * <pre>
+ * AbstractTableReader raw = new DelimitedFileReader(file);
+ * CellReader&lt;?&gt;[] readers = new SchemaInference(1000).inferReaders(raw);
+ * AbstractTableReader table = new DelimitedFileReader(file, null, readers,
+ * 		null);
+ * </pre>
+ *
+ * The sample is either the first rows of the table, or, if reservoir
+ * sampling is set, rows chosen at random from the whole table. The type of
+ * each column is the narrowest type of its sampled values, as calculated by
+ * {@link NarrowUtil#calcNarrowestType(Object[], boolean)} with missing values
+ * allowed. Columns are inferred in parallel, and the values of a column are
+ * only cheaply checked once its type has widened to String.
+ * <p>
+ * The table should be read without cell readers (ie: with the default
+ * {@link CellReaders#IDENTITY}), so the raw cells are sampled.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class SchemaInference {
+
+	private final int sampleSize;
+
+	/**
+	 * Random number generator for reservoir sampling, or {@code null} to
+	 * sample the first rows.
+	 */
+	private Random random;
+
+	/**
+	 * Executor to infer columns with, or {@code null} to create one for each
+	 * inference.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Construct inference from the first {@code sampleSize} rows of a table.
+	 *
+	 * @param sampleSize
+	 *            number of rows to sample
+	 */
+	public SchemaInference(int sampleSize) {
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException("Sample size " + sampleSize
+					+ " is less than 1");
+		}
+
+		this.sampleSize = sampleSize;
+	}
+
+	/**
+	 * Sample rows chosen at random from the whole table, instead of the first
+	 * rows. Reads every row of the table.
+	 *
+	 * @param random
+	 *            random number generator, or {@code null} to sample the first
+	 *            rows
+	 * @return this
+	 */
+	public SchemaInference setReservoirSampling(Random random) {
+		this.random = random;
+		return this;
+	}
+
+	/**
+	 * Infer columns with {@code executor}. It is not shut down afterwards.
+	 *
+	 * @param executor
+	 *            executor, or {@code null} to create one with a thread per
+	 *            processor for each inference
+	 * @return this
+	 */
+	public SchemaInference setExecutor(ExecutorService executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Infer the cell reader of each column read by {@code table}. Columns
+	 * with missing values are given an optional reader, eg:
+	 * {@link CellReaders#OPTIONAL_INTEGER}.
+	 *
+	 * @param table
+	 *            table to sample
+	 * @return cell readers, in the order of
+	 *         {@link AbstractTableReader#getColumnsRead()}
+	 */
+	public CellReader<?>[] inferReaders(AbstractTableReader table) {
+		List<Object[]> sample = sample(table);
+		int count = table.getColumnsRead().length;
+
+		ExecutorService service = executor == null ? Executors
+				.newFixedThreadPool(Math.max(1, Math.min(count, Runtime
+						.getRuntime().availableProcessors()))) : executor;
+
+		try {
+			List<Future<CellReader<?>>> futures =
+					new ArrayList<Future<CellReader<?>>>(count);
+
+			for (int i = 0; i < count; i++) {
+				futures.add(service.submit(new ColumnInference(sample, i)));
+			}
+
+			CellReader<?>[] readers = new CellReader<?>[count];
+
+			for (int i = 0; i < count; i++) {
+				readers[i] = futures.get(i).get();
+			}
+
+			return readers;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause().getMessage(), e
+					.getCause());
+		} finally {
+			if (executor == null) {
+				service.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Infer the type of each column read by {@code table}.
+	 *
+	 * @param table
+	 *            table to sample
+	 * @return column types, in the order of
+	 *         {@link AbstractTableReader#getColumnsRead()}
+	 */
+	public Class<?>[] inferTypes(AbstractTableReader table) {
+		CellReader<?>[] readers = inferReaders(table);
+		Class<?>[] types = new Class<?>[readers.length];
+
+		for (int i = 0; i < readers.length; i++) {
+			types[i] = readers[i].getResultType();
+		}
+
+		return types;
+	}
+
+	/**
+	 * Read the sample rows.
+	 *
+	 * @param table
+	 *            table
+	 * @return sample
+	 */
+	private List<Object[]> sample(AbstractTableReader table) {
+		List<Object[]> sample = new ArrayList<Object[]>();
+		RowCursor cursor = table.cursor();
+
+		try {
+			long row = 0;
+
+			while (cursor.advance()) {
+				if (row < sampleSize) {
+					sample.add(cursor.toArray());
+				} else if (random == null) {
+					break;
+				} else {
+					// replace a sampled row with probability
+					// sampleSize / (row + 1)
+					long replace = (long) (random.nextDouble() * (row + 1));
+
+					if (replace < sampleSize) {
+						sample.set((int) replace, cursor.toArray());
+					}
+				}
+
+				row++;
+			}
+		} finally {
+			cursor.close();
+		}
+
+		return sample;
+	}
+
+	/**
+	 * Cell reader for a column type.
+	 *
+	 * @param type
+	 *            column type, or {@code null} if there are no values
+	 * @param missing
+	 *            does the column have missing values?
+	 * @return cell reader
+	 */
+	public static CellReader<?> readerFor(Class<?> type, boolean missing) {
+		if (type == Boolean.class) {
+			return CellReaders.BOOLEAN;
+		} else if (type == Integer.class) {
+			return missing ? CellReaders.OPTIONAL_INTEGER
+					: CellReaders.INTEGER;
+		} else if (type == Double.class) {
+			return missing ? CellReaders.OPTIONAL_DOUBLE : CellReaders.DOUBLE;
+		} else if (type == Character.class) {
+			return CellReaders.CHARACTER;
+		} else if (type == String.class) {
+			return CellReaders.STRING;
+		}
+
+		return CellReaders.IDENTITY;
+	}
+
+	/**
+	 * Infers the reader of one column of the sample.
+	 */
+	private static final class ColumnInference implements
+			Callable<CellReader<?>> {
+
+		private final List<Object[]> sample;
+		private final int column;
+
+		ColumnInference(List<Object[]> sample, int column) {
+			this.sample = sample;
+			this.column = column;
+		}
+
+		@Override
+		public CellReader<?> call() {
+			TypeNarrower narrower = new TypeNarrower(true);
+			boolean missing = false;
+
+			for (Object[] row : sample) {
+				Object value = row[column];
+
+				missing |= MissingValueReader.isMissing(value);
+				narrower.add(value);
+			}
+
+			return readerFor(narrower.getType(), missing);
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.cellreader.CellReaders;
+
+/**
+ * A directory of binary snapshots of tables read from files, so that a file
+ * is only parsed again when it changes. Each snapshot stores the values
+ * converted by the cell readers, in columns, and is keyed by the file's path,
+ * size and modification time and by a description of how it was read, eg:
+ *
+ * <pre>
+ * SnapshotCache cache = new SnapshotCache(new File(&quot;cache&quot;));
+ * final File file = new File(&quot;people.csv&quot;);
+ * final String[] columns = { &quot;id&quot;, &quot;age&quot; };
+ * final CellReader&lt;?&gt;[] readers = { CellReaders.INTEGER, CellReaders.DOUBLE };
+ *
+ * ColumnarTable table = cache.load(file, SnapshotCache.describe(columns,
+ * 		readers), new SnapshotCache.TableOpener() {
+ * 	public AbstractTableReader open() throws IOException {
+ * 		return new DelimitedFileReader(file, columns, readers, null);
+ * 	}
+ * });
+ * </pre>
+ *
+ * Tables with columns of types other than Integer, Double, Boolean,
+ * Character, String and Object (eg: Date) are read but not snapshotted.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class SnapshotCache {
+
+	/**
+	 * Opens a table when there is no current snapshot of it.
+	 */
+	public interface TableOpener {
+
+		/**
+		 * Open the table.
+		 *
+		 * @return table reader
+		 * @throws IOException
+		 *             if problem opening the table
+		 */
+		AbstractTableReader open() throws IOException;
+	}
+
+	private static final String EXTENSION = ".snapshot";
+
+	private final File directory;
+
+	/**
+	 * Construct cache.
+	 *
+	 * @param directory
+	 *            directory holding the snapshots. Created if it does not
+	 *            exist.
+	 * @throws IOException
+	 *             if {@code directory} cannot be created
+	 */
+	public SnapshotCache(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create snapshot directory "
+					+ directory);
+		}
+
+		this.directory = directory;
+	}
+
+	/**
+	 * Load the snapshot of {@code source}, or if there is no snapshot or
+	 * {@code source} has changed since it was written, read the table from
+	 * {@code opener} and write a new snapshot.
+	 *
+	 * @param source
+	 *            file the table is read from
+	 * @param configuration
+	 *            how the table is read, eg: from
+	 *            {@link #describe(String[], CellReader[])}. A snapshot is only
+	 *            loaded if it was written with the same configuration.
+	 * @param opener
+	 *            opens the table if it has to be read
+	 * @return table
+	 * @throws IOException
+	 *             if problem reading the table or the snapshot, or writing
+	 *             the snapshot
+	 */
+	public ColumnarTable load(File source, String configuration,
+			TableOpener opener) throws IOException {
+		// the key is taken before reading, so if the source changes while
+		// being read the snapshot is stale
+		String key = key(source, configuration);
+		File snapshot = getSnapshotFile(source, configuration);
+
+		if (snapshot.isFile()) {
+			ColumnarTable table = TableSnapshot.read(snapshot, key);
+
+			if (table != null) {
+				return table;
+			}
+		}
+
+		ColumnarTable table = new ColumnarTable(opener.open());
+
+		if (TableSnapshot.isSupported(table)) {
+			TableSnapshot.write(table, key, snapshot);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Delete the snapshot of {@code source}, if any.
+	 *
+	 * @param source
+	 *            file the table is read from
+	 * @param configuration
+	 *            how the table is read
+	 * @throws IOException
+	 *             if the snapshot cannot be deleted
+	 */
+	public void invalidate(File source, String configuration)
+			throws IOException {
+		File snapshot = getSnapshotFile(source, configuration);
+
+		if (snapshot.exists() && !snapshot.delete()) {
+			throw new IOException("Cannot delete snapshot " + snapshot);
+		}
+	}
+
+	/**
+	 * The snapshot file of {@code source}.
+	 *
+	 * @param source
+	 *            file the table is read from
+	 * @param configuration
+	 *            how the table is read
+	 * @return snapshot file, which may not exist
+	 * @throws IOException
+	 *             if problem resolving the path of {@code source}
+	 */
+	public File getSnapshotFile(File source, String configuration)
+			throws IOException {
+		String path = source.getCanonicalPath();
+
+		// the name only has to be unlikely to collide, as the snapshot
+		// contains the full key
+		return new File(directory, source.getName() + "-"
+				+ Integer.toHexString(path.hashCode()) + "-"
+				+ Integer.toHexString(configuration.hashCode()) + EXTENSION);
+	}
+
+	private static String key(File source, String configuration)
+			throws IOException {
+		if (!source.isFile()) {
+			throw new IOException(source + " does not exist");
+		}
+
+		return source.getCanonicalPath() + "\n" + source.length() + "\n"
+				+ source.lastModified() + "\n" + configuration;
+	}
+
+	/**
+	 * Describe the columns and cell readers used to read a table. Cell
+	 * readers are described by their default reader name (see
+	 * {@link CellReaders#getDefaultReaderName(CellReader)}), or otherwise by
+	 * their class and result type. Other readers of the same class that are
+	 * configured differently have the same description, so tables read with
+	 * them need their own configuration string.
+	 *
+	 * @param columnsToRead
+	 *            columns read, or {@code null} if all columns are read
+	 * @param cellReaders
+	 *            cell readers, or {@code null} for the defaults
+	 * @return configuration
+	 */
+	public static String describe(String[] columnsToRead,
+			CellReader<?>[] cellReaders) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("columns=");
+		if (columnsToRead == null) {
+			sb.append("*");
+		} else {
+			for (String column : columnsToRead) {
+				sb.append(column).append(',');
+			}
+		}
+
+		sb.append(";readers=");
+		if (cellReaders == null) {
+			sb.append("*");
+		} else {
+			for (CellReader<?> reader : cellReaders) {
+				String name = CellReaders.getDefaultReaderName(reader);
+
+				if (name == null) {
+					name = reader.getClass().getName() + "/"
+							+ reader.getResultType().getName();
+				}
+
+				sb.append(name).append(',');
+			}
+		}
+
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,450 @@
+package org.omancode.rmt.tablereader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * Reads and writes {@link ColumnarTable}s in a binary, columnar format. A
+ * snapshot starts with a key identifying what it was read from, followed by
+ * the table name, the column names and types, and then the values of each
+ * column. Primitive columns are stored as arrays of their primitive type, so
+ * they are read back in bulk. Doubles are stored as their raw bits, so NaN
+ * missing value constants are kept.
+ * <p>
+ * Columns of type Integer, Long, Double, Boolean, Character, String and
+ * Object are supported. Values of Object columns must be {@code null} or one
+ * of those types.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class TableSnapshot {
+
+	/**
+	 * "RMTS".
+	 */
+	private static final int MAGIC = 0x524D5453;
+
+	private static final int VERSION = 1;
+
+	private static final byte INT = 1;
+	private static final byte DOUBLE = 2;
+	private static final byte BOOLEAN = 3;
+	private static final byte CHAR = 4;
+	private static final byte STRING = 5;
+	private static final byte OBJECT = 6;
+	private static final byte LONG = 7;
+
+	private static final Class<?>[] TYPES = { null, Integer.class,
+			Double.class, Boolean.class, Character.class, String.class,
+			Object.class, Long.class };
+
+	private static final int BITS_PER_WORD = 64;
+
+	private TableSnapshot() {
+		// static class, no instantiation
+	}
+
+	/**
+	 * Can {@code table} be written?
+	 *
+	 * @param table
+	 *            table
+	 * @return {@code true} if all column types and values are supported
+	 */
+	static boolean isSupported(ColumnarTable table) {
+		for (int i = 0; i < table.types.length; i++) {
+			if (kind(table.types[i]) == 0) {
+				return false;
+			}
+
+			Object[] values = table.objects[i];
+
+			if (values != null) {
+				for (int j = 0; j < table.rowCount; j++) {
+					if (tag(values[j]) < 0) {
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static byte kind(Class<?> type) {
+		for (byte i = 1; i < TYPES.length; i++) {
+			if (TYPES[i] == type) {
+				return i;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Kind of an Object column value, or {@code 0} for {@code null}.
+	 */
+	private static byte tag(Object value) {
+		if (value == null) {
+			return 0;
+		}
+
+		byte kind = kind(value.getClass());
+		return kind == 0 || kind == OBJECT ? -1 : kind;
+	}
+
+	/**
+	 * Write {@code table} to {@code file}. The snapshot is written to a
+	 * temporary file which then replaces {@code file}, so a snapshot that
+	 * fails part way through writing is never read.
+	 *
+	 * @param table
+	 *            table to write. Must be {@link #isSupported(ColumnarTable)}.
+	 * @param key
+	 *            identifies what the table was read from
+	 * @param file
+	 *            snapshot file
+	 * @throws IOException
+	 *             if problem writing
+	 */
+	static void write(ColumnarTable table, String key, File file)
+			throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+
+		try {
+			writeTable(table, key, out);
+		} finally {
+			out.close();
+		}
+
+		if (file.exists() && !file.delete()) {
+			temp.delete();
+			throw new IOException("Cannot replace snapshot " + file);
+		}
+
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Cannot write snapshot " + file);
+		}
+	}
+
+	private static void writeTable(ColumnarTable table, String key,
+			DataOutputStream out) throws IOException {
+		int rows = table.rowCount;
+		String[] names = table.getColumnsRead();
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, key);
+		writeString(out, table.getName());
+		out.writeInt(names.length);
+		out.writeInt(rows);
+
+		for (int i = 0; i < names.length; i++) {
+			writeString(out, names[i]);
+			out.writeByte(kind(table.types[i]));
+			out.writeBoolean(table.nullable[i]);
+			writeBits(out, table.validity[i], rows);
+
+			if (table.ints[i] != null) {
+				for (int j = 0; j < rows; j++) {
+					out.writeInt(table.ints[i][j]);
+				}
+			} else if (table.longs[i] != null) {
+				for (int j = 0; j < rows; j++) {
+					out.writeLong(table.longs[i][j]);
+				}
+			} else if (table.doubles[i] != null) {
+				for (int j = 0; j < rows; j++) {
+					writeDouble(out, table.doubles[i][j]);
+				}
+			} else if (table.booleans[i] != null) {
+				writeBits(out, table.booleans[i], rows);
+			} else if (table.chars[i] != null) {
+				for (int j = 0; j < rows; j++) {
+					out.writeChar(table.chars[i][j]);
+				}
+			} else if (table.strings[i] != null) {
+				for (int j = 0; j < rows; j++) {
+					writeString(out, table.strings[i][j]);
+				}
+			} else {
+				for (int j = 0; j < rows; j++) {
+					writeObject(out, table.objects[i][j]);
+				}
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(value.length());
+			out.writeChars(value);
+		}
+	}
+
+	/**
+	 * Write the raw bits of a double. {@link DataOutputStream#writeDouble}
+	 * collapses every NaN to the canonical NaN, which would lose missing
+	 * value constants such as {@code CellReaders.MISSING_VALUE_DOUBLE}.
+	 */
+	private static void writeDouble(DataOutputStream out, double value)
+			throws IOException {
+		out.writeLong(Double.doubleToRawLongBits(value));
+	}
+
+	private static void writeObject(DataOutputStream out, Object value)
+			throws IOException {
+		byte tag = tag(value);
+		out.writeByte(tag);
+
+		switch (tag) {
+		case INT:
+			out.writeInt(((Integer) value).intValue());
+			break;
+		case LONG:
+			out.writeLong(((Long) value).longValue());
+			break;
+		case DOUBLE:
+			writeDouble(out, ((Double) value).doubleValue());
+			break;
+		case BOOLEAN:
+			out.writeBoolean(((Boolean) value).booleanValue());
+			break;
+		case CHAR:
+			out.writeChar(((Character) value).charValue());
+			break;
+		case STRING:
+			writeString(out, (String) value);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static void writeBits(DataOutputStream out, BitSet bits, int size)
+			throws IOException {
+		long[] words = new long[(size + BITS_PER_WORD - 1) / BITS_PER_WORD];
+
+		for (int i = bits.nextSetBit(0); i >= 0 && i < size; i = bits
+				.nextSetBit(i + 1)) {
+			words[i / BITS_PER_WORD] |= 1L << (i % BITS_PER_WORD);
+		}
+
+		for (long word : words) {
+			out.writeLong(word);
+		}
+	}
+
+	/**
+	 * Read a snapshot. The file is read into memory rather than mapped, as a
+	 * mapping is only released when garbage collected, and while it is open
+	 * some platforms (eg: Windows) do not allow the file to be replaced by
+	 * {@link #write(ColumnarTable, String, File)}.
+	 *
+	 * @param file
+	 *            snapshot file
+	 * @param key
+	 *            identifies what the table must have been read from
+	 * @return table, or {@code null} if the snapshot has a different key or is
+	 *         not a valid snapshot
+	 * @throws IOException
+	 *             if problem reading {@code file}
+	 */
+	static ColumnarTable read(File file, String key) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		ByteBuffer buffer;
+
+		try {
+			FileChannel channel = input.getChannel();
+
+			if (channel.size() > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			buffer = ByteBuffer.allocate((int) channel.size());
+
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					// truncated while being read
+					return null;
+				}
+			}
+
+			buffer.flip();
+		} finally {
+			input.close();
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+					|| !key.equals(readString(buffer))) {
+				return null;
+			}
+
+			return readTable(buffer);
+		} catch (BufferUnderflowException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (NegativeArraySizeException e) {
+			return null;
+		}
+	}
+
+	private static ColumnarTable readTable(ByteBuffer buffer) {
+		String name = readString(buffer);
+		int count = buffer.getInt();
+		int rows = buffer.getInt();
+
+		// each row of a column takes at least a bit
+		if (count < 0 || rows < 0 || rows / 8 > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid table size");
+		}
+
+		String[] names = new String[count];
+		Class<?>[] types = new Class<?>[count];
+		boolean[] nullable = new boolean[count];
+		int[][] ints = new int[count][];
+		long[][] longs = new long[count][];
+		double[][] doubles = new double[count][];
+		BitSet[] booleans = new BitSet[count];
+		char[][] chars = new char[count][];
+		String[][] strings = new String[count][];
+		Object[][] objects = new Object[count][];
+		BitSet[] validity = new BitSet[count];
+
+		for (int i = 0; i < count; i++) {
+			names[i] = readString(buffer);
+
+			byte kind = buffer.get();
+			if (kind < INT || kind >= TYPES.length) {
+				throw new IllegalArgumentException("Unknown column kind "
+						+ kind);
+			}
+
+			types[i] = TYPES[kind];
+			nullable[i] = buffer.get() != 0;
+			validity[i] = readBits(buffer, rows);
+
+			switch (kind) {
+			case INT:
+				ints[i] = new int[rows];
+				buffer.asIntBuffer().get(ints[i]);
+				skip(buffer, rows * 4);
+				break;
+			case LONG:
+				longs[i] = new long[rows];
+				buffer.asLongBuffer().get(longs[i]);
+				skip(buffer, rows * 8);
+				break;
+			case DOUBLE:
+				doubles[i] = new double[rows];
+				buffer.asDoubleBuffer().get(doubles[i]);
+				skip(buffer, rows * 8);
+				break;
+			case BOOLEAN:
+				booleans[i] = readBits(buffer, rows);
+				break;
+			case CHAR:
+				chars[i] = new char[rows];
+				buffer.asCharBuffer().get(chars[i]);
+				skip(buffer, rows * 2);
+				break;
+			case STRING:
+				strings[i] = new String[rows];
+				for (int j = 0; j < rows; j++) {
+					strings[i][j] = readString(buffer);
+				}
+				break;
+			default:
+				objects[i] = new Object[rows];
+				for (int j = 0; j < rows; j++) {
+					objects[i][j] = readObject(buffer);
+				}
+				break;
+			}
+		}
+
+		return new ColumnarTable(name, names, types, nullable, rows, ints,
+				longs, doubles, booleans, chars, strings, objects, validity);
+	}
+
+	private static void skip(ByteBuffer buffer, int bytes) {
+		buffer.position(buffer.position() + bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		if (length > buffer.remaining() / 2) {
+			throw new BufferUnderflowException();
+		}
+
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = buffer.getChar();
+		}
+
+		return new String(chars);
+	}
+
+	private static Object readObject(ByteBuffer buffer) {
+		byte tag = buffer.get();
+
+		switch (tag) {
+		case 0:
+			return null;
+		case INT:
+			return Integer.valueOf(buffer.getInt());
+		case LONG:
+			return Long.valueOf(buffer.getLong());
+		case DOUBLE:
+			return Double.valueOf(buffer.getDouble());
+		case BOOLEAN:
+			return Boolean.valueOf(buffer.get() != 0);
+		case CHAR:
+			return Character.valueOf(buffer.getChar());
+		case STRING:
+			return readString(buffer);
+		default:
+			throw new IllegalArgumentException("Unknown value tag " + tag);
+		}
+	}
+
+	private static BitSet readBits(ByteBuffer buffer, int size) {
+		int words = (size + BITS_PER_WORD - 1) / BITS_PER_WORD;
+		BitSet bits = new BitSet(size);
+
+		for (int i = 0; i < words; i++) {
+			long word = buffer.getLong();
+
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				bits.set(i * BITS_PER_WORD + bit);
+				word &= word - 1;
+			}
+		}
+
+		return bits;
+	}
+
+}
@@ -1,20 +1,36 @@
 package org.omancode.rmt.tablereader.file;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.tablereader.AbstractRowCursor;
 import org.omancode.rmt.tablereader.AbstractTableReader;
+import org.omancode.rmt.tablereader.CloseableIterator;
 import org.omancode.rmt.tablereader.Column;
+import org.omancode.rmt.tablereader.RowCursor;
+import org.omancode.rmt.tablereader.RowCursorIterator;
+import org.omancode.rmt.tablereader.RowSpliterator;
 import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.exception.SuperCSVException;
-import org.supercsv.io.CsvMapReader;
-import org.supercsv.io.ICsvMapReader;
 
 /**
  * Delimited file reader.
@@ -24,12 +40,45 @@ import org.supercsv.io.ICsvMapReader;
  */
 public class DelimitedFileReader extends AbstractTableReader {
 
+	/**
+	 * Smallest chunk read by each worker of a {@link #parallelIterator}.
+	 */
+	private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Smallest part split off by a {@link #rowSpliterator()}.
+	 */
+	private static final long MIN_SPLIT_SIZE = 64 * 1024;
+
+	/**
+	 * Number of chunks to split the file into for each worker.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Number of chunks per worker to read ahead of the iterator.
+	 */
+	private static final int PENDING_CHUNKS_PER_THREAD = 2;
+
 	private final String filename;
 	private final String[] headerRow;
-	private final String[] headerRowColumnsRead;
 	private final File file;
 	private final DelimiterSettings delimSettings;
-	private final CellProcessor[] cellProcessors;
+
+	/**
+	 * Fields of each record that are read into columns.
+	 */
+	private final boolean[] projection;
+
+	/**
+	 * Tokenize rows from a memory mapping of the file?
+	 */
+	private boolean memoryMapped = false;
+
+	/**
+	 * Index used to read ranges of rows, or {@code null} if none.
+	 */
+	private RowIndex index;
 
 	/**
 	 * Convenience constructor loading all columns with default cell readers.
@@ -94,58 +143,78 @@ public class DelimitedFileReader extends AbstractTableReader {
 		this.filename = file.getCanonicalPath();
 
 		// Load header
-		headerRow = getNewCsvMapReader().getCSVHeader(true);
+		headerRow = readHeader();
 
 		if (headerRow == null) {
 			throw new IOException(getName() + "is empty.");
 		}
 
 		initializeColumns(columnsToRead, cellReaders);
-		Map<String, Column> mappedColumns = Column.mappedColumns(columns);
-
-		headerRowColumnsRead = initializeHeaderRowColumnsRead(headerRow,
-				mappedColumns);
 
-		cellProcessors = createCellProcessors(headerRowColumnsRead,
-				mappedColumns);
+		projection = new boolean[headerRow.length];
+		for (Column column : columns) {
+			projection[column.getIndex()] = true;
+		}
 	}
 
 	/**
-	 * Return {@code header} with all the columns that are not being read (ie:
-	 * do not appear in {@code mappedColumns}) set to {@code null}. This is so
-	 * that {@link ICsvMapReader#read(String...)} will ignore the columns we
-	 * don't need.
+	 * Read the first record of the file.
 	 * 
-	 * @param header
-	 * @param mappedColumns
-	 * @return
+	 * @return header, or {@code null} if the file is empty
+	 * @throws IOException
+	 *             if problem reading file
 	 */
-	private String[] initializeHeaderRowColumnsRead(String[] header,
-			Map<String, Column> mappedColumns) {
+	private String[] readHeader() throws IOException {
+		DelimitedTokenizer tokenizer = getNewTokenizer();
 
-		if (mappedColumns.isEmpty()) {
-			return null;
+		try {
+			return tokenizer.nextRecord() ? tokenizer.getFields() : null;
+		} finally {
+			tokenizer.close();
 		}
+	}
 
-		String[] headerRowColumnsRead = new String[header.length];
-
-		for (int i = 0; i < header.length; i++) {
-			headerRowColumnsRead[i] = mappedColumns.containsKey(header[i]) ? header[i]
-					: null; // NOPMD
+	/**
+	 * Returns a new tokenizer each time. We need a new tokenizer for each
+	 * iterator we create.
+	 * 
+	 * @return tokenizer positioned at the start of the file
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	private DelimitedTokenizer getNewTokenizer() throws IOException {
+		if (memoryMapped) {
+			return new MappedFileTokenizer(file, delimSettings,
+					Charset.defaultCharset());
 		}
-		return headerRowColumnsRead;
+
+		return new ReaderTokenizer(new FileReader(file), delimSettings);
 	}
 
 	/**
-	 * Returns a new CSV map reader each time. We need a new reader for each
-	 * iterator we create.
+	 * If set, iterators read rows directly from a memory mapping of the file
+	 * instead of through a {@link FileReader}. This avoids copying the file
+	 * through the read buffers and charset decoder, and lets repeated reads
+	 * be served from the OS page cache. Files larger than 2GB are mapped a
+	 * window at a time.
+	 * <p>
+	 * The default charset must encode the quote, delimiter and end of line
+	 * as single ASCII bytes, eg: UTF-8 or ISO-8859-1.
 	 * 
-	 * @return ICsvMapReader
-	 * @throws FileNotFoundException
+	 * @param memoryMapped
+	 *            true to memory map the file
+	 * @return {@link DelimitedFileReader}
+	 * @throws IllegalArgumentException
+	 *             if the default charset cannot be used with a memory mapped
+	 *             file
 	 */
-	private ICsvMapReader getNewCsvMapReader() throws FileNotFoundException {
-		return new CsvMapReader(new FileReader(file),
-				delimSettings.getCsvPreference());
+	public DelimitedFileReader setMemoryMapped(boolean memoryMapped) {
+		if (memoryMapped) {
+			MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+					delimSettings);
+		}
+		this.memoryMapped = memoryMapped;
+		return this;
 	}
 
 	@Override
@@ -158,9 +227,293 @@ public class DelimitedFileReader extends AbstractTableReader {
 		return headerRow;
 	}
 
+	/**
+	 * Cells of a delimited file are always text.
+	 * 
+	 * @param column
+	 *            column
+	 * @return {@link CharSequence}
+	 */
 	@Override
-	public Iterator<Object[]> iterator() {
-		return new CSVRowIterator();
+	protected Class<?> getCellType(Column column) {
+		return CharSequence.class;
+	}
+
+	@Override
+	public RowCursor cursor() {
+		DelimitedTokenizer tokenizer;
+
+		try {
+			tokenizer = getNewTokenizer();
+		} catch (IOException e) {
+			throw new RuntimeException(getName() + e.getMessage(), e);
+		}
+
+		RowCursor cursor = new CSVRowCursor(tokenizer);
+
+		try {
+			// skip past header
+			tokenizer.nextRecord();
+		} catch (IOException e) {
+			cursor.close();
+			throw new RuntimeException(getName() + e.getMessage(), e);
+		}
+
+		return cursor;
+	}
+
+	/**
+	 * Build a {@link RowIndex} of the file and use it to read ranges of rows.
+	 * 
+	 * @param interval
+	 *            number of rows between each entry of the index
+	 * @return index
+	 * @throws IOException
+	 *             if problem reading file
+	 * @throws IllegalArgumentException
+	 *             if the default charset cannot be used with a memory mapped
+	 *             file
+	 */
+	public RowIndex buildIndex(int interval) throws IOException {
+		MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+				delimSettings);
+		index = RowIndex.build(file, delimSettings, interval);
+		return index;
+	}
+
+	/**
+	 * Use the index saved in {@code indexFile} to read ranges of rows. If
+	 * {@code indexFile} does not exist, is not current, or has a different
+	 * interval, the index is built and saved to {@code indexFile}.
+	 * 
+	 * @param indexFile
+	 *            sidecar index file, eg: {@code people.csv.index}
+	 * @param interval
+	 *            number of rows between each entry of the index
+	 * @return index
+	 * @throws IOException
+	 *             if problem reading file, or reading or writing
+	 *             {@code indexFile}
+	 * @throws IllegalArgumentException
+	 *             if the default charset cannot be used with a memory mapped
+	 *             file
+	 */
+	public RowIndex openIndex(File indexFile, int interval) throws IOException {
+		MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+				delimSettings);
+
+		RowIndex saved = RowIndex.read(indexFile, file, delimSettings);
+
+		if (saved != null && saved.getInterval() == interval) {
+			index = saved;
+		} else {
+			buildIndex(interval);
+			index.write(indexFile);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Set the index used to read ranges of rows.
+	 * 
+	 * @param index
+	 *            index of this file, or {@code null} to stop using an index
+	 * @return {@link DelimitedFileReader}
+	 * @throws IllegalArgumentException
+	 *             if {@code index} is not current for this file, or the
+	 *             default charset cannot be used with a memory mapped file
+	 */
+	public DelimitedFileReader setIndex(RowIndex index) {
+		if (index != null) {
+			MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+					delimSettings);
+
+			if (!index.isCurrent(file, delimSettings)) {
+				throw new IllegalArgumentException(getName()
+						+ "has changed since the index was built");
+			}
+		}
+
+		this.index = index;
+		return this;
+	}
+
+	/**
+	 * Get the index used to read ranges of rows.
+	 * 
+	 * @return index, or {@code null} if none
+	 */
+	public RowIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns a cursor over a range of rows after the header. Reading starts
+	 * at the nearest indexed row, so at most {@link RowIndex#getInterval()}
+	 * rows are skipped. Rows are read from a memory mapping of the file.
+	 * 
+	 * @param fromRow
+	 *            first row, zero based (ie: the row after the header is 0)
+	 * @param toRow
+	 *            row after the last row
+	 * @return row cursor
+	 * @throws IllegalStateException
+	 *             if there is no index, or the file has changed since it was
+	 *             indexed
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not within the rows of the file
+	 */
+	public RowCursor cursor(long fromRow, long toRow) {
+		if (index == null) {
+			throw new IllegalStateException(getName() + "has no row index");
+		}
+
+		if (!index.isCurrent(file, delimSettings)) {
+			throw new IllegalStateException(getName()
+					+ "has changed since the index was built");
+		}
+
+		if (fromRow < 0 || toRow < fromRow || toRow > index.getRowCount()) {
+			throw new IndexOutOfBoundsException("Rows " + fromRow + " to "
+					+ toRow + " are not within rows 0 to "
+					+ index.getRowCount());
+		}
+
+		FileChunk chunk = fromRow == toRow ? new FileChunk(0, 0, 1) : index
+				.chunkFrom(fromRow);
+		DelimitedTokenizer tokenizer;
+
+		try {
+			tokenizer = new MappedFileTokenizer(file, delimSettings, Charset
+					.defaultCharset(), chunk);
+		} catch (IOException e) {
+			throw new RuntimeException(getName() + e.getMessage(), e);
+		}
+
+		try {
+			// skip the rows after the indexed row without tokenizing fields
+			tokenizer.setProjection(new boolean[0]);
+
+			if (fromRow != toRow) {
+				long skip = fromRow % index.getInterval();
+
+				for (; skip > 0; skip--) {
+					tokenizer.nextRecord();
+				}
+			}
+		} catch (IOException e) {
+			try {
+				tokenizer.close();
+			} catch (IOException closeError) {
+				// report the original error instead
+			}
+			throw new RuntimeException(getName() + e.getMessage(), e);
+		}
+
+		return new CSVRowCursor(tokenizer, toRow - fromRow);
+	}
+
+	/**
+	 * Returns an iterator over a range of rows after the header. See
+	 * {@link #cursor(long, long)}.
+	 * 
+	 * @param fromRow
+	 *            first row, zero based (ie: the row after the header is 0)
+	 * @param toRow
+	 *            row after the last row
+	 * @return row iterator
+	 * @throws IllegalStateException
+	 *             if there is no index, or the file has changed since it was
+	 *             indexed
+	 * @throws IndexOutOfBoundsException
+	 *             if the range is not within the rows of the file
+	 */
+	public CloseableIterator<Object[]> iterator(long fromRow, long toRow) {
+		return new RowCursorIterator(cursor(fromRow, toRow));
+	}
+
+	/**
+	 * Read a single row. See {@link #cursor(long, long)}.
+	 * 
+	 * @param row
+	 *            row, zero based (ie: the row after the header is 0)
+	 * @return row
+	 * @throws IllegalStateException
+	 *             if there is no index, or the file has changed since it was
+	 *             indexed
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code row} is not a row of the file
+	 */
+	public Object[] getRow(long row) {
+		RowCursor cursor = cursor(row, row + 1);
+
+		try {
+			if (!cursor.advance()) {
+				throw new IllegalStateException(getName()
+						+ "has fewer rows than the index");
+			}
+
+			return cursor.toArray();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Returns an iterator that reads the file in parallel. The file is split
+	 * into chunks of whole records, and each chunk is tokenized and its cells
+	 * read by the column {@link CellReader}s on a worker thread. The cell
+	 * readers must therefore be thread-safe.
+	 * <p>
+	 * Chunks are read directly from a memory mapping of the file, so the
+	 * default charset must encode the quote, delimiter and end of line as
+	 * single ASCII bytes, eg: UTF-8 or ISO-8859-1.
+	 * 
+	 * @param threads
+	 *            number of worker threads
+	 * @param ordered
+	 *            if {@code true}, rows are returned in the same order as the
+	 *            file. If {@code false}, the rows of each chunk are returned
+	 *            as soon as the chunk has been read, so rows from different
+	 *            chunks may be out of order.
+	 * @return iterator. Stops the worker threads and closes the file when
+	 *         exhausted, on error, or when closed.
+	 * @throws IllegalArgumentException
+	 *             if the default charset cannot be used with a memory mapped
+	 *             file
+	 */
+	public CloseableIterator<Object[]> parallelIterator(int threads,
+			boolean ordered) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+
+		MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+				delimSettings);
+
+		return new ParallelRowIterator(threads, ordered);
+	}
+
+	/**
+	 * Returns a spliterator that splits the file into byte ranges of whole
+	 * records. Each split scans from the start of its range to the first
+	 * record boundary after the middle of the range, as per
+	 * {@link #parallelIterator(int, boolean)}, and each part is read from a
+	 * memory mapping of the file. Ranges smaller than 128KB are not split.
+	 * 
+	 * @return row spliterator, whose estimated size is in bytes
+	 * @throws IllegalArgumentException
+	 *             if the default charset cannot be used with a memory mapped
+	 *             file
+	 */
+	@Override
+	public RowSpliterator rowSpliterator() {
+		MappedFileTokenizer.checkCharset(Charset.defaultCharset(),
+				delimSettings);
+
+		return new ByteRangeSpliterator(new FileChunk(0, file.length(), 1),
+				true);
 	}
 
 	/**
@@ -174,7 +527,10 @@ public class DelimitedFileReader extends AbstractTableReader {
 	 *            map of columns in the file to process
 	 * @return an array of CellProcessors that will parse each column, or
 	 *         {@code null} if {@code columns} is {@code null}.
+	 * @deprecated no longer used, cells are read directly by each column's
+	 *             {@link CellReader}.
 	 */
+	@Deprecated
 	public static CellProcessor[] createCellProcessors(String[] header,
 			Map<String, Column> mappedColumns) {
 		if (mappedColumns.isEmpty()) {
@@ -198,73 +554,367 @@ public class DelimitedFileReader extends AbstractTableReader {
 	}
 
 	/**
-	 * Iterator that returns Object arrays of each line in the delimited file.
-	 * Starts of line 2, ie: after the header.
+	 * Cursor that reads the records of a tokenizer.
 	 * 
 	 * @author Oliver Mannion
 	 * 
 	 */
-	private class CSVRowIterator implements Iterator<Object[]> {
+	private class CSVRowCursor extends AbstractRowCursor {
 
-		private final ICsvMapReader reader;
-		private Object[] nextLine;
+		private final DelimitedTokenizer tokenizer;
 
-		CSVRowIterator() {
+		/**
+		 * Number of rows left to read.
+		 */
+		private long remaining;
 
-			try {
-				reader = getNewCsvMapReader();
+		/**
+		 * Construct cursor.
+		 * 
+		 * @param tokenizer
+		 *            tokenizer positioned before the first record to read.
+		 *            Closed when the cursor is closed.
+		 */
+		CSVRowCursor(DelimitedTokenizer tokenizer) {
+			this(tokenizer, Long.MAX_VALUE);
+		}
 
-				// skip past header
-				reader.getCSVHeader(true);
+		/**
+		 * Construct cursor that reads at most {@code maxRows} rows.
+		 * 
+		 * @param tokenizer
+		 *            tokenizer positioned before the first record to read.
+		 *            Closed when the cursor is closed.
+		 * @param maxRows
+		 *            maximum number of rows to read
+		 */
+		CSVRowCursor(DelimitedTokenizer tokenizer, long maxRows) {
+			super(columns);
+			this.tokenizer = tokenizer;
+			this.remaining = maxRows;
+			tokenizer.setProjection(projection);
+		}
 
+		@Override
+		protected boolean nextRow() {
+			if (remaining == 0) {
+				return false;
+			}
+			remaining--;
+
+			try {
+				if (!tokenizer.nextRecord()) {
+					return false;
+				}
 			} catch (IOException e) {
-				throw new RuntimeException(e);
+				throw new RuntimeException(getName() + e.getMessage(), e);
 			}
 
-			nextLine = readNextLine();
+			if (tokenizer.getFieldCount() != headerRow.length) {
+				throw new RuntimeException(getName() + "line "
+						+ tokenizer.getLineNumber() + " has "
+						+ tokenizer.getFieldCount()
+						+ " columns but the header has " + headerRow.length);
+			}
 
+			return true;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return nextLine != null;
+		protected Object getCell(Column column) {
+			return tokenizer.getField(column.getIndex());
 		}
 
 		@Override
-		public Object[] next() {
-			Object[] thisLine = nextLine;
-			nextLine = readNextLine();
+		protected CharSequence getCellText(Column column) {
+			return tokenizer.getFieldText(column.getIndex());
+		}
+
+		@Override
+		protected String getCellName(Column column) {
+			return getName() + "line " + tokenizer.getLineNumber()
+					+ ", column \"" + column.getName() + "\"";
+		}
+
+		@Override
+		protected void closeTable() throws IOException {
+			tokenizer.close();
+		}
+
+	}
+
+	/**
+	 * Reads all the rows in a chunk of the file.
+	 */
+	private class ChunkReader implements Callable<List<Object[]>> {
+
+		private final FileChunk chunk;
+		private final boolean skipHeader;
+
+		ChunkReader(FileChunk chunk, boolean skipHeader) {
+			this.chunk = chunk;
+			this.skipHeader = skipHeader;
+		}
+
+		@Override
+		public List<Object[]> call() throws IOException {
+			List<Object[]> rows = new ArrayList<Object[]>();
+			DelimitedTokenizer tokenizer = new MappedFileTokenizer(file,
+					delimSettings, Charset.defaultCharset(), chunk);
+			RowCursor cursor = new CSVRowCursor(tokenizer);
 
-			return thisLine;
+			try {
+				if (skipHeader) {
+					tokenizer.nextRecord();
+				}
+
+				while (cursor.advance()) {
+					rows.add(cursor.toArray());
+				}
+			} finally {
+				cursor.close();
+			}
+
+			return rows;
 		}
 
+	}
+
+	/**
+	 * Spliterator over a range of whole records in the file.
+	 */
+	private class ByteRangeSpliterator implements RowSpliterator {
+
+		private FileChunk range;
+
 		/**
-		 * Read next line from the CsvReader as a map. Return it as an Object[].
-		 * 
-		 * @return object array
+		 * Does the range start with the header?
 		 */
-		private Object[] readNextLine() {
-			Map<String, ?> map;
+		private final boolean containsHeader;
+
+		ByteRangeSpliterator(FileChunk range, boolean containsHeader) {
+			this.range = range;
+			this.containsHeader = containsHeader;
+		}
+
+		@Override
+		public RowSpliterator trySplit() {
+			long size = estimateSize();
+
+			if (size < 2 * MIN_SPLIT_SIZE) {
+				return null;
+			}
+
+			FileChunk prefix;
+			long lineNumber;
+
 			try {
-				map = reader.read(headerRowColumnsRead, cellProcessors);
-			} catch (SuperCSVException e) {
-				throw new RuntimeException(getName() + e);
+				FileChunker chunker = new FileChunker(file, delimSettings,
+						size / 2, range);
+
+				try {
+					prefix = chunker.next();
+					lineNumber = chunker.getLineNumber();
+				} finally {
+					chunker.close();
+				}
 			} catch (IOException e) {
-				throw new RuntimeException(getName() + e);
+				throw new RuntimeException(getName() + e.getMessage(), e);
 			}
 
-			if (map == null) {
+			if (prefix.getEnd() >= range.getEnd()) {
 				return null;
 			}
 
-			// create an Object[] from the map
-			Object[] row = new Object[columns.length];
+			range = new FileChunk(prefix.getEnd(), range.getEnd(),
+					lineNumber);
+
+			// only the first part of the file keeps the header
+			return new ByteRangeSpliterator(prefix, containsHeader
+					&& prefix.getStart() == 0);
+		}
+
+		@Override
+		public long estimateSize() {
+			return range.getEnd() - range.getStart();
+		}
+
+		@Override
+		public RowCursor cursor() {
+			FileChunk chunk = range;
+			boolean skipHeader = containsHeader && chunk.getStart() == 0
+					&& estimateSize() > 0;
+			range = new FileChunk(chunk.getEnd(), chunk.getEnd(), chunk
+					.getLineNumber());
+
+			DelimitedTokenizer tokenizer;
+
+			try {
+				tokenizer = new MappedFileTokenizer(file, delimSettings,
+						Charset.defaultCharset(), chunk);
+			} catch (IOException e) {
+				throw new RuntimeException(getName() + e.getMessage(), e);
+			}
+
+			RowCursor cursor = new CSVRowCursor(tokenizer);
+
+			if (skipHeader) {
+				try {
+					tokenizer.nextRecord();
+				} catch (IOException e) {
+					cursor.close();
+					throw new RuntimeException(getName() + e.getMessage(), e);
+				}
+			}
+
+			return cursor;
+		}
+
+	}
+
+	/**
+	 * Iterator that reads chunks of the file on worker threads and returns
+	 * the rows of each chunk once it has been read. Only a few chunks per
+	 * worker are scanned for and read ahead of the chunk being returned.
+	 * 
+	 * @author Oliver Mannion
+	 * 
+	 */
+	private class ParallelRowIterator implements CloseableIterator<Object[]> {
+
+		private final ExecutorService executor;
+		private final CompletionService<List<Object[]>> completion;
+		private final FileChunker chunker;
+		private final boolean ordered;
+		private final int maxPending;
+
+		/**
+		 * Submitted chunks, in file order. Only used when ordered.
+		 */
+		private final Queue<Future<List<Object[]>>> pending =
+				new LinkedList<Future<List<Object[]>>>();
+		private int pendingCount;
+
+		private Iterator<Object[]> chunkRows = Collections
+				.<Object[]> emptyList().iterator();
+		private boolean firstChunk = true;
+
+		ParallelRowIterator(int threads, boolean ordered) {
+			this.ordered = ordered;
+			this.maxPending = threads * PENDING_CHUNKS_PER_THREAD;
+
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, file.length()
+					/ (threads * CHUNKS_PER_THREAD));
+
+			try {
+				chunker = new FileChunker(file, delimSettings, chunkSize);
+			} catch (IOException e) {
+				throw new RuntimeException(getName() + e.getMessage(), e);
+			}
+
+			executor = Executors.newFixedThreadPool(threads,
+					new DaemonThreadFactory());
+			completion = new ExecutorCompletionService<List<Object[]>>(
+					executor);
+
+			submitChunks();
+		}
+
+		/**
+		 * Find and submit chunks until there are {@link #maxPending} chunks
+		 * being read.
+		 */
+		private void submitChunks() {
+			try {
+				while (pendingCount < maxPending && chunker.hasNext()) {
+					ChunkReader reader = new ChunkReader(chunker.next(),
+							firstChunk);
+					firstChunk = false;
+
+					if (ordered) {
+						pending.add(executor.submit(reader));
+					} else {
+						completion.submit(reader);
+					}
+					pendingCount++;
+				}
+			} catch (IOException e) {
+				finish();
+				throw new RuntimeException(getName() + e.getMessage(), e);
+			}
+		}
+
+		/**
+		 * Wait for the next chunk to be read.
+		 * 
+		 * @return rows of the chunk
+		 */
+		private List<Object[]> takeChunk() {
+			try {
+				Future<List<Object[]>> future = ordered ? pending.remove()
+						: completion.take();
+				pendingCount--;
+
+				return future.get();
+			} catch (InterruptedException e) {
+				finish();
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(getName() + "interrupted", e);
+			} catch (ExecutionException e) {
+				finish();
+				Throwable cause = e.getCause();
+
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new RuntimeException(getName() + cause.getMessage(),
+						cause);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!chunkRows.hasNext()) {
+				if (pendingCount == 0) {
+					finish();
+					return false;
+				}
+
+				chunkRows = takeChunk().iterator();
+				submitChunks();
+			}
+
+			return true;
+		}
 
-			for (int i = 0; i < row.length; i++) {
-				row[i] = map.get(columns[i].getName());
+		@Override
+		public Object[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
 
-			return row;
+			return chunkRows.next();
+		}
+
+		@Override
+		public void close() {
+			finish();
+			pending.clear();
+			pendingCount = 0;
+			chunkRows = Collections.<Object[]> emptyList().iterator();
+		}
+
+		/**
+		 * Stop the workers and close the file.
+		 */
+		private void finish() {
+			executor.shutdownNow();
+
+			try {
+				chunker.close();
+			} catch (IOException e) {
+				// nothing more can be read, so ignore
+			}
 		}
 
 		@Override
@@ -273,4 +923,21 @@ public class DelimitedFileReader extends AbstractTableReader {
 		}
 
 	}
+
+	/**
+	 * Creates daemon threads, so an iterator that is not read to the end
+	 * does not stop the JVM from exiting.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final ThreadFactory defaultFactory = Executors
+				.defaultThreadFactory();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = defaultFactory.newThread(r);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -0,0 +1,554 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Splits delimited text into records and fields according to a
+ * {@link DelimiterSettings}. The fields of a record are tokenized into a
+ * single reusable buffer and are addressed by their position in the record,
+ * so reading a record creates no objects until a field is requested.
+ * <p>
+ * Follows the same rules as the SuperCSV tokenizer: empty lines are skipped,
+ * unquoted fields have their leading and trailing spaces removed, two quote
+ * chars in a row are read as a single quote char, and line breaks inside a
+ * quoted field are read as {@code \n}.
+ * <p>
+ * If the end of line is a line break (eg: {@code \r\n}) then records end at
+ * any of {@code \n}, {@code \r} or {@code \r\n}. Otherwise the end of line
+ * must be a single char, which ends each record.
+ * <p>
+ * Subclasses supply the chars to tokenize via {@link #fill(char[])}, and
+ * may supply single bytes instead of chars provided they override
+ * {@link #decode(char[], int, int)}.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+abstract class DelimitedTokenizer implements Closeable {
+
+	/**
+	 * Returned by {@link #read()} at the end of input.
+	 */
+	private static final int EOF = -1;
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final char quote;
+	private final char delimiter;
+
+	/**
+	 * Char that ends a record, or {@code -1} if records end at a line break.
+	 */
+	private final int recordEnd;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int pos;
+	private int limit;
+
+	/**
+	 * Chars of all the fields in the current record.
+	 */
+	private char[] data = new char[1024];
+	private int dataLength;
+
+	/**
+	 * Fields to tokenize, or {@code null} for all fields.
+	 */
+	private boolean[] projection;
+
+	private int[] fieldStart = new int[16];
+	private int[] fieldEnd = new int[16];
+	private int fieldCount;
+
+	private long lineNumber;
+	private long recordLineNumber;
+
+	private final FieldText fieldText = new FieldText();
+
+	/**
+	 * Construct tokenizer.
+	 *
+	 * @param settings
+	 *            delimiter settings
+	 */
+	protected DelimitedTokenizer(DelimiterSettings settings) {
+		this(settings, 1);
+	}
+
+	/**
+	 * Construct tokenizer that starts part way through the input.
+	 *
+	 * @param settings
+	 *            delimiter settings
+	 * @param lineNumber
+	 *            line number of the first char supplied by
+	 *            {@link #fill(char[])}, one based
+	 */
+	protected DelimitedTokenizer(DelimiterSettings settings, long lineNumber) {
+		this.lineNumber = lineNumber;
+		this.quote = settings.getQuote();
+		this.delimiter = settings.getDelimiter();
+		this.recordEnd = recordEnd(settings.getEndOfLine());
+	}
+
+	/**
+	 * Char that ends a record for the given end of line.
+	 *
+	 * @param endOfLine
+	 *            end of line
+	 * @return char that ends a record, or {@code -1} if records end at a
+	 *         line break
+	 * @throws IllegalArgumentException
+	 *             if {@code endOfLine} is not a line break or a single char
+	 */
+	static int recordEnd(String endOfLine) {
+		boolean lineBreak = endOfLine.length() > 0;
+
+		for (int i = 0; i < endOfLine.length(); i++) {
+			char c = endOfLine.charAt(i);
+			lineBreak = lineBreak && (c == '\r' || c == '\n');
+		}
+
+		if (lineBreak) {
+			return EOF;
+		}
+
+		if (endOfLine.length() != 1) {
+			throw new IllegalArgumentException("End of line \"" + endOfLine
+					+ "\" must be a line break or a single char");
+		}
+
+		return endOfLine.charAt(0);
+	}
+
+	/**
+	 * Read chars into {@code buf}.
+	 *
+	 * @param buf
+	 *            buffer to fill
+	 * @return number of chars read, or {@code -1} if there are no more chars
+	 * @throws IOException
+	 *             if problem reading
+	 */
+	protected abstract int fill(char[] buf) throws IOException;
+
+	/**
+	 * Tokenize the next record.
+	 *
+	 * @return {@code true} if a record was read, or {@code false} if there
+	 *         are no more records
+	 * @throws IOException
+	 *             if problem reading, or the input ends inside a quoted field
+	 */
+	public boolean nextRecord() throws IOException {
+		int c = peek();
+
+		// skip empty lines
+		while (isLineEnd(c)) {
+			pos++;
+			skipLineEnd(c);
+			c = peek();
+		}
+
+		if (c == EOF) {
+			return false;
+		}
+
+		recordLineNumber = lineNumber;
+		fieldCount = 0;
+		dataLength = 0;
+		startField();
+
+		if (skipFields()) {
+			return true;
+		}
+
+		int spaces = 0;
+		boolean inQuotes = false;
+		long quoteLineNumber = 0;
+
+		for (;;) {
+			c = read();
+
+			if (inQuotes) {
+				if (c == quote) {
+					if (peek() == quote) {
+						append(quote);
+						pos++;
+					} else {
+						inQuotes = false;
+					}
+				} else if (isLineEnd(c)) {
+					skipLineEnd(c);
+					append('\n');
+				} else if (c == EOF) {
+					throw new IOException("File ended unexpectedly while "
+							+ "reading a quoted cell starting on line "
+							+ quoteLineNumber);
+				} else {
+					append(c);
+				}
+			} else if (c == delimiter) {
+				endField();
+				startField();
+				spaces = 0;
+
+				if (skipFields()) {
+					return true;
+				}
+			} else if (c == EOF || isLineEnd(c)) {
+				skipLineEnd(c);
+				endField();
+				return true;
+			} else if (c == ' ') {
+				// leading spaces are dropped, trailing spaces are only
+				// kept if followed by something other than a space
+				if (fieldLength() > 0) {
+					spaces++;
+				}
+			} else if (c == quote && fieldLength() == 0) {
+				inQuotes = true;
+				quoteLineNumber = lineNumber;
+			} else if (c == quote && peek() == quote) {
+				appendSpaces(spaces);
+				spaces = 0;
+				append(quote);
+				pos++;
+			} else if (c == quote) {
+				appendSpaces(spaces);
+				spaces = 0;
+				inQuotes = true;
+				quoteLineNumber = lineNumber;
+			} else {
+				appendSpaces(spaces);
+				spaces = 0;
+				append(c);
+			}
+		}
+	}
+
+	/**
+	 * Set the fields to tokenize. Other fields are skipped over without
+	 * copying their chars, and once the last projected field of a record has
+	 * been read the rest of the record is only scanned for its end.
+	 *
+	 * @param projected
+	 *            {@code projected[i]} is {@code true} if field {@code i} is to
+	 *            be tokenized. If {@code null} all fields are tokenized.
+	 */
+	public void setProjection(boolean[] projected) {
+		this.projection = projected == null ? null : projected.clone();
+	}
+
+	private boolean isProjected(int index) {
+		return projection == null
+				|| (index < projection.length && projection[index]);
+	}
+
+	/**
+	 * Skip fields from the current position until a projected field starts
+	 * or the record ends. Skipped fields are left empty.
+	 *
+	 * @return {@code true} if the record ended
+	 * @throws IOException
+	 *             if problem reading, or the input ends inside a quoted field
+	 */
+	private boolean skipFields() throws IOException {
+		while (!isProjected(fieldCount)) {
+			int c = skipField();
+			endField();
+
+			if (c != delimiter) {
+				skipLineEnd(c);
+				return true;
+			}
+
+			startField();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Read past a field without copying its chars. Because quote chars
+	 * inside a field always come in pairs (ie: are doubled), a delimiter or
+	 * line end is inside quotes when an odd number of quote chars have been
+	 * read.
+	 *
+	 * @return the delimiter, line end or EOF that ended the field
+	 * @throws IOException
+	 *             if problem reading, or the input ends inside a quoted field
+	 */
+	private int skipField() throws IOException {
+		boolean inQuotes = false;
+		long quoteLineNumber = 0;
+		int previous = EOF;
+
+		for (;;) {
+			int c = read();
+
+			if (c == quote) {
+				inQuotes = !inQuotes;
+
+				// a quote that follows a quote is an escaped quote and
+				// doesn't start a new quoted section
+				if (inQuotes && previous != quote) {
+					quoteLineNumber = lineNumber;
+				}
+			} else if (!inQuotes) {
+				if (c == delimiter || c == EOF || isLineEnd(c)) {
+					return c;
+				}
+			} else if (isLineEnd(c)) {
+				skipLineEnd(c);
+			} else if (c == EOF) {
+				throw new IOException("File ended unexpectedly while "
+						+ "reading a quoted cell starting on line "
+						+ quoteLineNumber);
+			}
+
+			previous = c;
+		}
+	}
+
+	/**
+	 * Number of fields in the current record.
+	 *
+	 * @return field count
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Get a field from the current record.
+	 *
+	 * @param index
+	 *            position of the field in the record, zero based
+	 * @return field value, or the empty string if the field is not
+	 *         projected
+	 */
+	public String getField(int index) {
+		if (index >= fieldCount) {
+			throw new IndexOutOfBoundsException("Field " + index
+					+ " does not exist, record has " + fieldCount
+					+ " fields");
+		}
+		return decode(data, fieldStart[index], fieldEnd[index]
+				- fieldStart[index]);
+	}
+
+	/**
+	 * Get a field from the current record without creating a String. The
+	 * text returned is a view over the tokenizer's buffer that is reused, so
+	 * it is only valid until the next call to this method or
+	 * {@link #nextRecord()}.
+	 * 
+	 * @param index
+	 *            position of the field in the record, zero based
+	 * @return field text, or the empty string if the field is not projected
+	 */
+	public CharSequence getFieldText(int index) {
+		if (index >= fieldCount) {
+			throw new IndexOutOfBoundsException("Field " + index
+					+ " does not exist, record has " + fieldCount
+					+ " fields");
+		}
+
+		int offset = fieldStart[index];
+		int length = fieldEnd[index] - offset;
+
+		if (needsDecode(data, offset, length)) {
+			return decode(data, offset, length);
+		}
+
+		fieldText.set(offset, length);
+		return fieldText;
+	}
+
+	/**
+	 * Do the chars of a field need to be decoded by
+	 * {@link #decode(char[], int, int)}, or are they the chars of the field
+	 * as is?
+	 * 
+	 * @param chars
+	 *            chars
+	 * @param offset
+	 *            offset of the first char of the field
+	 * @param length
+	 *            number of chars in the field
+	 * @return {@code false} unless overridden
+	 */
+	protected boolean needsDecode(char[] chars, int offset, int length) {
+		return false;
+	}
+
+	/**
+	 * Create a String from the chars of a field. Subclasses that supply
+	 * something other than chars in {@link #fill(char[])} override this to
+	 * decode them.
+	 *
+	 * @param chars
+	 *            chars
+	 * @param offset
+	 *            offset of the first char of the field
+	 * @param length
+	 *            number of chars in the field
+	 * @return field value
+	 */
+	protected String decode(char[] chars, int offset, int length) {
+		return new String(chars, offset, length);
+	}
+
+	/**
+	 * Get all fields of the current record.
+	 *
+	 * @return field values
+	 */
+	public String[] getFields() {
+		String[] fields = new String[fieldCount];
+
+		for (int i = 0; i < fieldCount; i++) {
+			fields[i] = getField(i);
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Line number the current record starts on, one based.
+	 *
+	 * @return line number
+	 */
+	public long getLineNumber() {
+		return recordLineNumber;
+	}
+
+	private boolean isLineEnd(int c) {
+		if (recordEnd == EOF) {
+			return c == '\n' || c == '\r';
+		}
+		return c == recordEnd;
+	}
+
+	/**
+	 * Skip past the line end {@code c} which has just been read.
+	 *
+	 * @param c
+	 *            char just read
+	 * @throws IOException
+	 *             if problem reading
+	 */
+	private void skipLineEnd(int c) throws IOException {
+		if (c == EOF) {
+			return;
+		}
+
+		if (c == '\r' && recordEnd == EOF && peek() == '\n') {
+			pos++;
+		}
+
+		lineNumber++;
+	}
+
+	private int read() throws IOException {
+		if (pos == limit && !refill()) {
+			return EOF;
+		}
+		return buffer[pos++];
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !refill()) {
+			return EOF;
+		}
+		return buffer[pos];
+	}
+
+	private boolean refill() throws IOException {
+		pos = 0;
+		limit = fill(buffer);
+
+		if (limit <= 0) {
+			limit = 0;
+			return false;
+		}
+
+		return true;
+	}
+
+	private int fieldLength() {
+		return dataLength - fieldStart[fieldCount];
+	}
+
+	private void startField() {
+		if (fieldCount == fieldStart.length) {
+			int[] newStart = new int[fieldCount * 2];
+			int[] newEnd = new int[fieldCount * 2];
+			System.arraycopy(fieldStart, 0, newStart, 0, fieldCount);
+			System.arraycopy(fieldEnd, 0, newEnd, 0, fieldCount);
+			fieldStart = newStart;
+			fieldEnd = newEnd;
+		}
+		fieldStart[fieldCount] = dataLength;
+	}
+
+	private void endField() {
+		fieldEnd[fieldCount++] = dataLength;
+	}
+
+	private void append(int c) {
+		if (dataLength == data.length) {
+			char[] newData = new char[dataLength * 2];
+			System.arraycopy(data, 0, newData, 0, dataLength);
+			data = newData;
+		}
+		data[dataLength++] = (char) c;
+	}
+
+	private void appendSpaces(int spaces) {
+		for (int i = 0; i < spaces; i++) {
+			append(' ');
+		}
+	}
+
+	/**
+	 * View over the chars of a field in {@link DelimitedTokenizer#data}.
+	 */
+	private final class FieldText implements CharSequence {
+
+		private int offset;
+		private int length;
+
+		void set(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index
+						+ ", length " + length);
+			}
+			return data[offset + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(data, offset, length);
+		}
+	}
+
+}
@@ -39,6 +39,33 @@ public class DelimiterSettings {
 		this.endOfLine = endOfLine;
 	}
 
+	/**
+	 * Get the quote char.
+	 * 
+	 * @return quote char
+	 */
+	public char getQuote() {
+		return quote;
+	}
+
+	/**
+	 * Get the delimiter char.
+	 * 
+	 * @return delimiter char
+	 */
+	public char getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Get the end of line.
+	 * 
+	 * @return end of line
+	 */
+	public String getEndOfLine() {
+		return endOfLine;
+	}
+
 	/**
 	 * Convert to SuperCsv {@link CsvPreference} object.
 	 * 
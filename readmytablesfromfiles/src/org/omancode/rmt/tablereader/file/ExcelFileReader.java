@@ -14,8 +14,12 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellReference;
 import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.tablereader.AbstractRowCursor;
 import org.omancode.rmt.tablereader.AbstractTableReader;
 import org.omancode.rmt.tablereader.Column;
+import org.omancode.rmt.tablereader.RowCursor;
+import org.omancode.rmt.tablereader.RowRangeSpliterator;
+import org.omancode.rmt.tablereader.RowSpliterator;
 
 /**
  * Excel XLS/XLSX file reader.
@@ -80,11 +84,15 @@ public class ExcelFileReader extends AbstractTableReader {
 			CellReader<?>[] cellReaders) throws IOException {
 
 		Workbook workbook;
+		FileInputStream input = new FileInputStream(file);
 		try {
-			workbook = WorkbookFactory.create(new FileInputStream(file));
+			// the workbook is read into memory, so the file can be closed
+			workbook = WorkbookFactory.create(input);
 			this.filename = file.getCanonicalPath();
 		} catch (InvalidFormatException e) {
 			throw new IOException(e);
+		} finally {
+			input.close();
 		}
 
 		// set current sheet to the first sheet
@@ -132,6 +140,41 @@ public class ExcelFileReader extends AbstractTableReader {
 		return result;
 	}
 
+	/**
+	 * The type of a column's cell in the first row after the header, ie:
+	 * {@link Double} for a numeric cell, or {@link String} for a text cell.
+	 * Excel columns may mix types, so other cells are not assumed to be of
+	 * this type, just likely to be.
+	 * 
+	 * @param column
+	 *            column
+	 * @return cell type, or {@link Object} if the first cell is not numeric
+	 *         or text
+	 */
+	@Override
+	protected Class<?> getCellType(Column column) {
+		Row row = currentSheet.getRow(firstDataRow());
+		Cell cell = row == null ? null : row.getCell(column.getIndex());
+
+		if (cell == null) {
+			return Object.class;
+		}
+
+		int cellType = cell.getCellType();
+
+		if (cellType == Cell.CELL_TYPE_FORMULA) {
+			cellType = cell.getCachedFormulaResultType();
+		}
+
+		if (cellType == Cell.CELL_TYPE_NUMERIC) {
+			return Double.class;
+		} else if (cellType == Cell.CELL_TYPE_STRING) {
+			return String.class;
+		}
+
+		return Object.class;
+	}
+
 	/**
 	 * Returns the value in a Excel cell as a Java object. Returns empty String
 	 * if the cell is blank, and returns an Error string if the cell has an
@@ -188,63 +231,97 @@ public class ExcelFileReader extends AbstractTableReader {
 	}
 
 	@Override
-	public Iterator<Object[]> iterator() {
-		return new XLSRowIterator();
+	public RowCursor cursor() {
+		return new XLSRowCursor(firstDataRow(), lastDataRow());
 	}
 
 	/**
-	 * Iterator that returns Object arrays of each line in the Excel file.
-	 * Starts of line 2, ie: after the header.
-	 * 
-	 * @author Oliver Mannion
+	 * Returns a spliterator that splits the rows of the sheet in half. The
+	 * sheet is held in memory, so each part reads its rows directly.
 	 * 
+	 * @return row spliterator
 	 */
-	private class XLSRowIterator implements Iterator<Object[]> {
+	@Override
+	public RowSpliterator rowSpliterator() {
+		return new RowRangeSpliterator(firstDataRow(), lastDataRow()) {
+			@Override
+			protected RowCursor cursor(long fromRow, long toRow) {
+				return new XLSRowCursor((int) fromRow, (int) toRow);
+			}
+		};
+	}
 
-		private final Iterator<Row> iterator;
+	/**
+	 * Row number of the first row after the header, zero based.
+	 */
+	private int firstDataRow() {
+		return currentSheet.getFirstRowNum() + 1;
+	}
 
-		XLSRowIterator() {
-			iterator = currentSheet.rowIterator();
-			iterator.next();
-		}
+	/**
+	 * Row number after the last row, zero based.
+	 */
+	private int lastDataRow() {
+		return currentSheet.getLastRowNum() + 1;
+	}
 
-		@Override
-		public boolean hasNext() {
-			return iterator.hasNext();
+	/**
+	 * Cursor over a range of the rows of the Excel sheet. Rows that do not
+	 * exist in the sheet are skipped.
+	 * 
+	 * @author Oliver Mannion
+	 * 
+	 */
+	private class XLSRowCursor extends AbstractRowCursor {
+
+		private final int end;
+		private int next;
+		private Row row;
+
+		/**
+		 * Construct cursor.
+		 * 
+		 * @param start
+		 *            row number of the first row, zero based
+		 * @param end
+		 *            row number after the last row
+		 */
+		XLSRowCursor(int start, int end) {
+			super(columns);
+			this.next = start;
+			this.end = end;
 		}
 
 		@Override
-		public Object[] next() {
-			Row row = iterator.next();
-
-			Object[] result = new Object[columns.length];
-			int i = 0;
-
-			// loop through the selected columns
-			// and get the corresponding cell
-			// from the row.
-			// Parse the cell result through the
-			// cell reader
-			for (Column column : columns) {
-				Cell cell = row.getCell(column.getIndex());
-
-				try {
-					result[i++] = column.getCellReader().call(
-							getExcelCellValue(cell));
-				} catch (RuntimeException e) {
-					throw new RuntimeException(getName() + " "
-							+ cellName(row.getRowNum(), column.getIndex())
-							+ ": " + e.getMessage(), e);
+		protected boolean nextRow() {
+			while (next < end) {
+				row = currentSheet.getRow(next++);
 
+				if (row != null) {
+					return true;
 				}
 			}
 
-			return result;
+			return false;
+		}
+
+		@Override
+		protected Object getCell(Column column) {
+			return getExcelCellValue(row.getCell(column.getIndex()));
+		}
+
+		@Override
+		protected String getCellName(Column column) {
+			return getName() + " "
+					+ cellName(row.getRowNum(), column.getIndex());
 		}
 
+		/**
+		 * The workbook is held in memory, so there is nothing to release.
+		 */
 		@Override
-		public void remove() {
-			iterator.remove();
+		protected void closeTable() {
+			row = null;
 		}
 
 	}
@@ -0,0 +1,64 @@
+package org.omancode.rmt.tablereader.file;
+
+/**
+ * A range of bytes in a delimited file that starts at the beginning of a
+ * record and ends at the end of a record.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class FileChunk {
+
+	private final long start;
+	private final long end;
+	private final long lineNumber;
+
+	/**
+	 * Construct chunk.
+	 *
+	 * @param start
+	 *            position of the first byte in the chunk
+	 * @param end
+	 *            position after the last byte in the chunk
+	 * @param lineNumber
+	 *            line number the chunk starts on, one based
+	 */
+	FileChunk(long start, long end, long lineNumber) {
+		this.start = start;
+		this.end = end;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * Position of the first byte in the chunk.
+	 *
+	 * @return start position
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * Position after the last byte in the chunk.
+	 *
+	 * @return end position
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Line number the chunk starts on.
+	 *
+	 * @return line number, one based
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public String toString() {
+		return "bytes " + start + "-" + end + " (line " + lineNumber + ")";
+	}
+
+}
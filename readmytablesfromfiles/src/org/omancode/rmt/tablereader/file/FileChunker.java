@@ -0,0 +1,195 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Splits a delimited file into {@link FileChunk}s of whole records, so the
+ * chunks can be tokenized independently.
+ * <p>
+ * Chunk boundaries are found by scanning the bytes of the file for line ends
+ * that are not inside a quoted field. A line end is inside a quoted field
+ * when an odd number of quote chars have been seen since the start of the
+ * file, which holds for all input read by {@link DelimitedTokenizer}
+ * (doubled quote chars are always seen in pairs). The scan only looks at
+ * each byte once and does not tokenize fields, so it is much cheaper than
+ * reading the chunks. Chunks are found one at a time, so reading the first
+ * chunks can start before the whole file is scanned.
+ * <p>
+ * As per {@link MappedFileTokenizer}, the file's charset must encode the
+ * quote, delimiter and end of line as single ASCII bytes.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class FileChunker implements Closeable {
+
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final long size;
+	private final long chunkSize;
+
+	private final byte quote;
+
+	/**
+	 * Byte that ends a record, or {@code -1} if records end at a line break.
+	 */
+	private final int recordEnd;
+
+	/**
+	 * Start of the next chunk.
+	 */
+	private long position;
+	private long lineNumber = 1;
+	private boolean inQuotes;
+	private int previous = -1;
+
+	/**
+	 * Construct chunker.
+	 *
+	 * @param file
+	 *            file to split
+	 * @param settings
+	 *            delimiter settings
+	 * @param chunkSize
+	 *            minimum size of each chunk in bytes. Chunks are extended
+	 *            to the end of the record this size falls in.
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	FileChunker(File file, DelimiterSettings settings, long chunkSize)
+			throws IOException {
+		this.quote = (byte) settings.getQuote();
+		this.recordEnd = DelimitedTokenizer.recordEnd(settings.getEndOfLine());
+		this.chunkSize = chunkSize;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.size = channel.size();
+	}
+
+	/**
+	 * Construct chunker that starts part way through a file.
+	 *
+	 * @param file
+	 *            file to split
+	 * @param settings
+	 *            delimiter settings
+	 * @param chunkSize
+	 *            minimum size of each chunk in bytes
+	 * @param from
+	 *            chunk whose start and line number the first chunk starts
+	 *            at. Must start at the beginning of a record.
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	FileChunker(File file, DelimiterSettings settings, long chunkSize,
+			FileChunk from) throws IOException {
+		this(file, settings, chunkSize);
+		this.position = from.getStart();
+		this.lineNumber = from.getLineNumber();
+	}
+
+	/**
+	 * Are there more chunks?
+	 *
+	 * @return {@code true} if there are more chunks
+	 */
+	public boolean hasNext() {
+		return position < size;
+	}
+
+	/**
+	 * Line number the next chunk starts on.
+	 *
+	 * @return line number, one based
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Scan for the end of the next chunk.
+	 *
+	 * @return next chunk
+	 * @throws IOException
+	 *             if problem reading file
+	 */
+	public FileChunk next() throws IOException {
+		long start = position;
+		long startLineNumber = lineNumber;
+		long end = scan(Math.min(start + chunkSize, size));
+
+		position = end;
+		return new FileChunk(start, end, startLineNumber);
+	}
+
+	/**
+	 * Scan from {@link #position} to the first record boundary at or after
+	 * {@code target}, counting lines and tracking quotes.
+	 *
+	 * @param target
+	 *            position to start looking for a record boundary at
+	 * @return position of the record boundary, or the end of the file
+	 * @throws IOException
+	 *             if problem reading file
+	 */
+	private long scan(long target) throws IOException {
+		long windowStart = position;
+
+		while (windowStart < size) {
+			long windowSize = Math.min(WINDOW_SIZE, size - windowStart);
+			MappedByteBuffer window = channel.map(MapMode.READ_ONLY,
+					windowStart, windowSize);
+
+			for (int i = 0; i < windowSize; i++) {
+				long pos = windowStart + i;
+				int b = window.get(i);
+
+				// a lone \r ends a record before this byte
+				if (previous == '\r' && b != '\n' && !inQuotes
+						&& recordEnd == -1 && pos >= target) {
+					return pos;
+				}
+
+				if (b == quote) {
+					inQuotes = !inQuotes;
+				} else if (recordEnd == -1) {
+					if (b == '\r' || (b == '\n' && previous != '\r')) {
+						lineNumber++;
+					}
+
+					if (b == '\n' && !inQuotes && pos >= target) {
+						previous = b;
+						return pos + 1;
+					}
+				} else if (b == recordEnd) {
+					lineNumber++;
+
+					if (!inQuotes && pos >= target) {
+						previous = b;
+						return pos + 1;
+					}
+				}
+
+				previous = b;
+			}
+
+			windowStart += windowSize;
+		}
+
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+}
@@ -0,0 +1,216 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+/**
+ * Tokenizes delimited text directly from the bytes of a memory mapped file.
+ * The file is mapped a window at a time, so files larger than 2GB can be
+ * read. A tokenizer can also read just a range of the file, eg: a
+ * {@link FileChunk}.
+ * <p>
+ * Bytes are tokenized without decoding, and only fields that contain bytes
+ * outside the ASCII range are decoded using the charset. This requires a
+ * charset that encodes the quote, delimiter and end of line as the same
+ * single bytes as ASCII, eg: UTF-8 or ISO-8859-1.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class MappedFileTokenizer extends DelimitedTokenizer {
+
+	/**
+	 * Default size of each mapping of the file.
+	 */
+	static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private static final int MAX_ASCII = 0x7F;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final Charset charset;
+	private final long end;
+	private final long windowSize;
+
+	/**
+	 * File position of the next window.
+	 */
+	private long next;
+	private MappedByteBuffer window;
+
+	/**
+	 * Bytes of the window copied to {@link #fill(char[])}'s buffer, reused
+	 * for each fill.
+	 */
+	private byte[] bytes = new byte[0];
+
+	/**
+	 * Construct tokenizer.
+	 *
+	 * @param file
+	 *            file to map
+	 * @param settings
+	 *            delimiter settings
+	 * @param charset
+	 *            charset of the file
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	MappedFileTokenizer(File file, DelimiterSettings settings, Charset charset)
+			throws IOException {
+		this(file, settings, charset, new FileChunk(0, file.length(), 1));
+	}
+
+	/**
+	 * Construct tokenizer that reads a range of a file.
+	 *
+	 * @param file
+	 *            file to map
+	 * @param settings
+	 *            delimiter settings
+	 * @param charset
+	 *            charset of the file
+	 * @param chunk
+	 *            range of the file to read. Must start at the beginning of a
+	 *            record.
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	MappedFileTokenizer(File file, DelimiterSettings settings,
+			Charset charset, FileChunk chunk) throws IOException {
+		this(file, settings, charset, chunk, WINDOW_SIZE);
+	}
+
+	/**
+	 * Construct tokenizer that reads a range of a file, mapping
+	 * {@code windowSize} bytes of the file at a time.
+	 *
+	 * @param file
+	 *            file to map
+	 * @param settings
+	 *            delimiter settings
+	 * @param charset
+	 *            charset of the file
+	 * @param chunk
+	 *            range of the file to read. Must start at the beginning of a
+	 *            record.
+	 * @param windowSize
+	 *            size of each mapping of the file
+	 * @throws IOException
+	 *             if problem opening file
+	 */
+	MappedFileTokenizer(File file, DelimiterSettings settings,
+			Charset charset, FileChunk chunk, long windowSize)
+			throws IOException {
+		super(settings, chunk.getLineNumber());
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("Window size " + windowSize
+					+ " must be positive");
+		}
+		this.windowSize = windowSize;
+		checkCharset(charset, settings);
+		this.charset = charset;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.next = chunk.getStart();
+		this.end = Math.min(chunk.getEnd(), channel.size());
+	}
+
+	/**
+	 * Make sure {@code charset} encodes the chars the tokenizer looks for as
+	 * the same single bytes as ASCII.
+	 *
+	 * @param charset
+	 *            charset
+	 * @param settings
+	 *            delimiter settings
+	 * @throws IllegalArgumentException
+	 *             if {@code charset} is not compatible
+	 */
+	static void checkCharset(Charset charset,
+			DelimiterSettings settings) {
+		String special = "" + settings.getQuote() + settings.getDelimiter()
+				+ settings.getEndOfLine() + "\r\n ";
+		byte[] encoded = special.getBytes(charset);
+
+		boolean compatible = encoded.length == special.length();
+
+		for (int i = 0; compatible && i < encoded.length; i++) {
+			compatible = special.charAt(i) <= MAX_ASCII
+					&& encoded[i] == special.charAt(i);
+		}
+
+		if (!compatible) {
+			throw new IllegalArgumentException("Cannot memory map files "
+					+ "with charset " + charset + " and quote, delimiter "
+					+ "and end of line \"" + settings.getQuote() + "\", \""
+					+ settings.getDelimiter() + "\", \""
+					+ settings.getEndOfLine() + "\"");
+		}
+	}
+
+	@Override
+	protected int fill(char[] buf) throws IOException {
+		if (window == null || !window.hasRemaining()) {
+			if (next >= end) {
+				return -1;
+			}
+
+			long size = Math.min(windowSize, end - next);
+			window = channel.map(MapMode.READ_ONLY, next, size);
+			next += size;
+		}
+
+		if (bytes.length != buf.length) {
+			bytes = new byte[buf.length];
+		}
+
+		int length = Math.min(buf.length, window.remaining());
+		window.get(bytes, 0, length);
+
+		for (int i = 0; i < length; i++) {
+			buf[i] = (char) (bytes[i] & 0xFF);
+		}
+
+		return length;
+	}
+
+	@Override
+	protected boolean needsDecode(char[] chars, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			if (chars[i] > MAX_ASCII) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	protected String decode(char[] chars, int offset, int length) {
+		if (!needsDecode(chars, offset, length)) {
+			return new String(chars, offset, length);
+		}
+
+		byte[] bytes = new byte[length];
+
+		for (int j = 0; j < length; j++) {
+			bytes[j] = (byte) chars[offset + j];
+		}
+
+		return new String(bytes, charset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mapped windows are released when garbage collected
+		window = null;
+		raf.close();
+	}
+
+}
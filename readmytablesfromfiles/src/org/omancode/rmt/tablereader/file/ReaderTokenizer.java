@@ -0,0 +1,39 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Tokenizes delimited text read from a {@link Reader}.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class ReaderTokenizer extends DelimitedTokenizer {
+
+	private final Reader reader;
+
+	/**
+	 * Construct tokenizer.
+	 *
+	 * @param reader
+	 *            reader to tokenize. Closed when this tokenizer is closed.
+	 * @param settings
+	 *            delimiter settings
+	 */
+	ReaderTokenizer(Reader reader, DelimiterSettings settings) {
+		super(settings);
+		this.reader = reader;
+	}
+
+	@Override
+	protected int fill(char[] buf) throws IOException {
+		return reader.read(buf, 0, buf.length);
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,319 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the rows of a delimited file. Records the byte position
+ * and line number of every {@link #getInterval()}th row after the header, so
+ * reading can start close to any row without tokenizing the rows before it.
+ * <p>
+ * The index is built by scanning the bytes of the file for record ends that
+ * are not inside quotes, in the same way as {@link FileChunker}, so quoted
+ * fields containing line breaks are a single record, and empty lines are
+ * skipped as they are by {@link DelimitedTokenizer}. As per
+ * {@link MappedFileTokenizer}, the file's charset must encode the quote,
+ * delimiter and end of line as single ASCII bytes.
+ * <p>
+ * An index can be saved to a sidecar file with {@link #write(File)} and
+ * loaded with {@link #read(File, File, DelimiterSettings)}. An index is only
+ * current while the file has the same size and modification time as when it
+ * was built.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class RowIndex {
+
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	/**
+	 * "RMTI".
+	 */
+	private static final int MAGIC = 0x524D5449;
+
+	private static final int VERSION = 1;
+
+	private final long fileSize;
+	private final long lastModified;
+	private final char quote;
+	private final String endOfLine;
+	private final int interval;
+	private final long rowCount;
+
+	/**
+	 * Byte position and line number of rows {@code 0}, {@code interval},
+	 * {@code 2 * interval} etc.
+	 */
+	private final long[] positions;
+	private final long[] lineNumbers;
+
+	private RowIndex(long fileSize, long lastModified, char quote,
+			String endOfLine, int interval, long rowCount, long[] positions,
+			long[] lineNumbers) {
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.quote = quote;
+		this.endOfLine = endOfLine;
+		this.interval = interval;
+		this.rowCount = rowCount;
+		this.positions = positions;
+		this.lineNumbers = lineNumbers;
+	}
+
+	/**
+	 * Build an index by scanning {@code file}.
+	 *
+	 * @param file
+	 *            delimited file
+	 * @param settings
+	 *            delimiter settings
+	 * @param interval
+	 *            number of rows between each entry of the index
+	 * @return index
+	 * @throws IOException
+	 *             if problem reading {@code file}
+	 */
+	public static RowIndex build(File file, DelimiterSettings settings,
+			int interval) throws IOException {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be at least 1");
+		}
+
+		long lastModified = file.lastModified();
+		byte quote = (byte) settings.getQuote();
+		int recordEnd = DelimitedTokenizer.recordEnd(settings.getEndOfLine());
+
+		long[] positions = new long[16];
+		long[] lineNumbers = new long[16];
+		int entries = 0;
+
+		// records read including the header
+		long records = 0;
+		long lineNumber = 1;
+		boolean inQuotes = false;
+		boolean inRecord = false;
+		int previous = -1;
+		long size;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			size = channel.size();
+
+			for (long windowStart = 0; windowStart < size;
+					windowStart += WINDOW_SIZE) {
+				long windowSize = Math.min(WINDOW_SIZE, size - windowStart);
+				MappedByteBuffer window = channel.map(MapMode.READ_ONLY,
+						windowStart, windowSize);
+
+				for (int i = 0; i < windowSize; i++) {
+					int b = window.get(i);
+					boolean lineEnd = recordEnd == -1 ? b == '\r'
+							|| b == '\n' : b == recordEnd;
+
+					if (lineEnd && !inQuotes) {
+						if (inRecord) {
+							inRecord = false;
+							records++;
+						}
+					} else if (!inRecord) {
+						// start of a record, the first is the header
+						inRecord = true;
+						long row = records - 1;
+
+						if (row >= 0 && row % interval == 0) {
+							if (entries == positions.length) {
+								positions = Arrays.copyOf(positions,
+										entries * 2);
+								lineNumbers = Arrays.copyOf(lineNumbers,
+										entries * 2);
+							}
+
+							positions[entries] = windowStart + i;
+							lineNumbers[entries] = lineNumber;
+							entries++;
+						}
+					}
+
+					if (b == quote) {
+						inQuotes = !inQuotes;
+					}
+
+					if (recordEnd == -1 ? b == '\r'
+							|| (b == '\n' && previous != '\r')
+							: b == recordEnd) {
+						lineNumber++;
+					}
+
+					previous = b;
+				}
+			}
+		} finally {
+			raf.close();
+		}
+
+		if (inRecord) {
+			records++;
+		}
+
+		return new RowIndex(size, lastModified, settings.getQuote(), settings
+				.getEndOfLine(), interval, Math.max(0, records - 1), Arrays
+				.copyOf(positions, entries), Arrays.copyOf(lineNumbers,
+				entries));
+	}
+
+	/**
+	 * Number of rows between each entry of the index.
+	 *
+	 * @return interval
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Number of rows in the file, not including the header.
+	 *
+	 * @return row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Is the index current for {@code file} read with {@code settings}, ie:
+	 * has the file not changed since the index was built?
+	 *
+	 * @param file
+	 *            delimited file
+	 * @param settings
+	 *            delimiter settings
+	 * @return {@code true} if the index can be used to read {@code file}
+	 */
+	public boolean isCurrent(File file, DelimiterSettings settings) {
+		return file.length() == fileSize
+				&& file.lastModified() == lastModified
+				&& settings.getQuote() == quote
+				&& settings.getEndOfLine().equals(endOfLine);
+	}
+
+	/**
+	 * The range of the file from the indexed row at or before {@code row} to
+	 * the end of the file.
+	 *
+	 * @param row
+	 *            row, zero based
+	 * @return chunk starting at row {@code row - row % getInterval()}
+	 */
+	FileChunk chunkFrom(long row) {
+		int entry = (int) (row / interval);
+		return new FileChunk(positions[entry], fileSize, lineNumbers[entry]);
+	}
+
+	/**
+	 * Save the index to a sidecar file.
+	 *
+	 * @param indexFile
+	 *            file to write
+	 * @throws IOException
+	 *             if problem writing
+	 */
+	public void write(File indexFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(indexFile)));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fileSize);
+			out.writeLong(lastModified);
+			out.writeChar(quote);
+			out.writeUTF(endOfLine);
+			out.writeInt(interval);
+			out.writeLong(rowCount);
+			out.writeInt(positions.length);
+
+			for (int i = 0; i < positions.length; i++) {
+				out.writeLong(positions[i]);
+				out.writeLong(lineNumbers[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load an index from a sidecar file.
+	 *
+	 * @param indexFile
+	 *            file written by {@link #write(File)}
+	 * @param file
+	 *            delimited file that was indexed
+	 * @param settings
+	 *            delimiter settings
+	 * @return index, or {@code null} if {@code indexFile} does not exist, is
+	 *         not an index, or is not current for {@code file}
+	 * @throws IOException
+	 *             if problem reading {@code indexFile}
+	 */
+	public static RowIndex read(File indexFile, File file,
+			DelimiterSettings settings) throws IOException {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(indexFile)));
+
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+
+			long fileSize = in.readLong();
+			long lastModified = in.readLong();
+			char quote = in.readChar();
+			String endOfLine = in.readUTF();
+			int interval = in.readInt();
+			long rowCount = in.readLong();
+			int entries = in.readInt();
+
+			if (interval < 1 || entries < 0
+					|| entries != (rowCount + interval - 1) / interval) {
+				return null;
+			}
+
+			long[] positions = new long[entries];
+			long[] lineNumbers = new long[entries];
+
+			for (int i = 0; i < entries; i++) {
+				positions[i] = in.readLong();
+				lineNumbers[i] = in.readLong();
+			}
+
+			RowIndex index = new RowIndex(fileSize, lastModified, quote,
+					endOfLine, interval, rowCount, positions, lineNumbers);
+
+			return index.isCurrent(file, settings) ? index : null;
+		} catch (EOFException e) {
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The shared strings table of an XLSX workbook, ie: the text of the cells of
+ * every sheet, which the cells refer to by position. The strings are held as
+ * a single array of chars and an array of offsets into it, rather than as a
+ * String each, so a large table takes little more memory than its chars. A
+ * String is only created for a string when it is requested.
+ * <p>
+ * The text of a rich text string is the text of its runs. Phonetic runs are
+ * ignored, as they are by {@link org.apache.poi.xssf.usermodel.XSSFRichTextString}.
+ * <p>
+ * Immutable once read, so may be shared between threads.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class SharedStrings {
+
+	/**
+	 * A table with no strings.
+	 */
+	static final SharedStrings EMPTY = new SharedStrings(new char[0],
+			new int[] { 0 });
+
+	private final char[] chars;
+
+	/**
+	 * Offset of each string in {@link #chars}, followed by the end of the
+	 * last string.
+	 */
+	private final int[] offsets;
+
+	private SharedStrings(char[] chars, int[] offsets) {
+		this.chars = chars;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Read the shared strings part of a workbook.
+	 *
+	 * @param in
+	 *            shared strings part. Not closed.
+	 * @return shared strings
+	 * @throws IOException
+	 *             if the part cannot be parsed
+	 */
+	static SharedStrings read(InputStream in) throws IOException {
+		char[] chars = new char[4096];
+		int length = 0;
+		int[] offsets = new int[256];
+		int count = 0;
+
+		XMLStreamReader reader = SheetParser.createReader(in);
+
+		try {
+			// inside a <t> that is part of the string, and inside an <rPh>
+			boolean inText = false;
+			int phonetic = 0;
+
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("si".equals(name)) {
+						if (count + 1 == offsets.length) {
+							offsets = Arrays.copyOf(offsets,
+									offsets.length * 2);
+						}
+						offsets[count++] = length;
+					} else if ("t".equals(name)) {
+						inText = phonetic == 0;
+					} else if ("rPh".equals(name)) {
+						phonetic++;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("t".equals(name)) {
+						inText = false;
+					} else if ("rPh".equals(name)) {
+						phonetic--;
+					}
+				} else if (inText && SheetParser.isText(event)) {
+					int textLength = reader.getTextLength();
+
+					if (length + textLength > chars.length) {
+						chars = Arrays.copyOf(chars, Math.max(
+								chars.length * 2, length + textLength));
+					}
+
+					System.arraycopy(reader.getTextCharacters(), reader
+							.getTextStart(), chars, length, textLength);
+					length += textLength;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			SheetParser.close(reader);
+		}
+
+		offsets[count] = length;
+
+		return new SharedStrings(Arrays.copyOf(chars, length), Arrays.copyOf(
+				offsets, count + 1));
+	}
+
+	/**
+	 * Number of strings.
+	 *
+	 * @return number of strings
+	 */
+	int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Get a string.
+	 *
+	 * @param index
+	 *            position of the string, zero based
+	 * @return string
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no string at {@code index}
+	 */
+	String get(int index) {
+		checkIndex(index);
+		return new String(chars, offsets[index], offsets[index + 1]
+				- offsets[index]);
+	}
+
+	/**
+	 * Point {@code view} at a string, without creating a String.
+	 *
+	 * @param index
+	 *            position of the string, zero based
+	 * @param view
+	 *            view to point at the string
+	 * @return {@code view}
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no string at {@code index}
+	 */
+	CharArrayView view(int index, CharArrayView view) {
+		checkIndex(index);
+		view.set(chars, offsets[index], offsets[index + 1] - offsets[index]);
+		return view;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Shared string " + index
+					+ " does not exist, the workbook has " + size());
+		}
+	}
+
+	/**
+	 * View over a range of a char array.
+	 */
+	static final class CharArrayView implements CharSequence {
+
+		private char[] chars;
+		private int offset;
+		private int length;
+
+		void set(char[] chars, int offset, int length) {
+			this.chars = chars;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index
+						+ ", length " + length);
+			}
+			return chars[offset + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, offset, length);
+		}
+	}
+
+}
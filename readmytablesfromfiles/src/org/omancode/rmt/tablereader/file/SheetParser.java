@@ -0,0 +1,436 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.omancode.rmt.cellreader.DoubleParser;
+import org.omancode.rmt.cellreader.IntParser;
+
+/**
+ * Reads the rows of an XLSX worksheet part one at a time with a StAX parser,
+ * so only the current row is held in memory. Only the cells of the columns
+ * being read are kept, the others are skipped as they are parsed.
+ * <p>
+ * Cell values are the same as those of
+ * {@link ExcelFileReader#getExcelCellValue(org.apache.poi.ss.usermodel.Cell)}
+ * , ie: empty String if blank, String if text, Boolean if boolean, Double if
+ * numeric, and an Error string if the cell has an error.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class SheetParser {
+
+	/**
+	 * Kinds of cell, from the cell's {@code t} attribute.
+	 */
+	private static final byte BLANK = 0;
+	private static final byte NUMBER = 1;
+	private static final byte SHARED_STRING = 2;
+	private static final byte STRING = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte ERROR = 5;
+
+	private final XMLStreamReader reader;
+
+	/**
+	 * Columns kept, or {@code null} to keep all columns.
+	 */
+	private final boolean[] projection;
+
+	private final SharedStrings sharedStrings;
+
+	private final SharedStrings.CharArrayView view =
+			new SharedStrings.CharArrayView();
+
+	/**
+	 * Kind and text of each cell of the current row.
+	 */
+	private byte[] kinds;
+	private StringBuilder[] values;
+
+	/**
+	 * Row number of the current row, zero based.
+	 */
+	private int rowNumber = -1;
+
+	/**
+	 * Column after the last cell of the current row.
+	 */
+	private int lastColumn;
+
+	/**
+	 * Construct parser positioned before the first row.
+	 *
+	 * @param in
+	 *            worksheet part. Not closed.
+	 * @param projection
+	 *            {@code true} for the columns to keep, or {@code null} to keep
+	 *            all columns
+	 * @param sharedStrings
+	 *            the workbook's shared strings
+	 * @throws IOException
+	 *             if the part cannot be parsed
+	 */
+	SheetParser(InputStream in, boolean[] projection,
+			SharedStrings sharedStrings) throws IOException {
+		this.reader = createReader(in);
+		this.projection = projection;
+		this.sharedStrings = sharedStrings;
+
+		int count = projection == null ? 16 : projection.length;
+		this.kinds = new byte[count];
+		this.values = new StringBuilder[count];
+	}
+
+	/**
+	 * Create a StAX parser that does not read DTDs or external entities.
+	 *
+	 * @param in
+	 *            XML to parse
+	 * @return parser
+	 * @throws IOException
+	 *             if the parser cannot be created
+	 */
+	static XMLStreamReader createReader(InputStream in) throws IOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				Boolean.FALSE);
+
+		try {
+			return factory.createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Close a StAX parser, ignoring errors.
+	 *
+	 * @param reader
+	 *            parser
+	 */
+	static void close(XMLStreamReader reader) {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// nothing more can be read either way
+		}
+	}
+
+	/**
+	 * Is {@code event} the text of an element?
+	 *
+	 * @param event
+	 *            StAX event
+	 * @return {@code true} if text
+	 */
+	static boolean isText(int event) {
+		return event == XMLStreamConstants.CHARACTERS
+				|| event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE;
+	}
+
+	/**
+	 * Move to the next row of the sheet. Rows that do not exist in the sheet
+	 * are skipped.
+	 *
+	 * @return {@code true} if there is a row, or {@code false} if there are no
+	 *         more rows
+	 * @throws IOException
+	 *             if the sheet cannot be parsed
+	 */
+	boolean nextRow() throws IOException {
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT
+						&& "row".equals(reader.getLocalName())) {
+					readRow();
+					return true;
+				}
+			}
+
+			return false;
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		} catch (RuntimeException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	private void readRow() throws XMLStreamException {
+		Arrays.fill(kinds, BLANK);
+
+		String ref = reader.getAttributeValue(null, "r");
+		rowNumber = ref == null ? rowNumber + 1 : Integer.parseInt(ref) - 1;
+		lastColumn = 0;
+
+		int column = -1;
+
+		while (true) {
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if ("c".equals(reader.getLocalName())) {
+					String cellRef = reader.getAttributeValue(null, "r");
+					column = cellRef == null ? column + 1
+							: columnIndex(cellRef);
+					lastColumn = Math.max(lastColumn, column + 1);
+
+					if (isKept(column)) {
+						readCell(column, reader.getAttributeValue(null, "t"));
+					} else {
+						skipElement();
+					}
+				} else {
+					skipElement();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				// end of the row
+				return;
+			}
+		}
+	}
+
+	private boolean isKept(int column) {
+		if (projection != null) {
+			return column < projection.length && projection[column];
+		}
+
+		if (column >= kinds.length) {
+			int count = Math.max(column + 1, kinds.length * 2);
+			kinds = Arrays.copyOf(kinds, count);
+			values = Arrays.copyOf(values, count);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Read the value of a cell. Only the text of the cell's {@code <v>}, or
+	 * of the runs of its inline string, is kept.
+	 */
+	private void readCell(int column, String type) throws XMLStreamException {
+		StringBuilder value = values[column];
+
+		if (value == null) {
+			value = new StringBuilder();
+			values[column] = value;
+		} else {
+			value.setLength(0);
+		}
+
+		boolean hasValue = false;
+		boolean inValue = false;
+		int phonetic = 0;
+		int depth = 1;
+
+		while (depth > 0) {
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				depth++;
+
+				if ("v".equals(name) || ("t".equals(name) && phonetic == 0)) {
+					inValue = true;
+					hasValue = true;
+				} else if ("rPh".equals(name)) {
+					phonetic++;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				String name = reader.getLocalName();
+				depth--;
+
+				if ("v".equals(name) || "t".equals(name)) {
+					inValue = false;
+				} else if ("rPh".equals(name)) {
+					phonetic--;
+				}
+			} else if (inValue && isText(event)) {
+				value.append(reader.getTextCharacters(), reader
+						.getTextStart(), reader.getTextLength());
+			}
+		}
+
+		kinds[column] = hasValue ? kindOf(type) : BLANK;
+	}
+
+	private static byte kindOf(String type) {
+		if (type == null || "n".equals(type)) {
+			return NUMBER;
+		} else if ("s".equals(type)) {
+			return SHARED_STRING;
+		} else if ("b".equals(type)) {
+			return BOOLEAN;
+		} else if ("e".equals(type)) {
+			return ERROR;
+		}
+
+		// inline strings, formula strings and ISO dates
+		return STRING;
+	}
+
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+
+		while (depth > 0) {
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Column of a cell reference, eg: 27 for {@code "AB12"}.
+	 */
+	private static int columnIndex(String ref) {
+		int column = 0;
+
+		for (int i = 0; i < ref.length(); i++) {
+			char c = ref.charAt(i);
+
+			if (c < 'A' || c > 'Z') {
+				break;
+			}
+
+			column = column * 26 + c - 'A' + 1;
+		}
+
+		return column - 1;
+	}
+
+	/**
+	 * Row number of the current row.
+	 *
+	 * @return row number, zero based
+	 */
+	int getRowNumber() {
+		return rowNumber;
+	}
+
+	/**
+	 * Column after the last cell of the current row, including cells that
+	 * are not kept.
+	 *
+	 * @return number of columns in the row
+	 */
+	int getLastColumn() {
+		return lastColumn;
+	}
+
+	/**
+	 * The type of a cell of the current row.
+	 *
+	 * @param column
+	 *            column, zero based
+	 * @return {@link Double} if numeric, {@link CharSequence} if text,
+	 *         {@link Boolean} if boolean, or {@link Object} if blank or an
+	 *         error
+	 */
+	Class<?> getCellType(int column) {
+		switch (kinds[column]) {
+		case NUMBER:
+			return Double.class;
+		case SHARED_STRING:
+		case STRING:
+			return CharSequence.class;
+		case BOOLEAN:
+			return Boolean.class;
+		default:
+			return Object.class;
+		}
+	}
+
+	/**
+	 * Get the value of a cell of the current row.
+	 *
+	 * @param column
+	 *            column, zero based. Must be a kept column.
+	 * @return empty String if blank, String if text, Boolean if boolean,
+	 *         Double if numeric, and an Error string if the cell has an error.
+	 */
+	Object getCell(int column) {
+		StringBuilder value = values[column];
+
+		switch (kinds[column]) {
+		case NUMBER:
+			return Double.valueOf(DoubleParser.parseDouble(value));
+		case SHARED_STRING:
+			return sharedStrings.get(sharedStringIndex(value));
+		case STRING:
+			return value.toString();
+		case BOOLEAN:
+			return Boolean.valueOf(value.length() == 1
+					&& value.charAt(0) == '1');
+		case ERROR:
+			return errorValue(value.toString());
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * Get the text of a text cell of the current row without creating a
+	 * String. The text is only valid until the next call to this method or
+	 * {@link #nextRow()}.
+	 *
+	 * @param column
+	 *            column, zero based. Must be a kept column.
+	 * @return text, or {@code null} if the cell is not text
+	 */
+	CharSequence getCellText(int column) {
+		switch (kinds[column]) {
+		case SHARED_STRING:
+			return sharedStrings.view(sharedStringIndex(values[column]), view);
+		case STRING:
+			return values[column];
+		default:
+			return null;
+		}
+	}
+
+	private static int sharedStringIndex(CharSequence value) {
+		long index = IntParser.parseInt(value);
+
+		if (index == IntParser.NOT_PARSED) {
+			throw new IllegalStateException("Shared string index \"" + value
+					+ "\" is not an integer");
+		}
+
+		return (int) index;
+	}
+
+	/**
+	 * The same Error string as
+	 * {@link ExcelFileReader#getExcelCellValue(org.apache.poi.ss.usermodel.Cell)}
+	 * , which gives the error code.
+	 */
+	private static String errorValue(String text) {
+		try {
+			return "[Error " + FormulaError.forString(text).getCode() + "]";
+		} catch (IllegalArgumentException e) {
+			return "[Error " + text + "]";
+		}
+	}
+
+	/**
+	 * Stop parsing. The worksheet part is not closed.
+	 */
+	void close() {
+		close(reader);
+	}
+
+}
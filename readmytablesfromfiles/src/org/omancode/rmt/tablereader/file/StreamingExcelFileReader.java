@@ -0,0 +1,358 @@
+package org.omancode.rmt.tablereader.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.omancode.rmt.cellreader.CellReader;
+import org.omancode.rmt.tablereader.AbstractRowCursor;
+import org.omancode.rmt.tablereader.AbstractTableReader;
+import org.omancode.rmt.tablereader.Column;
+import org.omancode.rmt.tablereader.RowCursor;
+
+/**
+ * Excel XLSX file reader that streams the rows of the first sheet from the
+ * file, rather than loading the workbook into memory as
+ * {@link ExcelFileReader} does. Only the shared strings of the workbook and
+ * the current row are held in memory, and only the cells of the columns read
+ * are kept as the sheet is parsed.
+ * <p>
+ * Cell values are the same as those read by {@link ExcelFileReader}. Text
+ * cells are supplied to cell readers that accept text without creating a
+ * String.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class StreamingExcelFileReader extends AbstractTableReader {
+
+	private final File file;
+	private final String filename;
+	private final String sheetName;
+	private final SharedStrings sharedStrings;
+	private final String[] headerRow;
+
+	/**
+	 * Type of each cell in the first row after the header.
+	 */
+	private final Class<?>[] firstRowTypes;
+
+	/**
+	 * {@code true} for the columns read, by position in the sheet.
+	 */
+	private final boolean[] projection;
+
+	/**
+	 * Convenience constructor loading all columns with default cell readers.
+	 * Calls {@link #StreamingExcelFileReader(File, String[])} with
+	 * {@code columnsToRead} = {@code null}.
+	 *
+	 * @param file
+	 *            file to read
+	 * @throws IOException
+	 *             if problem opening {@code file} or if a column specified does
+	 *             not exist.
+	 */
+	public StreamingExcelFileReader(File file) throws IOException {
+		this(file, null);
+	}
+
+	/**
+	 * Convenience constructor loading specified columns with default cell
+	 * readers. Calls
+	 * {@link #StreamingExcelFileReader(File, String[], CellReader[])} with
+	 * {@code cellReaders} = {@code null}.
+	 *
+	 * @param file
+	 *            file to read
+	 * @param columnsToRead
+	 *            if {@code null}, all columns are read. If specified, then only
+	 *            these columns will be read.
+	 * @throws IOException
+	 *             if problem opening {@code file} or if a column specified does
+	 *             not exist.
+	 */
+	public StreamingExcelFileReader(File file, String[] columnsToRead)
+			throws IOException {
+		this(file, columnsToRead, null);
+	}
+
+	/**
+	 * Construct StreamingExcelFileReader. Reads the shared strings, the header
+	 * and the first row after the header.
+	 *
+	 * @param file
+	 *            XLSX file
+	 * @param columnsToRead
+	 *            if {@code null}, all columns are read. If specified, then only
+	 *            these columns will be read.
+	 * @param cellReaders
+	 *            cell readers. If {@code null} then the default
+	 *            {@link Column} cell reader is used for all columns.
+	 * @throws IOException
+	 *             if problem loading file
+	 */
+	public StreamingExcelFileReader(File file, String[] columnsToRead,
+			CellReader<?>[] cellReaders) throws IOException {
+		this.file = file;
+		this.filename = file.getCanonicalPath();
+
+		OPCPackage pkg = open(file);
+
+		try {
+			this.sharedStrings = readSharedStrings(pkg);
+
+			XSSFReader.SheetIterator sheets = sheets(pkg);
+			InputStream sheet = sheets.next();
+			this.sheetName = sheets.getSheetName();
+
+			try {
+				SheetParser parser = new SheetParser(sheet, null,
+						sharedStrings);
+
+				try {
+					if (!parser.nextRow()) {
+						throw new IOException(getName() + " is empty.");
+					}
+
+					this.headerRow = new String[parser.getLastColumn()];
+
+					for (int i = 0; i < headerRow.length; i++) {
+						headerRow[i] = parser.getCell(i).toString();
+					}
+
+					if (!parser.nextRow()) {
+						throw new IOException(getName() + " contains no rows.");
+					}
+
+					this.firstRowTypes = new Class<?>[headerRow.length];
+
+					for (int i = 0; i < headerRow.length; i++) {
+						firstRowTypes[i] = i < parser.getLastColumn() ? parser
+								.getCellType(i) : Object.class;
+					}
+				} finally {
+					parser.close();
+				}
+			} finally {
+				sheet.close();
+			}
+		} finally {
+			pkg.revert();
+		}
+
+		initializeColumns(columnsToRead, cellReaders);
+
+		this.projection = new boolean[headerRow.length];
+
+		for (Column column : columns) {
+			projection[column.getIndex()] = true;
+		}
+	}
+
+	/**
+	 * Open an XLSX file for reading.
+	 */
+	private static OPCPackage open(File file) throws IOException {
+		try {
+			return OPCPackage.open(file, PackageAccess.READ);
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * The sheets of a workbook, in the order they appear in the workbook.
+	 */
+	private XSSFReader.SheetIterator sheets(OPCPackage pkg)
+			throws IOException {
+		Iterator<InputStream> sheets;
+
+		try {
+			sheets = new XSSFReader(pkg).getSheetsData();
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+
+		if (!sheets.hasNext()) {
+			throw new IOException(filename + " contains no sheets.");
+		}
+
+		return (XSSFReader.SheetIterator) sheets;
+	}
+
+	/**
+	 * Read the shared strings part of a workbook. Workbooks without text
+	 * cells may not have one.
+	 */
+	private static SharedStrings readSharedStrings(OPCPackage pkg)
+			throws IOException {
+		ArrayList<PackagePart> parts;
+
+		try {
+			parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS
+					.getContentType());
+		} catch (RuntimeException e) {
+			throw new IOException(e);
+		}
+
+		if (parts.isEmpty()) {
+			return SharedStrings.EMPTY;
+		}
+
+		InputStream in = parts.get(0).getInputStream();
+
+		try {
+			return SharedStrings.read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public final String getName() {
+		return filename + ": Sheet \"" + sheetName + "\"";
+	}
+
+	@Override
+	public String[] getHeaderRow() {
+		return headerRow.clone();
+	}
+
+	/**
+	 * The type of a column's cell in the first row after the header, ie:
+	 * {@link Double} for a numeric cell, or {@link CharSequence} for a text
+	 * cell. As for {@link ExcelFileReader}, other cells are not assumed to be
+	 * of this type, just likely to be.
+	 *
+	 * @param column
+	 *            column
+	 * @return cell type, see {@link SheetParser#getCellType(int)}
+	 */
+	@Override
+	protected Class<?> getCellType(Column column) {
+		return firstRowTypes[column.getIndex()];
+	}
+
+	/**
+	 * Returns a cursor that streams the rows after the header from the file.
+	 *
+	 * @return row cursor
+	 * @throws RuntimeException
+	 *             if the file cannot be opened
+	 */
+	@Override
+	public RowCursor cursor() {
+		try {
+			return new XLSXRowCursor();
+		} catch (IOException e) {
+			throw new RuntimeException(getName() + " " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Cursor over the rows after the header, parsed from the sheet as they
+	 * are read. Rows that do not exist in the sheet are skipped.
+	 *
+	 * @author Oliver Mannion
+	 *
+	 */
+	private class XLSXRowCursor extends AbstractRowCursor {
+
+		private final OPCPackage pkg;
+		private final InputStream sheet;
+		private final SheetParser parser;
+
+		/**
+		 * Construct cursor. Opens the file and skips the header.
+		 *
+		 * @throws IOException
+		 *             if problem opening the file
+		 */
+		XLSXRowCursor() throws IOException {
+			super(columns);
+
+			pkg = open(file);
+
+			InputStream in = null;
+			SheetParser sheetParser = null;
+			boolean opened = false;
+
+			try {
+				in = sheets(pkg).next();
+				sheetParser = new SheetParser(in, projection, sharedStrings);
+				sheetParser.nextRow();
+				opened = true;
+			} finally {
+				if (!opened) {
+					try {
+						close(sheetParser, in);
+					} catch (IOException e) {
+						// report the original error instead
+					}
+				}
+			}
+
+			sheet = in;
+			parser = sheetParser;
+		}
+
+		/**
+		 * Release the parser and sheet, if opened, and the file.
+		 */
+		private void close(SheetParser sheetParser, InputStream in)
+				throws IOException {
+			if (sheetParser != null) {
+				sheetParser.close();
+			}
+
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} finally {
+				pkg.revert();
+			}
+		}
+
+		@Override
+		protected boolean nextRow() {
+			try {
+				return parser.nextRow();
+			} catch (IOException e) {
+				throw new RuntimeException(getName() + " " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		protected Object getCell(Column column) {
+			return parser.getCell(column.getIndex());
+		}
+
+		@Override
+		protected CharSequence getCellText(Column column) {
+			return parser.getCellText(column.getIndex());
+		}
+
+		@Override
+		protected String getCellName(Column column) {
+			return getName() + " "
+					+ ExcelFileReader.cellName(parser.getRowNumber(), column
+							.getIndex());
+		}
+
+		@Override
+		protected void closeTable() throws IOException {
+			close(parser, sheet);
+		}
+
+	}
+}